@@ -1,8 +1,11 @@
 package com.example.mcpserver;
 
 import com.example.mcpserver.model.McpRequest;
-import com.example.mcpserver.model.McpResponse;
+import com.example.mcpserver.service.McpCatalogService;
+import com.example.mcpserver.service.McpNotificationService;
 import com.example.mcpserver.service.McpService;
+import com.example.mcpserver.service.ToolCallContext;
+import com.example.mcpserver.transport.StdioTransport;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.cdimascio.dotenv.Dotenv;
 import org.springframework.ai.autoconfigure.transformers.TransformersEmbeddingClientAutoConfiguration;
@@ -10,9 +13,8 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ApplicationContext;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 
 @SpringBootApplication(exclude = {
         // Have to exclude this with LangChain4j on the classpath.
@@ -20,6 +22,8 @@ import java.util.Map;
 })
 public class McpServerApplication {
 
+    private static final String STDIO_CLIENT_ID = "default-client";
+
     public static void main(String[] args) {
         // Load .env file if it exists
         loadEnvironmentVariables();
@@ -38,80 +42,27 @@ public class McpServerApplication {
             System.setProperty("spring.main.web-application-type", "none");
             ApplicationContext context = SpringApplication.run(McpServerApplication.class, args);
             McpService mcpService = context.getBean(McpService.class);
-            startStdioLoop(mcpService);
+            McpNotificationService notificationService = context.getBean(McpNotificationService.class);
+            McpCatalogService catalogService = context.getBean(McpCatalogService.class);
+            int maxInFlight = context.getEnvironment().getProperty("mcp.stdio.max-in-flight", Integer.class, 16);
+            startStdioLoop(mcpService, notificationService, catalogService, maxInFlight);
         } else {
             // Start normal HTTP server
             SpringApplication.run(McpServerApplication.class, args);
         }
     }
 
-    private static void startStdioLoop(McpService mcpService) {
-        ObjectMapper objectMapper = new ObjectMapper();
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(System.in))) {
-
-            System.err.println("MCP stdio server started, waiting for requests...");
-
-            String line;
-            while ((line = reader.readLine()) != null) {
-                System.err.println("Received: " + line);
-                try {
-                    // Parse incoming JSON-RPC request
-                    McpRequest request = objectMapper.readValue(line, McpRequest.class);
-                    System.err.println("Parsed request method: " + request.getMethod());
-
-                    // Check if this is a notification (no response expected)
-                    boolean isNotification = request.getId() == null ||
-                            request.getMethod().startsWith("notifications/") ||
-                            request.getMethod().equals("initialized");
-
-                    if (isNotification) {
-                        System.err.println("Handling notification: " + request.getMethod());
-                        // Process notification but don't send response
-                        processRequest(request, mcpService);
-                        System.err.println("Notification processed");
-                    } else {
-                        // Process the request and send response
-                        Object result = processRequest(request, mcpService);
-                        McpResponse response = new McpResponse(request.getId(), result);
-
-                        // Send response directly to stdout
-                        String responseJson = objectMapper.writeValueAsString(response);
-                        System.err.println("Sending response: " + responseJson);
-
-                        // Write directly to stdout and flush immediately
-                        System.out.println(responseJson);
-                        System.out.flush();
-
-                        // Double-check that it was written
-                        System.err.println("Response sent to stdout");
-                    }
-
-                } catch (Exception e) {
-                    System.err.println("Error processing request: " + e.getMessage());
-                    e.printStackTrace();
-                    // Send error response
-                    try {
-                        McpResponse.McpError error = new McpResponse.McpError(-32603, "Internal error", e.getMessage());
-                        McpResponse response = new McpResponse("unknown", error);
-                        String responseJson = objectMapper.writeValueAsString(response);
-                        System.err.println("Sending error response: " + responseJson);
-
-                        // Write error response directly to stdout
-                        System.out.println(responseJson);
-                        System.out.flush();
-                    } catch (Exception ex) {
-                        System.err.println("Failed to send error response: " + ex.getMessage());
-                    }
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error in stdio loop: " + e.getMessage());
-            e.printStackTrace();
-        }
+    private static void startStdioLoop(McpService mcpService, McpNotificationService notificationService,
+            McpCatalogService catalogService, int maxInFlight) {
+        StdioTransport transport = new StdioTransport(new ObjectMapper(),
+                request -> processRequest(request, mcpService, catalogService), maxInFlight);
+        // stdio has a single client - every notification goes to stdout
+        notificationService.registerFallback(transport::sendNotification);
+        transport.run(System.in, System.out);
     }
 
-    private static Object processRequest(McpRequest request, McpService mcpService) {
+    private static Object processRequest(McpRequest request, McpService mcpService,
+            McpCatalogService catalogService) {
         String method = request.getMethod();
         @SuppressWarnings("unchecked")
         Map<String, Object> params = (Map<String, Object>) request.getParams();
@@ -135,10 +86,9 @@ public class McpServerApplication {
                 System.err.println("Received notifications/initialized notification - connection established");
                 yield Map.of(); // Empty response for notification
             }
-            case "tools/list" -> Map.of("tools", mcpService.listTools());
-            case "resources/list" -> Map.of("resources", mcpService.listResources());
-            case "resources/templates/list" -> Map.of("resourceTemplates", mcpService.listResourceTemplates());
-            case "prompts/list" -> Map.of("prompts", mcpService.listPrompts());
+            // Pre-encoded once at startup - written verbatim to stdout
+            case "tools/list", "resources/list", "resources/templates/list", "prompts/list" ->
+                catalogService.get(method).getResult();
             case "prompts/get" -> {
                 String name = (String) params.get("name");
                 yield mcpService.getPrompt(name);
@@ -149,16 +99,23 @@ public class McpServerApplication {
                 yield mcpService.getCompletions(text, position);
             }
             case "notifications/cancelled" -> {
+                Object requestId = params.get("requestId");
                 Object progressToken = params.get("progressToken");
-                System.err.println("Received cancellation for token: " + progressToken);
-                yield mcpService.cancelOperation(progressToken);
+                System.err.println("Received cancellation for request " + requestId + " / token: " + progressToken);
+                yield mcpService.cancelOperation(STDIO_CLIENT_ID, requestId, progressToken);
             }
             case "ping" -> Map.of("result", "pong");
             case "tools/call" -> {
                 String toolName = (String) params.get("name");
                 @SuppressWarnings("unchecked")
                 Map<String, Object> arguments = (Map<String, Object>) params.get("arguments");
-                yield mcpService.callTool(toolName, arguments);
+                ToolCallContext context = ToolCallContext.from(request.getId(), params, STDIO_CLIENT_ID);
+                Map<String, Object> result = mcpService.callTool(toolName, arguments, context);
+                if (context.isCancelled()) {
+                    // The client gave up on this request - no response is sent
+                    throw new CancellationException("Request " + request.getId() + " cancelled");
+                }
+                yield result;
             }
             case "resources/read" -> {
                 String uri = (String) params.get("uri");
@@ -166,7 +123,7 @@ public class McpServerApplication {
             }
             case "resources/subscribe" -> {
                 String uri = (String) params.get("uri");
-                String clientId = params.containsKey("clientId") ? (String) params.get("clientId") : "default-client";
+                String clientId = params.containsKey("clientId") ? (String) params.get("clientId") : STDIO_CLIENT_ID;
                 System.err.println("🎸 Epic subscription request for URI: " + uri);
                 yield mcpService.subscribeToResource(uri, clientId);
             }
@@ -179,6 +136,11 @@ public class McpServerApplication {
                 System.err.println("📋 Listing all subscriptions");
                 yield mcpService.listSubscriptions();
             }
+            case "logging/setLevel" -> {
+                String level = (String) params.get("level");
+                System.err.println("🎚️ Setting log level to: " + level);
+                yield mcpService.setLogLevel(STDIO_CLIENT_ID, level);
+            }
             case "resources/simulate_update" -> {
                 String uri = (String) params.get("uri");
                 System.err.println("🔥 Simulating resource update for: " + uri);
@@ -0,0 +1,70 @@
+package com.example.mcpserver.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 🎸 Epic Executor Configuration - the rhythm section of the server! 🎸
+ * Thread pools used to run MCP work off the servlet request threads
+ */
+@Configuration
+public class ExecutorConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutorConfig.class);
+
+    @Value("${mcp.batch.executor.pool-size:8}")
+    private int batchPoolSize;
+
+    @Value("${mcp.batch.executor.queue-capacity:256}")
+    private int batchQueueCapacity;
+
+    @Value("${mcp.tools.executor.pool-size:16}")
+    private int toolPoolSize;
+
+    @Value("${mcp.tools.executor.queue-capacity:100}")
+    private int toolQueueCapacity;
+
+    /**
+     * 🚀 Runs the members of a JSON-RPC batch in parallel.
+     * When the queue is full the submitting thread runs the member itself, so a
+     * burst of large batches degrades to sequential execution instead of failing.
+     */
+    @Bean(name = "mcpBatchExecutor")
+    public ThreadPoolTaskExecutor mcpBatchExecutor() {
+        logger.info("🎸 Configuring MCP batch executor: poolSize={}, queueCapacity={}",
+                batchPoolSize, batchQueueCapacity);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(batchPoolSize);
+        executor.setMaxPoolSize(batchPoolSize);
+        executor.setQueueCapacity(batchQueueCapacity);
+        executor.setThreadNamePrefix("mcp-batch-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    /**
+     * 🔥 Dedicated pool for tools/call - LLM round trips and MarkLogic searches
+     * run here instead of on Tomcat request threads. A full queue rejects the
+     * call so the client gets a fast "busy" error rather than an unbounded wait.
+     */
+    @Bean(name = "mcpToolExecutor")
+    public ThreadPoolTaskExecutor mcpToolExecutor() {
+        logger.info("🎸 Configuring MCP tool executor: poolSize={}, queueCapacity={}",
+                toolPoolSize, toolQueueCapacity);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(toolPoolSize);
+        executor.setMaxPoolSize(toolPoolSize);
+        executor.setQueueCapacity(toolQueueCapacity);
+        executor.setThreadNamePrefix("mcp-tool-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+}
@@ -4,12 +4,19 @@ import com.marklogic.client.DatabaseClient;
 import com.marklogic.client.DatabaseClientFactory;
 import com.marklogic.client.DatabaseClientFactory.DigestAuthContext;
 import com.marklogic.client.DatabaseClientFactory.BasicAuthContext;
+import com.example.mcpserver.service.RemoteCallScope;
+import com.marklogic.client.extra.okhttpclient.OkHttpClientConfigurator;
+import okhttp3.Call;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * 🎸 Epic MarkLogic Configuration - 2112 Style! 🎸
  * Configures the MarkLogic DatabaseClient for connecting to MarkLogic Server
@@ -37,6 +44,16 @@ public class MarkLogicConfig {
     @Value("${marklogic.authentication}")
     private String authentication;
 
+    // Hard cap on any single MarkLogic HTTP call. Tool deadlines are shorter and
+    // abort the wait first; this only reclaims connections nobody waits for.
+    @Value("${marklogic.request-timeout-ms:120000}")
+    private long requestTimeoutMs;
+
+    // Configurators are global to DatabaseClientFactory - register ours once
+    private static final AtomicBoolean timeoutConfiguratorRegistered = new AtomicBoolean();
+    private static final AtomicBoolean cancelConfiguratorRegistered = new AtomicBoolean();
+    private static final AtomicLong callTimeoutMs = new AtomicLong();
+
     /**
      * 🚀 Creates the Epic MarkLogic DatabaseClient Bean
      * Connects to MarkLogic Server with the configured settings
@@ -51,6 +68,9 @@ public class MarkLogicConfig {
             logger.info("   Username: {}", username);
             logger.info("   Authentication: {}", authentication);
 
+            configureRequestTimeout();
+            configureCancellation();
+
             // Create the DatabaseClient using the newer API
             DatabaseClient client;
 
@@ -84,4 +104,33 @@ public class MarkLogicConfig {
             throw new RuntimeException("Failed to configure MarkLogic DatabaseClient", e);
         }
     }
+
+    /**
+     * ⏱️ Bound every MarkLogic request with an OkHttp call timeout
+     */
+    private void configureRequestTimeout() {
+        callTimeoutMs.set(requestTimeoutMs);
+        if (requestTimeoutMs > 0 && timeoutConfiguratorRegistered.compareAndSet(false, true)) {
+            DatabaseClientFactory.addConfigurator((OkHttpClientConfigurator) builder ->
+                    builder.callTimeout(Duration.ofMillis(callTimeoutMs.get())));
+        }
+        logger.info("   Request timeout: {} ms", requestTimeoutMs);
+    }
+
+    /**
+     * 🛑 Hand every MarkLogic call to the tool call's {@link RemoteCallScope},
+     * so cancelling the tool call (or its deadline) cancels the socket read
+     * instead of leaving it to the request timeout. The interceptor runs on
+     * the thread that executes the call, where the scope is bound.
+     */
+    private void configureCancellation() {
+        if (cancelConfiguratorRegistered.compareAndSet(false, true)) {
+            DatabaseClientFactory.addConfigurator((OkHttpClientConfigurator) builder ->
+                    builder.addInterceptor(chain -> {
+                        Call call = chain.call();
+                        RemoteCallScope.register(call::cancel);
+                        return chain.proceed(chain.request());
+                    }));
+        }
+    }
 }
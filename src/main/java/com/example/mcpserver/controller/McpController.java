@@ -2,15 +2,43 @@ package com.example.mcpserver.controller;
 
 import com.example.mcpserver.model.McpRequest;
 import com.example.mcpserver.model.McpResponse;
+import com.example.mcpserver.retrieval.OpticExampleIndex;
+import com.example.mcpserver.service.LlmResponseCache;
+import com.example.mcpserver.service.MarkLogicDocsService;
+import com.example.mcpserver.service.McpCatalogService;
+import com.example.mcpserver.service.McpNotificationService;
 import com.example.mcpserver.service.McpService;
+import com.example.mcpserver.service.SemanticQueryCache;
+import com.example.mcpserver.service.StructuredQueryExampleCatalog;
+import com.example.mcpserver.service.ToolCallContext;
+import com.example.mcpserver.service.ToolExecutionService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/mcp")
@@ -19,26 +47,264 @@ public class McpController {
 
     private static final Logger logger = LoggerFactory.getLogger(McpController.class);
 
+    private static final String SESSION_HEADER = "Mcp-Session-Id";
+
     @Autowired
     private McpService mcpService;
 
+    @Autowired
+    private McpNotificationService notificationService;
+
+    @Autowired
+    private ToolExecutionService toolExecutionService;
+
+    @Autowired
+    private McpCatalogService catalogService;
+
+    @Autowired
+    private LlmResponseCache llmResponseCache;
+
+    @Autowired
+    private SemanticQueryCache semanticQueryCache;
+
+    @Autowired
+    private OpticExampleIndex opticExampleIndex;
+
+    @Autowired
+    private StructuredQueryExampleCatalog structuredQueryExampleCatalog;
+
+    @Autowired
+    private MarkLogicDocsService markLogicDocsService;
+
+    @Value("${mcp.tools.async-timeout-ms:120000}")
+    private long toolTimeoutMs;
+
+    @Value("${mcp.sse.timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("mcpBatchExecutor")
+    private Executor mcpBatchExecutor;
+
+    /**
+     * 🎸 Single requests and batches. tools/call is handed to the tool executor
+     * and answered through a DeferredResult, so the request thread is released
+     * while the LLM and MarkLogic do their thing; everything else is answered
+     * inline. The list methods are served from the pre-encoded catalog with an
+     * ETag, and answer 304 when the client's If-None-Match still matches.
+     */
     @PostMapping
-    public ResponseEntity<Map<String, Object>> handleMcpRequest(@RequestBody McpRequest request) {
+    public Object handleMcpRequest(@RequestBody JsonNode body,
+            @RequestHeader(value = SESSION_HEADER, required = false) String sessionId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (sessionId != null && !notificationService.isSession(sessionId)) {
+            return unknownSession(sessionId);
+        }
+        if (body.isArray()) {
+            return handleBatch(body, sessionId);
+        }
+
+        McpRequest request;
+        try {
+            request = objectMapper.treeToValue(body, McpRequest.class);
+        } catch (JsonProcessingException e) {
+            logger.warn("🔥 Invalid MCP request: {}", e.getOriginalMessage());
+            return ResponseEntity.ok(errorResponse(null, -32600, "Invalid Request", e.getOriginalMessage()));
+        }
+
+        if (isToolCall(request)) {
+            String clientId = clientId(sessionId);
+            return deferred(request.getId(), submitToolCall(request, clientId),
+                    () -> ResponseEntity.ok(timeoutResponse(request.getId())),
+                    () -> cancelToolCall(clientId, request.getId()));
+        }
+
+        if (catalogService.isCatalogMethod(request.getMethod())) {
+            return catalogResponse(request, ifNoneMatch);
+        }
+
+        // Streamable HTTP: the initialize response hands out the session id used
+        // to open the notification stream with GET /mcp
+        if ("initialize".equals(request.getMethod()) && sessionId == null) {
+            String newSessionId = notificationService.openSession();
+            return ResponseEntity.ok()
+                    .header(SESSION_HEADER, newSessionId)
+                    .body(handleSingleRequest(request, newSessionId));
+        }
+        return ResponseEntity.ok(handleSingleRequest(request, sessionId));
+    }
+
+    /**
+     * 🎸 JSON-RPC batch - independent members run in parallel and the responses
+     * are assembled in request order. Notifications produce no entries; a batch
+     * of only notifications gets 202 with no body. Batches are answered
+     * asynchronously like a single tools/call, so a slow member never holds
+     * the request thread.
+     */
+    private Object handleBatch(JsonNode batch, String sessionId) {
+        if (batch.isEmpty()) {
+            return ResponseEntity.ok(errorResponse(null, -32600, "Invalid Request", "Empty batch"));
+        }
+        logger.debug("🔍 DEBUG: Received batch of {} requests", batch.size());
+
+        List<CompletableFuture<Map<String, Object>>> pending = new ArrayList<>();
+        List<Object> pendingIds = new ArrayList<>();
+        List<Runnable> cancels = new ArrayList<>();
+        for (JsonNode member : batch) {
+            McpRequest request;
+            try {
+                request = objectMapper.treeToValue(member, McpRequest.class);
+            } catch (JsonProcessingException e) {
+                pending.add(CompletableFuture.completedFuture(
+                        errorResponse(null, -32600, "Invalid Request", e.getOriginalMessage())));
+                pendingIds.add(null);
+                continue;
+            }
+
+            CompletableFuture<Map<String, Object>> response;
+            if (isToolCall(request)) {
+                String clientId = clientId(sessionId);
+                response = submitToolCall(request, clientId);
+                CompletableFuture<Map<String, Object>> toolCall = response;
+                cancels.add(() -> {
+                    if (!toolCall.isDone()) {
+                        cancelToolCall(clientId, request.getId());
+                    }
+                });
+            } else {
+                response = CompletableFuture.supplyAsync(() -> handleSingleRequest(request, sessionId),
+                        mcpBatchExecutor);
+            }
+            if (!request.isNotification()) {
+                pending.add(response);
+                pendingIds.add(request.getId());
+            }
+        }
+
+        CompletableFuture<List<Map<String, Object>>> responses = CompletableFuture
+                .allOf(pending.toArray(new CompletableFuture[0]))
+                .thenApply(done -> pending.stream().map(CompletableFuture::join).toList());
+
+        // On timeout every member still running gets its own timeout error, finished ones their result,
+        // and the tool calls still running are cancelled
+        return deferred(null, responses, () -> {
+            List<Map<String, Object>> partial = new ArrayList<>(pending.size());
+            for (int i = 0; i < pending.size(); i++) {
+                CompletableFuture<Map<String, Object>> member = pending.get(i);
+                partial.add(member.isDone() && !member.isCompletedExceptionally() ? member.join()
+                        : timeoutResponse(pendingIds.get(i)));
+            }
+            return batchResponse(partial);
+        }, () -> cancels.forEach(Runnable::run));
+    }
+
+    private ResponseEntity<Object> catalogResponse(McpRequest request, String ifNoneMatch) {
+        McpCatalogService.CatalogEntry entry = catalogService.get(request.getMethod());
+        if (catalogService.matches(ifNoneMatch, entry)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(entry.getEtag()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(entry.getEtag())
+                .body(successResponse(request.getId(), entry.getResult()));
+    }
+
+    private ResponseEntity<Object> batchResponse(List<Map<String, Object>> responses) {
+        if (responses.isEmpty()) {
+            return ResponseEntity.accepted().build();
+        }
+        return ResponseEntity.ok(responses);
+    }
+
+    private boolean isToolCall(McpRequest request) {
+        return "tools/call".equals(request.getMethod()) && request.getParams() instanceof Map;
+    }
+
+    /**
+     * 🔥 Run a tools/call on the tool executor and build its JSON-RPC response
+     */
+    private CompletableFuture<Map<String, Object>> submitToolCall(McpRequest request, String clientId) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> params = (Map<String, Object>) request.getParams();
+        String toolName = (String) params.get("name");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> arguments = (Map<String, Object>) params.get("arguments");
+        ToolCallContext context = ToolCallContext.from(request.getId(), params, clientId);
+        logger.debug("🔍 DEBUG: Submitting tools/call: name={}, id={}", toolName, request.getId());
+
+        return toolExecutionService.submit(toolName, arguments, context)
+                .thenApply(result -> successResponse(request.getId(), result))
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof TaskRejectedException) {
+                        return errorResponse(request.getId(), -32000, "Server busy",
+                                "Tool executor queue is full - retry later");
+                    }
+                    if (cause instanceof CancellationException) {
+                        return errorResponse(request.getId(), -32800, "Request cancelled", cause.getMessage());
+                    }
+                    logger.error("🔍 DEBUG: Exception occurred in tools/call", cause);
+                    return errorResponse(request.getId(), -32603, "Internal error", cause.getMessage());
+                });
+    }
+
+    /**
+     * Give the client an abandoned tool call's slot back - the same path as
+     * notifications/cancelled, so the running LLM / MarkLogic call is
+     * interrupted instead of finishing for nobody
+     */
+    private void cancelToolCall(String clientId, Object requestId) {
+        if (requestId != null) {
+            mcpService.cancelOperation(clientId, requestId, null);
+        }
+    }
+
+    /**
+     * Answer through a DeferredResult. On timeout the timeout response is set
+     * first and then the work is cancelled, so the cancellation never races
+     * the timeout response.
+     */
+    private DeferredResult<ResponseEntity<Object>> deferred(Object requestId, CompletableFuture<?> response,
+            Supplier<ResponseEntity<Object>> onTimeout, Runnable cancel) {
+        DeferredResult<ResponseEntity<Object>> deferredResult = new DeferredResult<>(toolTimeoutMs);
+        deferredResult.onTimeout(() -> {
+            deferredResult.setResult(onTimeout.get());
+            cancel.run();
+        });
+        response.whenComplete((result, error) -> {
+            if (error != null) {
+                deferredResult.setResult(ResponseEntity.ok(errorResponse(requestId, -32603, "Internal error",
+                        error.getMessage())));
+            } else if (result instanceof List<?> list) {
+                @SuppressWarnings("unchecked")
+                List<Map<String, Object>> responses = (List<Map<String, Object>>) list;
+                deferredResult.setResult(batchResponse(responses));
+            } else {
+                deferredResult.setResult(ResponseEntity.ok(result));
+            }
+        });
+        return deferredResult;
+    }
+
+    private Map<String, Object> handleSingleRequest(McpRequest request, String sessionId) {
         logger.debug("handleMcpRequest - DIAGNOSTIC MODE");
         logger.debug("🔍 DEBUG: Received request: method={}, id={}", request.getMethod(), request.getId());
 
+        if ("notifications/cancelled".equals(request.getMethod()) && sessionId == null) {
+            // Without a session the cancel could never match the call - say so instead of a silent no-op
+            return errorResponse(request.getId(), -32600, "Session required",
+                    "notifications/cancelled needs the Mcp-Session-Id the tools/call was sent with");
+        }
+
         try {
-            Object result = processRequest(request);
+            Object result = processRequest(request, sessionId);
             logger.debug("🔍 DEBUG: Process result type: {}",
                     result != null ? result.getClass().getSimpleName() : "null");
             logger.debug("🔍 DEBUG: Process result: {}", result);
 
-            // Return raw Map for diagnosis instead of McpResponse
-            Map<String, Object> response = new java.util.HashMap<>();
-            response.put("jsonrpc", "2.0");
-            response.put("id", request.getId());
-            response.put("result", result != null ? result : Map.of("debug", "null result"));
-            response.put("error", null);
+            Map<String, Object> response = successResponse(request.getId(), result);
 
             // Log the complete response structure
             logger.debug("🔍 DEBUG: Complete response structure:");
@@ -47,26 +313,63 @@ public class McpController {
             logger.debug("🔍 DEBUG: - result: {}", response.get("result"));
             logger.debug("🔍 DEBUG: - error: {}", response.get("error"));
 
-            return ResponseEntity.ok(response);
+            return response;
 
         } catch (Exception e) {
             logger.error("🔍 DEBUG: Exception occurred", e);
-            Map<String, Object> errorResponse = new java.util.HashMap<>();
-            errorResponse.put("jsonrpc", "2.0");
-            errorResponse.put("id", request.getId());
-            errorResponse.put("result", null);
-            errorResponse.put("error", Map.of(
-                    "code", -32603,
-                    "message", "Internal error",
-                    "data", e.getMessage() != null ? e.getMessage() : "Unknown error"));
-            return ResponseEntity.ok(errorResponse);
+            return errorResponse(request.getId(), -32603, "Internal error",
+                    e.getMessage() != null ? e.getMessage() : "Unknown error");
         }
     }
 
-    private Object processRequest(McpRequest request) {
+    private Map<String, Object> successResponse(Object id, Object result) {
+        // Return raw Map for diagnosis instead of McpResponse
+        Map<String, Object> response = new java.util.HashMap<>();
+        response.put("jsonrpc", "2.0");
+        response.put("id", id);
+        response.put("result", result != null ? result : Map.of("debug", "null result"));
+        response.put("error", null);
+        return response;
+    }
+
+    private Map<String, Object> timeoutResponse(Object requestId) {
+        return errorResponse(requestId, -32001, "Request timed out", "No tool result within " + toolTimeoutMs + " ms");
+    }
+
+    private ResponseEntity<Object> unknownSession(String sessionId) {
+        logger.warn("🚫 Request for unknown session: {}", sessionId);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(errorResponse(null, -32600, "Session not found",
+                        "Unknown or closed Mcp-Session-Id - initialize a new session"));
+    }
+
+    /**
+     * Requests without a session share nothing - each gets its own client id,
+     * so request ids and progress tokens of different callers never collide.
+     * That is also why cancelling a tool call needs a session: a sessionless
+     * notifications/cancelled is rejected.
+     */
+    private String clientId(String sessionId) {
+        return sessionId != null ? sessionId : "http-" + UUID.randomUUID();
+    }
+
+    private Map<String, Object> errorResponse(Object id, int code, String message, String data) {
+        Map<String, Object> errorResponse = new java.util.HashMap<>();
+        errorResponse.put("jsonrpc", "2.0");
+        errorResponse.put("id", id);
+        errorResponse.put("result", null);
+        errorResponse.put("error", Map.of(
+                "code", code,
+                "message", message,
+                "data", data != null ? data : "Unknown error"));
+        return errorResponse;
+    }
+
+    private Object processRequest(McpRequest request, String sessionId) {
         String method = request.getMethod();
         @SuppressWarnings("unchecked")
         Map<String, Object> params = (Map<String, Object>) request.getParams();
+        String clientId = clientId(sessionId);
 
         return switch (method) {
             case "initialize" -> {
@@ -77,10 +380,8 @@ public class McpController {
                 }
                 yield mcpService.getServerInfo(clientProtocolVersion);
             }
-            case "tools/list" -> Map.of("tools", mcpService.listTools());
-            case "resources/list" -> Map.of("resources", mcpService.listResources());
-            case "resources/templates/list" -> Map.of("resourceTemplates", mcpService.listResourceTemplates());
-            case "prompts/list" -> Map.of("prompts", mcpService.listPrompts());
+            case "tools/list", "resources/list", "resources/templates/list", "prompts/list" ->
+                catalogService.get(method).getResult();
             case "prompts/get" -> {
                 String name = (String) params.get("name");
                 yield mcpService.getPrompt(name);
@@ -92,10 +393,8 @@ public class McpController {
                 Integer position = text != null ? text.length() : 0;
                 yield mcpService.getCompletions(text, position);
             }
-            case "notifications/cancelled" -> {
-                Object progressToken = params.get("progressToken");
-                yield mcpService.cancelOperation(progressToken);
-            }
+            case "notifications/cancelled" -> mcpService.cancelOperation(clientId, params.get("requestId"),
+                    params.get("progressToken"));
             case "notifications/initialized" -> {
                 // This is a notification that doesn't require a response, but we need to handle
                 // it
@@ -103,26 +402,23 @@ public class McpController {
                 yield Map.of("success", true);
             }
             case "ping" -> Map.of("result", "pong");
-            case "tools/call" -> {
-                String toolName = (String) params.get("name");
-                @SuppressWarnings("unchecked")
-                Map<String, Object> arguments = (Map<String, Object>) params.get("arguments");
-                yield mcpService.callTool(toolName, arguments);
-            }
+            // tools/call with params is dispatched asynchronously by submitToolCall
+            case "tools/call" -> throw new IllegalArgumentException("Invalid params: tools/call requires params");
             case "resources/read" -> {
                 String uri = (String) params.get("uri");
                 yield mcpService.readResource(uri);
             }
             case "resources/subscribe" -> {
                 String uri = (String) params.get("uri");
-                String clientId = params.containsKey("clientId") ? (String) params.get("clientId") : "http-client";
-                yield mcpService.subscribeToResource(uri, clientId);
+                String subscriberId = params.containsKey("clientId") ? (String) params.get("clientId") : clientId;
+                yield mcpService.subscribeToResource(uri, subscriberId);
             }
             case "resources/unsubscribe" -> {
                 String subscriptionId = (String) params.get("subscriptionId");
                 yield mcpService.unsubscribeFromResource(subscriptionId);
             }
             case "resources/list_subscriptions" -> mcpService.listSubscriptions();
+            case "logging/setLevel" -> mcpService.setLogLevel(clientId, (String) params.get("level"));
             case "resources/simulate_update" -> {
                 String uri = (String) params.get("uri");
                 yield mcpService.simulateResourceUpdate(uri);
@@ -131,12 +427,94 @@ public class McpController {
         };
     }
 
+    /**
+     * 🎸 Streamable HTTP notification stream - one SSE stream per session.
+     * Delivers notifications/resources/updated, progress and log notifications
+     * from the session's bounded queue.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> openNotificationStream(
+            @RequestHeader(value = SESSION_HEADER, required = false) String sessionId) {
+        // Only ids this server issued - a known or guessed id must not take over another client's stream
+        if (sessionId != null && !notificationService.isSession(sessionId)) {
+            logger.warn("🚫 SSE stream requested for unknown session: {}", sessionId);
+            return ResponseEntity.notFound().build();
+        }
+        String streamSessionId = sessionId != null ? sessionId : notificationService.openSession();
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+
+        // A reconnect with the same session id completes this emitter; its callbacks
+        // then only remove this registration, never the stream that replaced it
+        McpNotificationService.Registration registration = notificationService.register(streamSessionId,
+                json -> emitter.send(SseEmitter.event()
+                        .name("message")
+                        .data(json, MediaType.APPLICATION_JSON)),
+                emitter::complete);
+        emitter.onCompletion(registration::unregister);
+        emitter.onTimeout(registration::unregister);
+        emitter.onError(e -> registration.unregister());
+
+        logger.info("📡 SSE notification stream opened for session: {}", streamSessionId);
+        return ResponseEntity.ok()
+                .header(SESSION_HEADER, streamSessionId)
+                .body(emitter);
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> closeSession(@RequestHeader(SESSION_HEADER) String sessionId) {
+        if (!notificationService.isSession(sessionId)) {
+            return ResponseEntity.notFound().build();
+        }
+        logger.info("🛑 Closing MCP session: {}", sessionId);
+        notificationService.closeSession(sessionId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * 📊 Queued vs running tool calls and notification delivery counters
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> metrics() {
+        return ResponseEntity.ok(Map.of(
+                "tools", toolExecutionService.getMetrics(),
+                "catalog", catalogService.getMetrics(),
+                "operations", mcpService.getOperationMetrics(),
+                "llmCache", llmResponseCache.getMetrics(),
+                "semanticCache", semanticQueryCache.getMetrics(),
+                "opticExamples", opticExampleIndex.getMetrics(),
+                "searchExamples", structuredQueryExampleCatalog.getMetrics(),
+                "notifications", notificationService.getMetrics(),
+                "docs", markLogicDocsService.getStatus()));
+    }
+
+    /**
+     * 🩺 Liveness and readiness - the server is live as soon as it answers,
+     * ready once the marklogic_docs index has finished warming up
+     */
     @GetMapping("/health")
-    public ResponseEntity<Map<String, String>> health() {
+    public ResponseEntity<Map<String, Object>> health() {
         return ResponseEntity.ok(Map.of(
                 "status", "healthy",
                 "server", "SpringBoot MCP Server",
-                "version", "1.0.0"));
+                "version", "1.0.0",
+                "liveness", "UP",
+                "readiness", markLogicDocsService.isReady() ? "READY" : "NOT_READY",
+                "docsIndex", markLogicDocsService.getStatus()));
+    }
+
+    @GetMapping("/health/live")
+    public ResponseEntity<Map<String, Object>> liveness() {
+        return ResponseEntity.ok(Map.of("status", "UP"));
+    }
+
+    /**
+     * 503 until the docs index is ready, for readiness probes
+     */
+    @GetMapping("/health/ready")
+    public ResponseEntity<Map<String, Object>> readiness() {
+        Map<String, Object> status = markLogicDocsService.getStatus();
+        return ResponseEntity.status(markLogicDocsService.isReady() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("status", markLogicDocsService.isReady() ? "READY" : "NOT_READY", "docsIndex", status));
     }
 
     @GetMapping("/capabilities")
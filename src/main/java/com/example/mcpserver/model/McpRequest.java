@@ -1,5 +1,6 @@
 package com.example.mcpserver.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class McpRequest {
@@ -51,4 +52,14 @@ public class McpRequest {
     public void setParams(Object params) {
         this.params = params;
     }
+
+    /**
+     * Notifications carry no id (or use a notifications/* method) and never get
+     * a response - neither on their own nor as members of a batch.
+     */
+    @JsonIgnore
+    public boolean isNotification() {
+        return id == null
+                || (method != null && (method.startsWith("notifications/") || method.equals("initialized")));
+    }
 }
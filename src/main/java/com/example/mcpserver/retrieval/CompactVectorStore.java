@@ -0,0 +1,439 @@
+package com.example.mcpserver.retrieval;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 🎸 Epic compact vector store - the vectors live off the heap! 🎸
+ * Full precision vectors sit in one contiguous direct buffer instead of one
+ * {@code float[]} object per chunk, so a large corpus adds almost nothing to
+ * the heap or to GC work. Optional quantization keeps a second, smaller copy
+ * that is scanned first:
+ * <ul>
+ *   <li>{@code INT8} - one byte per dimension with a per-vector scale (4x smaller)</li>
+ *   <li>{@code BINARY} - one sign bit per dimension, scored by Hamming distance (32x smaller)</li>
+ * </ul>
+ * The best {@code maxResults * rerankFactor} candidates of the quantized scan
+ * are re-scored at full precision, so returned scores are exact cosine
+ * relevance. Scoring goes through {@link VectorScorer#best()} - the JDK
+ * Vector API where it is enabled. Removed entries are skipped until they make
+ * up a quarter of the slots; the live vectors are then moved down over them.
+ *
+ * @param <Embedded> the stored item type, usually {@link TextSegment}
+ */
+public class CompactVectorStore<Embedded> implements EmbeddingStore<Embedded> {
+
+    public enum Quantization {
+        NONE, INT8, BINARY;
+
+        public static Quantization from(String value) {
+            return value == null || value.isBlank() ? INT8 : valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private record Candidate(int node, float score) {
+    }
+
+    // Share of removed slots that triggers compaction
+    private static final double COMPACT_FRACTION = 0.25;
+
+    private final Quantization quantization;
+    private final int rerankFactor;
+    private final VectorScorer scorer;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<String> ids = new ArrayList<>();
+    private final List<Embedded> items = new ArrayList<>();
+    private final Map<String, Integer> nodesById = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private ByteBuffer vectors = ByteBuffer.allocateDirect(0);
+    private ByteBuffer codes = ByteBuffer.allocateDirect(0);
+    private float[] scales = new float[0];
+    private int dimension = -1;
+    private int codeBytes;
+    private int size;
+    private long compactions;
+
+    public CompactVectorStore(Quantization quantization, int rerankFactor) {
+        this(quantization, rerankFactor, VectorScorer.best());
+    }
+
+    public CompactVectorStore(Quantization quantization, int rerankFactor, VectorScorer scorer) {
+        this.quantization = quantization;
+        this.rerankFactor = Math.max(1, rerankFactor);
+        this.scorer = scorer;
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        insert(id, embedding, null);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        insert(id, embedding, null);
+    }
+
+    @Override
+    public String add(Embedding embedding, Embedded embedded) {
+        String id = UUID.randomUUID().toString();
+        insert(id, embedding, embedded);
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> added = new ArrayList<>(embeddings.size());
+        for (Embedding embedding : embeddings) {
+            added.add(add(embedding));
+        }
+        return added;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<Embedded> embedded) {
+        if (ids.size() != embeddings.size() || (embedded != null && embedded.size() != embeddings.size())) {
+            throw new IllegalArgumentException("ids, embeddings and embedded must have the same size");
+        }
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(size + ids.size(), embeddings.isEmpty() ? 0 : embeddings.get(0).dimension());
+            for (int i = 0; i < ids.size(); i++) {
+                insert(ids.get(i), embeddings.get(i), embedded != null ? embedded.get(i) : null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<String> idsToRemove) {
+        lock.writeLock().lock();
+        try {
+            for (String id : idsToRemove) {
+                Integer node = nodesById.remove(id);
+                if (node != null) {
+                    deleted.set(node);
+                    items.set(node, null);
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        lock.writeLock().lock();
+        try {
+            for (int node = 0; node < size; node++) {
+                if (!deleted.get(node) && filter.test(filterTarget(items.get(node)))) {
+                    nodesById.remove(ids.get(node));
+                    deleted.set(node);
+                    items.set(node, null);
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            ids.clear();
+            items.clear();
+            nodesById.clear();
+            deleted.clear();
+            vectors = ByteBuffer.allocateDirect(0);
+            codes = ByteBuffer.allocateDirect(0);
+            scales = new float[0];
+            dimension = -1;
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 🔍 Quantized scan for candidates, then exact re-ranking of the shortlist
+     */
+    @Override
+    public EmbeddingSearchResult<Embedded> search(EmbeddingSearchRequest request) {
+        float[] query = HnswEmbeddingStore.normalize(request.queryEmbedding().vector());
+        lock.readLock().lock();
+        try {
+            if (size == 0) {
+                return new EmbeddingSearchResult<>(List.of());
+            }
+            if (query.length != dimension) {
+                throw new IllegalArgumentException("Query has " + query.length + " dimensions, store has " + dimension);
+            }
+            int shortlist = quantization == Quantization.NONE
+                    ? request.maxResults()
+                    : request.maxResults() * rerankFactor;
+            long[] queryBits = quantization == Quantization.BINARY ? signBits(query) : null;
+
+            PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingDouble(Candidate::score));
+            for (int node = 0; node < size; node++) {
+                if (deleted.get(node)
+                        || (request.filter() != null && !request.filter().test(filterTarget(items.get(node))))) {
+                    continue;
+                }
+                float score = approximateScore(query, queryBits, node);
+                if (best.size() < shortlist) {
+                    best.add(new Candidate(node, score));
+                } else if (score > best.peek().score()) {
+                    best.poll();
+                    best.add(new Candidate(node, score));
+                }
+            }
+
+            List<Candidate> reranked = new ArrayList<>(best.size());
+            for (Candidate candidate : best) {
+                float exact = quantization == Quantization.NONE
+                        ? candidate.score()
+                        : scorer.dot(query, vectors, candidate.node() * dimension * 4, dimension);
+                reranked.add(new Candidate(candidate.node(), exact));
+            }
+            reranked.sort(Comparator.comparingDouble(Candidate::score).reversed());
+
+            List<EmbeddingMatch<Embedded>> matches = new ArrayList<>();
+            for (Candidate candidate : reranked) {
+                double score = RelevanceScore.fromCosineSimilarity(candidate.score());
+                if (matches.size() >= request.maxResults() || score < request.minScore()) {
+                    break;
+                }
+                matches.add(new EmbeddingMatch<>(score, ids.get(candidate.node()),
+                        Embedding.from(readVector(candidate.node())), items.get(candidate.node())));
+            }
+            return new EmbeddingSearchResult<>(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodesById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            metrics.put("type", "compact");
+            metrics.put("size", nodesById.size());
+            metrics.put("tombstones", deleted.cardinality());
+            metrics.put("compactions", compactions);
+            metrics.put("offHeapBytes", (long) vectors.capacity() + codes.capacity());
+        } finally {
+            lock.readLock().unlock();
+        }
+        metrics.put("quantization", quantization.name().toLowerCase(Locale.ROOT));
+        metrics.put("rerankFactor", rerankFactor);
+        metrics.put("scorer", scorer.name());
+        return metrics;
+    }
+
+    private float approximateScore(float[] query, long[] queryBits, int node) {
+        switch (quantization) {
+            case INT8:
+                return scales[node] * scorer.dotInt8(query, codes, node * codeBytes, dimension);
+            case BINARY:
+                int differing = 0;
+                int offset = node * codeBytes;
+                for (int word = 0; word < queryBits.length; word++) {
+                    differing += Long.bitCount(queryBits[word] ^ codes.getLong(offset + word * 8));
+                }
+                return 1f - 2f * differing / dimension;
+            default:
+                return scorer.dot(query, vectors, node * dimension * 4, dimension);
+        }
+    }
+
+    private void insert(String id, Embedding embedding, Embedded embedded) {
+        float[] vector = HnswEmbeddingStore.normalize(embedding.vector());
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(size + 1, vector.length);
+            if (vector.length != dimension) {
+                throw new IllegalArgumentException("Embedding has " + vector.length + " dimensions, store has "
+                        + dimension);
+            }
+            Integer existing = nodesById.remove(id);
+            if (existing != null) {
+                deleted.set(existing);
+                items.set(existing, null);
+            }
+            int node = size++;
+            int vectorOffset = node * dimension * 4;
+            for (int i = 0; i < dimension; i++) {
+                vectors.putFloat(vectorOffset + i * 4, vector[i]);
+            }
+            writeCode(node, vector);
+            ids.add(id);
+            items.add(embedded);
+            nodesById.put(id, node);
+            if (existing != null) {
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 🧹 Move the live vectors, codes and scales down over the removed slots
+     * once those make up {@link #COMPACT_FRACTION} of the store - otherwise
+     * every re-indexed file leaves its old vectors behind for good. The write
+     * lock must be held.
+     */
+    private void compactIfNeeded() {
+        if (deleted.cardinality() <= size * COMPACT_FRACTION) {
+            return;
+        }
+        int vectorBytes = dimension * 4;
+        int live = 0;
+        for (int node = 0; node < size; node++) {
+            if (deleted.get(node)) {
+                continue;
+            }
+            if (node != live) {
+                moveBytes(vectors, node * vectorBytes, live * vectorBytes, vectorBytes);
+                moveBytes(codes, node * codeBytes, live * codeBytes, codeBytes);
+                if (quantization == Quantization.INT8) {
+                    scales[live] = scales[node];
+                }
+                ids.set(live, ids.get(node));
+                items.set(live, items.get(node));
+                nodesById.put(ids.get(live), live);
+            }
+            live++;
+        }
+        ids.subList(live, size).clear();
+        items.subList(live, size).clear();
+        deleted.clear();
+        size = live;
+        compactions++;
+    }
+
+    private static void moveBytes(ByteBuffer buffer, int from, int to, int length) {
+        if (length == 0) {
+            return;
+        }
+        // Moves down only, so an overlapping forward copy is safe
+        buffer.put(to, buffer.duplicate(), from, length);
+    }
+
+    private void writeCode(int node, float[] vector) {
+        int offset = node * codeBytes;
+        if (quantization == Quantization.INT8) {
+            float max = 0;
+            for (float value : vector) {
+                max = Math.max(max, Math.abs(value));
+            }
+            float scale = max > 0 ? max / 127f : 1f;
+            scales[node] = scale;
+            for (int i = 0; i < vector.length; i++) {
+                codes.put(offset + i, (byte) Math.round(vector[i] / scale));
+            }
+        } else if (quantization == Quantization.BINARY) {
+            long[] bits = signBits(vector);
+            for (int word = 0; word < bits.length; word++) {
+                codes.putLong(offset + word * 8, bits[word]);
+            }
+        }
+    }
+
+    private static long[] signBits(float[] vector) {
+        long[] bits = new long[(vector.length + 63) / 64];
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] > 0) {
+                bits[i / 64] |= 1L << (i % 64);
+            }
+        }
+        return bits;
+    }
+
+    private float[] readVector(int node) {
+        float[] vector = new float[dimension];
+        int offset = node * dimension * 4;
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = vectors.getFloat(offset + i * 4);
+        }
+        return vector;
+    }
+
+    /**
+     * Grow the off-heap buffers by doubling - the first vector fixes the dimension
+     */
+    private void ensureCapacity(int nodes, int vectorDimension) {
+        if (dimension < 0) {
+            if (vectorDimension <= 0) {
+                return;
+            }
+            dimension = vectorDimension;
+            codeBytes = switch (quantization) {
+                case INT8 -> dimension;
+                case BINARY -> (dimension + 63) / 64 * 8;
+                case NONE -> 0;
+            };
+        }
+        long vectorBytes = (long) dimension * 4;
+        if (vectors.capacity() >= nodes * vectorBytes) {
+            return;
+        }
+        int capacity = Math.max(nodes, Math.max(64, vectors.capacity() / (int) vectorBytes * 2));
+        if (capacity * vectorBytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Compact vector store is limited to 2 GB of vectors");
+        }
+        vectors = grow(vectors, (int) (capacity * vectorBytes), size * (int) vectorBytes);
+        codes = grow(codes, capacity * codeBytes, size * codeBytes);
+        if (quantization == Quantization.INT8) {
+            scales = java.util.Arrays.copyOf(scales, capacity);
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer current, int capacity, int used) {
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+        ByteBuffer source = current.duplicate();
+        source.position(0).limit(used);
+        grown.put(source);
+        grown.clear();
+        return grown;
+    }
+
+    private static Object filterTarget(Object item) {
+        return item instanceof TextSegment segment ? segment.metadata() : item;
+    }
+}
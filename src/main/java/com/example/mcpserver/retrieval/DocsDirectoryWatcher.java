@@ -0,0 +1,309 @@
+package com.example.mcpserver.retrieval;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 🎸 Epic docs directory watcher - update the docs, not the deployment! 🎸
+ * Indexes every docs file under a directory and keeps the index in step with
+ * it through a {@link WatchService}. After a burst of file events settles, the
+ * directory is re-hashed (SHA-256 per file) and only files that were added,
+ * changed or removed are re-chunked and re-embedded. Each file's chunks are
+ * swapped in one {@link HybridRetriever#replace} call, so searches keep running
+ * and never see a half-updated file. Chunks carry the file's path relative to
+ * the directory, prefixed with {@value #FILE_NAME_PREFIX}, so they are never
+ * taken for neighbours of a bundled docs page with the same name.
+ */
+public class DocsDirectoryWatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocsDirectoryWatcher.class);
+
+    /**
+     * Start of the fileName metadata of every watched chunk
+     */
+    public static final String FILE_NAME_PREFIX = "watch:";
+
+    private final Path root;
+    private final Set<String> extensions;
+    private final DocsIngestionPipeline pipeline;
+    private final HybridRetriever retriever;
+    private final long debounceMs;
+
+    // Guarded by "this" - sync() runs on the watch thread or a caller, never both
+    private final Map<String, IndexedFile> files = new HashMap<>();
+    private volatile int fileCount;
+    private volatile int chunks;
+
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong filesEmbedded = new AtomicLong();
+    private final AtomicLong filesRemoved = new AtomicLong();
+    private volatile long lastSyncMs = -1;
+
+    private WatchService watchService;
+    private Thread thread;
+
+    private record IndexedFile(String hash, List<String> ids) {
+    }
+
+    /**
+     * What one {@link #sync()} changed
+     */
+    public record SyncResult(int added, int changed, int removed, int unchanged, int chunksEmbedded, long ms) {
+
+        public boolean changedAnything() {
+            return added + changed + removed > 0;
+        }
+    }
+
+    /**
+     * @param extensions lower-case file extensions to index, empty for all files
+     * @param debounceMs quiet time after the last file event before re-syncing
+     */
+    public DocsDirectoryWatcher(Path root, Set<String> extensions, DocsIngestionPipeline pipeline,
+            HybridRetriever retriever, long debounceMs) {
+        this.root = root.toAbsolutePath().normalize();
+        this.extensions = extensions;
+        this.pipeline = pipeline;
+        this.retriever = retriever;
+        this.debounceMs = Math.max(0, debounceMs);
+    }
+
+    /**
+     * 🚀 Index the directory now, then follow changes on a daemon thread
+     */
+    public void start() throws IOException {
+        if (!Files.isDirectory(root)) {
+            throw new IOException("Docs directory " + root + " does not exist");
+        }
+        SyncResult initial = sync();
+        logger.info("📂 Indexed {} docs files ({} chunks) from {} in {} ms",
+                initial.added(), chunks, root, initial.ms());
+
+        watchService = FileSystems.getDefault().newWatchService();
+        registerAll(root);
+        thread = new Thread(this::watch, "docs-watch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 🔄 Re-hash the directory and re-embed only what changed. Files are
+     * hashed as streams, then the changed ones go through the pipeline one at
+     * a time, so only one file's content is in memory at once.
+     */
+    public synchronized SyncResult sync() throws IOException {
+        long start = System.currentTimeMillis();
+        Map<String, String> hashes = new HashMap<>();
+        Map<String, Path> toEmbed = new TreeMap<>();
+        int added = 0;
+        int changed = 0;
+        for (Path path : listFiles()) {
+            String name = root.relativize(path).toString().replace('\\', '/');
+            IndexedFile indexed = files.get(name);
+            String hash;
+            try {
+                hash = sha256(path);
+            } catch (IOException e) {
+                // Deleted or still being written - keep what is indexed, the next event picks it up
+                logger.debug("Skipping unreadable docs file {}: {}", path, e.getMessage());
+                if (indexed != null) {
+                    hashes.put(name, indexed.hash());
+                }
+                continue;
+            }
+            hashes.put(name, hash);
+            if (indexed == null) {
+                added++;
+            } else if (!indexed.hash().equals(hash)) {
+                changed++;
+            } else {
+                continue;
+            }
+            toEmbed.put(name, path);
+        }
+        List<String> removed = files.keySet().stream().filter(name -> !hashes.containsKey(name)).toList();
+
+        int embedded = 0;
+        for (Map.Entry<String, Path> file : toEmbed.entrySet()) {
+            String name = file.getKey();
+            byte[] bytes;
+            try {
+                bytes = Files.readAllBytes(file.getValue());
+            } catch (IOException e) {
+                logger.debug("Skipping unreadable docs file {}: {}", file.getValue(), e.getMessage());
+                continue;
+            }
+            DocsIngestionPipeline.Result result = pipeline.ingestFile(FILE_NAME_PREFIX + name, bytes);
+            List<String> ids = new ArrayList<>(result.segments().size());
+            for (int i = 0; i < result.segments().size(); i++) {
+                ids.add(UUID.randomUUID().toString());
+            }
+            IndexedFile previous = files.get(name);
+            retriever.replace(previous != null ? previous.ids() : List.of(), ids, result.embeddings(),
+                    result.segments());
+            // The hash of the bytes actually embedded - the file may have changed since it was hashed
+            files.put(name, new IndexedFile(sha256(bytes), ids));
+            embedded += ids.size();
+            filesEmbedded.incrementAndGet();
+        }
+        for (String name : removed) {
+            retriever.remove(files.remove(name).ids());
+        }
+        filesRemoved.addAndGet(removed.size());
+
+        fileCount = files.size();
+        chunks = files.values().stream().mapToInt(file -> file.ids().size()).sum();
+        long ms = System.currentTimeMillis() - start;
+        syncs.incrementAndGet();
+        lastSyncMs = ms;
+        SyncResult result = new SyncResult(added, changed, removed.size(),
+                hashes.size() - added - changed, embedded, ms);
+        if (result.changedAnything()) {
+            logger.info("🔄 Docs directory sync: {} added, {} changed, {} removed, {} unchanged - {} chunks embedded in {} ms",
+                    added, changed, removed.size(), result.unchanged(), embedded, ms);
+        }
+        return result;
+    }
+
+    public int chunks() {
+        return chunks;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("directory", root.toString());
+        metrics.put("files", fileCount);
+        metrics.put("chunks", chunks);
+        metrics.put("syncs", syncs.get());
+        metrics.put("filesEmbedded", filesEmbedded.get());
+        metrics.put("filesRemoved", filesRemoved.get());
+        metrics.put("lastSyncMs", lastSyncMs);
+        metrics.put("watching", thread != null && thread.isAlive());
+        return metrics;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                // Let an editor save or a bulk copy finish before re-hashing
+                do {
+                    handleEvents(key);
+                    key = watchService.poll(debounceMs, TimeUnit.MILLISECONDS);
+                } while (key != null);
+                try {
+                    sync();
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("🔥 Docs directory sync failed - retrying on the next change: {}", e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed on shutdown
+        }
+    }
+
+    private void handleEvents(WatchKey key) {
+        Path directory = (Path) key.watchable();
+        key.pollEvents().forEach(event -> {
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                Path created = directory.resolve((Path) event.context());
+                if (Files.isDirectory(created)) {
+                    try {
+                        registerAll(created);
+                    } catch (IOException e) {
+                        logger.warn("🔥 Cannot watch new docs directory {}: {}", created, e.getMessage());
+                    }
+                }
+            }
+        });
+        key.reset();
+    }
+
+    private void registerAll(Path directory) throws IOException {
+        try (Stream<Path> directories = Files.walk(directory)) {
+            for (Path path : directories.filter(Files::isDirectory).toList()) {
+                path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        }
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().startsWith("."))
+                    .filter(this::hasIndexedExtension)
+                    .toList();
+        }
+    }
+
+    private boolean hasIndexedExtension(Path path) {
+        if (extensions.isEmpty()) {
+            return true;
+        }
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && extensions.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static String sha256(byte[] bytes) {
+        return HexFormat.of().formatHex(sha256().digest(bytes));
+    }
+
+    private static String sha256(Path path) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(path), digest)) {
+            byte[] buffer = new byte[1 << 16];
+            while (inputStream.read(buffer) != -1) {
+                // the stream feeds the digest
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
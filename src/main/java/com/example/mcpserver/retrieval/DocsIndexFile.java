@@ -0,0 +1,319 @@
+package com.example.mcpserver.retrieval;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 🎸 Epic persisted docs index - embed once, load fast! 🎸
+ * Versioned binary file holding the chunk vectors, the chunk text and its
+ * metadata and, optionally, the links of the HNSW graph built over them,
+ * stamped with a fingerprint of everything that produced it (the zip contents,
+ * the splitter and the model). A matching file replaces both the embedding run
+ * and the graph build on boot. It is memory-mapped only to read it once: the
+ * vectors and segments are copied into the in-memory index, so the file saves
+ * start-up time, not heap.
+ *
+ * <pre>
+ * header   magic, version, fingerprint (64 ASCII bytes), dimension, count, text offset, graph offset
+ * offsets  count longs - position of each chunk's text record
+ * vectors  count * dimension floats
+ * text     per chunk: text, then metadata key/value pairs (length-prefixed UTF-8)
+ * graph    m, efConstruction, entry point, top layer, then per chunk its layer
+ *          count and per layer the neighbour count and neighbours (absent when
+ *          the graph offset is 0)
+ * </pre>
+ */
+public final class DocsIndexFile {
+
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int MAGIC = 0x4D4C4458; // "MLDX"
+    private static final int FINGERPRINT_LENGTH = 64;
+    private static final int HEADER_SIZE = 4 + 4 + FINGERPRINT_LENGTH + 4 + 4 + 8 + 8;
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final String fingerprint;
+    private final int dimension;
+    private final int count;
+    private final long graphOffset;
+
+    private DocsIndexFile(Path path, ByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a docs index file: " + path);
+        }
+        int version = buffer.getInt(4);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported docs index version " + version + " in " + path);
+        }
+        byte[] fingerprintBytes = new byte[FINGERPRINT_LENGTH];
+        buffer.get(8, fingerprintBytes);
+        this.fingerprint = new String(fingerprintBytes, StandardCharsets.US_ASCII);
+        this.dimension = buffer.getInt(8 + FINGERPRINT_LENGTH);
+        this.count = buffer.getInt(12 + FINGERPRINT_LENGTH);
+        this.graphOffset = buffer.getLong(24 + FINGERPRINT_LENGTH);
+    }
+
+    /**
+     * 🗺️ Memory-map an index file. Only the header is read here; vectors,
+     * text and graph are paged in as they are read.
+     */
+    public static DocsIndexFile map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new DocsIndexFile(path, buffer);
+        }
+    }
+
+    /**
+     * Fingerprint stored in an index stream, or null when it is not a readable
+     * index of the current format - used to check a bundled index before copying it
+     */
+    public static String readFingerprint(InputStream inputStream) throws IOException {
+        DataInputStream data = new DataInputStream(inputStream);
+        if (data.readInt() != MAGIC || data.readInt() != FORMAT_VERSION) {
+            return null;
+        }
+        byte[] fingerprintBytes = new byte[FINGERPRINT_LENGTH];
+        data.readFully(fingerprintBytes);
+        return new String(fingerprintBytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 💾 Write an index next to its final location and move it into place, so a
+     * reader never maps a half-written file
+     */
+    public static void write(Path path, String fingerprint, List<Embedding> embeddings, List<TextSegment> segments)
+            throws IOException {
+        write(path, fingerprint, embeddings, segments, null);
+    }
+
+    /**
+     * 💾 Same, with the HNSW graph built over the embeddings in the same order
+     */
+    public static void write(Path path, String fingerprint, List<Embedding> embeddings, List<TextSegment> segments,
+            HnswEmbeddingStore.Graph graph) throws IOException {
+        if (fingerprint.length() != FINGERPRINT_LENGTH) {
+            throw new IllegalArgumentException("Fingerprint must be " + FINGERPRINT_LENGTH + " characters");
+        }
+        if (embeddings.size() != segments.size()) {
+            throw new IllegalArgumentException("Embeddings and segments differ in size");
+        }
+        if (graph != null && graph.size() != embeddings.size()) {
+            throw new IllegalArgumentException("Graph and embeddings differ in size");
+        }
+        int count = embeddings.size();
+        int dimension = count > 0 ? embeddings.get(0).dimension() : 0;
+
+        // Text records first, so the offsets table can be written up front
+        byte[][] records = new byte[count][];
+        long textOffset = HEADER_SIZE + (long) count * 8 + (long) count * dimension * 4;
+        long[] offsets = new long[count];
+        long position = textOffset;
+        for (int i = 0; i < count; i++) {
+            records[i] = encodeSegment(segments.get(i));
+            offsets[i] = position;
+            position += records[i].length;
+        }
+        long graphOffset = graph != null ? position : 0;
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp);
+                 DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16))) {
+                data.writeInt(MAGIC);
+                data.writeInt(FORMAT_VERSION);
+                data.write(fingerprint.getBytes(StandardCharsets.US_ASCII));
+                data.writeInt(dimension);
+                data.writeInt(count);
+                data.writeLong(textOffset);
+                data.writeLong(graphOffset);
+                for (long offset : offsets) {
+                    data.writeLong(offset);
+                }
+                for (Embedding embedding : embeddings) {
+                    float[] vector = embedding.vector();
+                    if (vector.length != dimension) {
+                        throw new IllegalArgumentException("Mixed embedding dimensions in docs index");
+                    }
+                    for (float value : vector) {
+                        data.writeFloat(value);
+                    }
+                }
+                for (byte[] record : records) {
+                    data.write(record);
+                }
+                if (graph != null) {
+                    writeGraph(data, graph);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Copy of the i-th vector - absolute reads, safe from any thread
+     */
+    public float[] vector(int index) {
+        checkIndex(index);
+        float[] vector = new float[dimension];
+        int offset = HEADER_SIZE + count * 8 + index * dimension * 4;
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = buffer.getFloat(offset + i * 4);
+        }
+        return vector;
+    }
+
+    public Embedding embedding(int index) {
+        return Embedding.from(vector(index));
+    }
+
+    /**
+     * Decode the i-th chunk's text and metadata from the mapped file
+     */
+    public TextSegment segment(int index) {
+        checkIndex(index);
+        int position = (int) buffer.getLong(HEADER_SIZE + index * 8);
+        int textLength = buffer.getInt(position);
+        String text = readString(position + 4, textLength);
+        position += 4 + textLength;
+
+        int entries = buffer.getInt(position);
+        position += 4;
+        Map<String, Object> metadata = new HashMap<>();
+        for (int i = 0; i < entries; i++) {
+            int keyLength = buffer.getInt(position);
+            String key = readString(position + 4, keyLength);
+            position += 4 + keyLength;
+            int valueLength = buffer.getInt(position);
+            String value = readString(position + 4, valueLength);
+            position += 4 + valueLength;
+            metadata.put(key, value);
+        }
+        return TextSegment.from(text, Metadata.from(metadata));
+    }
+
+    /**
+     * 🕸️ The persisted HNSW graph, or null when the index was written without one
+     */
+    public HnswEmbeddingStore.Graph graph() {
+        if (graphOffset == 0) {
+            return null;
+        }
+        int position = (int) graphOffset;
+        int m = buffer.getInt(position);
+        int efConstruction = buffer.getInt(position + 4);
+        int entryPoint = buffer.getInt(position + 8);
+        int maxLevel = buffer.getInt(position + 12);
+        position += 16;
+        int[][][] links = new int[count][][];
+        for (int node = 0; node < count; node++) {
+            int layers = buffer.getInt(position);
+            position += 4;
+            links[node] = new int[layers][];
+            for (int layer = 0; layer < layers; layer++) {
+                int[] neighbours = new int[buffer.getInt(position)];
+                position += 4;
+                for (int i = 0; i < neighbours.length; i++) {
+                    neighbours[i] = buffer.getInt(position);
+                    position += 4;
+                }
+                links[node][layer] = neighbours;
+            }
+        }
+        return new HnswEmbeddingStore.Graph(m, efConstruction, entryPoint, maxLevel, links);
+    }
+
+    private static void writeGraph(DataOutputStream data, HnswEmbeddingStore.Graph graph) throws IOException {
+        data.writeInt(graph.m());
+        data.writeInt(graph.efConstruction());
+        data.writeInt(graph.entryPoint());
+        data.writeInt(graph.maxLevel());
+        for (int[][] nodeLinks : graph.links()) {
+            data.writeInt(nodeLinks.length);
+            for (int[] neighbours : nodeLinks) {
+                data.writeInt(neighbours.length);
+                for (int neighbour : neighbours) {
+                    data.writeInt(neighbour);
+                }
+            }
+        }
+    }
+
+    private String readString(int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Chunk " + index + " of " + count);
+        }
+    }
+
+    private static byte[] encodeSegment(TextSegment segment) {
+        // Sorted so identical input always produces an identical file
+        Map<String, Object> metadata = new TreeMap<>(segment.metadata().toMap());
+        byte[] text = segment.text().getBytes(StandardCharsets.UTF_8);
+        int size = 4 + text.length + 4;
+        byte[][] pairs = new byte[metadata.size() * 2][];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+            pairs[i] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            pairs[i + 1] = String.valueOf(entry.getValue()).getBytes(StandardCharsets.UTF_8);
+            size += 8 + pairs[i].length + pairs[i + 1].length;
+            i += 2;
+        }
+        ByteBuffer record = ByteBuffer.allocate(size);
+        record.putInt(text.length).put(text).putInt(metadata.size());
+        for (byte[] pair : pairs) {
+            record.putInt(pair.length).put(pair);
+        }
+        return record.array();
+    }
+}
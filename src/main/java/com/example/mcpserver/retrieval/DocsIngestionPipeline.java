@@ -0,0 +1,424 @@
+package com.example.mcpserver.retrieval;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 🎸 Epic docs ingestion pipeline - every core gets a solo! 🎸
+ * Each corpus zip is decoded on its own thread, so the zips are read
+ * concurrently. Each corpus feeds the splits of its entries through a bounded
+ * queue as each entry completes, and the chunks are embedded in micro-batches
+ * with {@link EmbeddingModel#embedAll(List)} on a worker pool as they arrive,
+ * so the first batches embed while later entries are still being decoded.
+ * When the embedders fall behind, the full queue stalls the decoding instead
+ * of piling entries up in memory.
+ * Chunks come back in zip and entry order, so the same zips always produce
+ * the same index. A chunk whose text (whitespace aside) was already seen -
+ * install snippets, footers, nav sections repeated across pages - is dropped
+ * before it is embedded; the first occurrence in that order is kept.
+ * <p>
+ * Entries are decoded with a UTF-8 {@link CharsetDecoder} straight off the zip
+ * stream. A {@link MarkdownChunker} consumes that stream on the corpus thread
+ * as it is decoded, so an entry is never held as one string; other splitters
+ * get the entry as a single string built from the same decoder and split it
+ * on the worker pool.
+ */
+public class DocsIngestionPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocsIngestionPipeline.class);
+
+    /**
+     * Bumped whenever the same zips would produce different chunks
+     */
+    public static final int VERSION = 2;
+
+    private static final int DECODE_BUFFER_CHARS = 8192;
+
+    // Put on a corpus queue once the zip has been read completely
+    private static final Future<List<TextSegment>> END_OF_CORPUS = CompletableFuture.completedFuture(List.of());
+
+    // Splits a corpus may have queued ahead of the embedders
+    private static final int SPLITS_PER_THREAD = 2;
+
+    private final EmbeddingModel embeddingModel;
+    private final DocumentSplitter documentSplitter;
+    private final int threads;
+    private final int batchSize;
+
+    /**
+     * Chunks of all corpora in order, with per-stage timings. Stage times are
+     * summed over the threads that ran the stage; wall time is end to end.
+     */
+    public record Result(List<Embedding> embeddings, List<TextSegment> segments, Timings timings) {
+    }
+
+    public record Timings(long decodeMs, long splitMs, long embedMs, long wallMs, int entries, int batches,
+            int threads, int duplicates) {
+    }
+
+    private record Batch(List<TextSegment> segments, Future<List<Embedding>> embeddings) {
+    }
+
+    public DocsIngestionPipeline(EmbeddingModel embeddingModel, DocumentSplitter documentSplitter, int threads,
+            int batchSize) {
+        this.embeddingModel = embeddingModel;
+        this.documentSplitter = documentSplitter;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * 🚀 Decode, split and embed the given zips - filesystem paths, or
+     * classpath resources when no such file exists
+     */
+    public Result ingest(List<String> zips) throws IOException {
+        long start = System.nanoTime();
+        AtomicLong decodeNanos = new AtomicLong();
+        AtomicLong splitNanos = new AtomicLong();
+        AtomicLong embedNanos = new AtomicLong();
+        AtomicInteger entries = new AtomicInteger();
+
+        ExecutorService corpusExecutor = Executors.newFixedThreadPool(zips.size(), threadFactory("docs-corpus-"));
+        ExecutorService workers = Executors.newFixedThreadPool(threads, threadFactory("docs-ingest-"));
+        try {
+            List<BlockingQueue<Future<List<TextSegment>>>> corpora = new ArrayList<>();
+            for (String zip : zips) {
+                BlockingQueue<Future<List<TextSegment>>> corpus = new ArrayBlockingQueue<>(threads * SPLITS_PER_THREAD);
+                corpora.add(corpus);
+                corpusExecutor.execute(() -> {
+                    Future<List<TextSegment>> last = END_OF_CORPUS;
+                    try {
+                        ingestZip(zip, workers, corpus, decodeNanos, splitNanos, entries);
+                    } catch (IOException | RuntimeException e) {
+                        last = CompletableFuture.failedFuture(e);
+                    }
+                    try {
+                        corpus.put(last);
+                    } catch (InterruptedException e) {
+                        // Shut down - nobody is reading this corpus any more
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+
+            // Splits are taken in zip order, so deduplication keeps the same chunks every time
+            Embedder embedder = new Embedder(workers, embedNanos, true);
+            for (BlockingQueue<Future<List<TextSegment>>> corpus : corpora) {
+                Future<List<TextSegment>> split;
+                while ((split = take(corpus)) != END_OF_CORPUS) {
+                    embedder.add(await(split));
+                }
+            }
+            return embedder.collect(decodeNanos.get(), splitNanos.get(), start, entries.get());
+        } finally {
+            corpusExecutor.shutdownNow();
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * 🔄 Decode, split and embed one loose file - used to re-embed a file that
+     * changed in a watched docs directory. Batches of a large file are spread
+     * over the threads.
+     */
+    public Result ingestFile(String fileName, byte[] content) throws IOException {
+        long start = System.nanoTime();
+        AtomicLong decodeNanos = new AtomicLong();
+        AtomicLong splitNanos = new AtomicLong();
+        AtomicLong embedNanos = new AtomicLong();
+
+        List<TextSegment> split = split(fileName, content, decodeNanos, splitNanos);
+        int batches = (split.size() + batchSize - 1) / batchSize;
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, batches)),
+                threadFactory("docs-ingest-"));
+        try {
+            // No deduplication here - every chunk belongs to exactly one watched file
+            Embedder embedder = new Embedder(workers, embedNanos, false);
+            embedder.add(split);
+            return embedder.collect(decodeNanos.get(), splitNanos.get(), start, 1);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Hands chunks to the workers in micro-batches as the splits arrive,
+     * optionally skipping chunks whose content hash was already seen
+     */
+    private final class Embedder {
+
+        private final ExecutorService workers;
+        private final AtomicLong embedNanos;
+        private final boolean deduplicate;
+        private final List<Batch> batches = new ArrayList<>();
+        private final Set<String> seen = new HashSet<>();
+        private int duplicates;
+        private List<TextSegment> pending = new ArrayList<>(batchSize);
+
+        Embedder(ExecutorService workers, AtomicLong embedNanos, boolean deduplicate) {
+            this.workers = workers;
+            this.embedNanos = embedNanos;
+            this.deduplicate = deduplicate;
+        }
+
+        void add(List<TextSegment> split) {
+            for (TextSegment segment : split) {
+                if (deduplicate && !seen.add(contentHash(segment.text()))) {
+                    duplicates++;
+                    continue;
+                }
+                pending.add(segment);
+                if (pending.size() == batchSize) {
+                    batches.add(embed(pending, workers, embedNanos));
+                    pending = new ArrayList<>(batchSize);
+                }
+            }
+        }
+
+        Result collect(long decodeNanos, long splitNanos, long start, int entries) throws IOException {
+            if (!pending.isEmpty()) {
+                batches.add(embed(pending, workers, embedNanos));
+                pending = new ArrayList<>(batchSize);
+            }
+            List<Embedding> embeddings = new ArrayList<>();
+            List<TextSegment> segments = new ArrayList<>();
+            for (Batch batch : batches) {
+                embeddings.addAll(await(batch.embeddings()));
+                segments.addAll(batch.segments());
+            }
+            Timings timings = new Timings(millis(decodeNanos), millis(splitNanos), millis(embedNanos.get()),
+                    millis(System.nanoTime() - start), entries, batches.size(), threads, duplicates);
+            return new Result(embeddings, segments, timings);
+        }
+    }
+
+    /**
+     * Decodes the zip entry by entry and queues each entry's split as soon as
+     * the entry is done - blocks while the queue is full
+     */
+    private void ingestZip(String filename, ExecutorService workers, BlockingQueue<Future<List<TextSegment>>> splits,
+            AtomicLong decodeNanos, AtomicLong splitNanos, AtomicInteger entries) throws IOException {
+        try (InputStream inputStream = openZip(filename);
+             ZipInputStream zipInputStream = new ZipInputStream(inputStream)) {
+
+            long decodeStart = System.nanoTime();
+            long streamedSplitNanos = 0;
+            long queuedNanos = 0;
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    String fileName = entry.getName();
+                    logger.debug("Processing zip entry: {} (size: {} bytes)", fileName, entry.getSize());
+                    entries.incrementAndGet();
+                    Future<List<TextSegment>> split;
+                    if (documentSplitter instanceof MarkdownChunker chunker) {
+                        // Decoding and chunking share this thread - time spent chunking counts as split time
+                        long splitStart = System.nanoTime();
+                        List<TextSegment> chunks = new ArrayList<>();
+                        chunker.chunk(entryReader(zipInputStream), Metadata.from("fileName", fileName), chunks::add);
+                        streamedSplitNanos += System.nanoTime() - splitStart;
+                        split = CompletableFuture.completedFuture(number(fileName, chunks));
+                    } else {
+                        String content = readEntryContent(zipInputStream);
+                        split = workers.submit(() -> split(fileName, content, splitNanos));
+                    }
+                    // Waiting for the embedders is neither decoding nor splitting
+                    long queueStart = System.nanoTime();
+                    put(splits, split);
+                    queuedNanos += System.nanoTime() - queueStart;
+                }
+                zipInputStream.closeEntry();
+            }
+            splitNanos.addAndGet(streamedSplitNanos);
+            decodeNanos.addAndGet(System.nanoTime() - decodeStart - streamedSplitNanos - queuedNanos);
+        } catch (IOException e) {
+            logger.error("Error loading {}", filename, e);
+            throw new IOException("Failed to load documentation from " + filename, e);
+        }
+
+        logger.info("Finished decoding {}", filename);
+    }
+
+    static String contentHash(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(text.strip().replaceAll("\\s+", " ").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private Batch embed(List<TextSegment> segments, ExecutorService workers, AtomicLong embedNanos) {
+        return new Batch(segments, workers.submit(() -> {
+            long embedStart = System.nanoTime();
+            List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
+            embedNanos.addAndGet(System.nanoTime() - embedStart);
+            return embeddings;
+        }));
+    }
+
+    /**
+     * Decode and split one loose file. A {@link MarkdownChunker} chunks the
+     * text as it is decoded, so that time counts as split time.
+     */
+    private List<TextSegment> split(String fileName, byte[] bytes, AtomicLong decodeNanos, AtomicLong splitNanos)
+            throws IOException {
+        InputStream entry = new ByteArrayInputStream(bytes);
+        if (documentSplitter instanceof MarkdownChunker chunker) {
+            long splitStart = System.nanoTime();
+            List<TextSegment> chunks = new ArrayList<>();
+            chunker.chunk(entryReader(entry), Metadata.from("fileName", fileName), chunks::add);
+            splitNanos.addAndGet(System.nanoTime() - splitStart);
+            return number(fileName, chunks);
+        }
+        long decodeStart = System.nanoTime();
+        String content = readEntryContent(entry);
+        decodeNanos.addAndGet(System.nanoTime() - decodeStart);
+        return split(fileName, content, splitNanos);
+    }
+
+    private List<TextSegment> split(String fileName, String content, AtomicLong splitNanos) {
+        long splitStart = System.nanoTime();
+        Document originalDocument = Document.from(content, Metadata.from("fileName", fileName));
+        List<TextSegment> segments = number(fileName, documentSplitter.split(originalDocument));
+        splitNanos.addAndGet(System.nanoTime() - splitStart);
+        return segments;
+    }
+
+    /**
+     * Chunk metadata: the file, the chunk's position in it and, from the
+     * Markdown chunker, its heading path
+     */
+    private static List<TextSegment> number(String fileName, List<TextSegment> chunks) {
+        logger.debug("Split {} into {} chunks", fileName, chunks.size());
+
+        List<TextSegment> segments = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            Metadata chunkMetadata = Metadata.from("fileName", fileName)
+                    .put("chunkIndex", String.valueOf(i))
+                    .put("totalChunks", String.valueOf(chunks.size()));
+            String headingPath = chunks.get(i).metadata().getString(MarkdownChunker.HEADING_PATH);
+            if (headingPath != null) {
+                chunkMetadata.put(MarkdownChunker.HEADING_PATH, headingPath);
+            }
+            segments.add(TextSegment.from(chunks.get(i).text(), chunkMetadata));
+        }
+        return segments;
+    }
+
+    private static InputStream openZip(String zip) throws IOException {
+        Path path = Path.of(zip);
+        if (Files.isRegularFile(path)) {
+            return Files.newInputStream(path);
+        }
+        return new ClassPathResource(zip).getInputStream();
+    }
+
+    /**
+     * UTF-8 reader over the current zip entry. The decoder carries a multi-byte
+     * sequence split across reads over to the next read, and replaces invalid
+     * bytes instead of failing the whole ingestion. Never close it - that would
+     * close the zip stream.
+     */
+    static Reader entryReader(InputStream entry) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        return new BufferedReader(new InputStreamReader(entry, decoder), DECODE_BUFFER_CHARS);
+    }
+
+    static String readEntryContent(InputStream entry) throws IOException {
+        Reader reader = entryReader(entry);
+        StringBuilder content = new StringBuilder();
+        char[] buffer = new char[DECODE_BUFFER_CHARS];
+        int length;
+        while ((length = reader.read(buffer)) != -1) {
+            content.append(buffer, 0, length);
+        }
+        return content.toString();
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T element) throws IOException {
+        try {
+            queue.put(element);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Docs ingestion interrupted", e);
+        }
+    }
+
+    private static <T> T take(BlockingQueue<T> queue) throws IOException {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Docs ingestion interrupted", e);
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Docs ingestion interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Docs ingestion failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000;
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
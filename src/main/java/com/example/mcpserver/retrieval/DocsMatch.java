@@ -0,0 +1,22 @@
+package com.example.mcpserver.retrieval;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * 🎸 One docs chunk returned by marklogic_docs retrieval 🎸
+ *
+ * @param id           chunk id, shared by the vector store and the lexical index
+ * @param segment      chunk text and metadata
+ * @param score        fused rank score the results are ordered by
+ * @param vectorScore  cosine relevance (0..1), or 0 when only the lexical index found it
+ * @param lexicalScore BM25 score, or 0 when only the vector search found it
+ * @param embedding    stored vector, or null when only the lexical index found it
+ */
+public record DocsMatch(String id, TextSegment segment, double score, double vectorScore, double lexicalScore,
+        Embedding embedding) {
+
+    public String text() {
+        return segment.text();
+    }
+}
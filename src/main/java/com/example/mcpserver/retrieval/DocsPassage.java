@@ -0,0 +1,28 @@
+package com.example.mcpserver.retrieval;
+
+import java.util.List;
+
+/**
+ * 🎸 One passage of a marklogic_docs answer - one or more adjacent chunks of a docs file 🎸
+ *
+ * @param fileName    docs file the chunks came from, or null when unknown
+ * @param headingPath heading path of the first chunk, or null
+ * @param firstChunk  chunkIndex of the first merged chunk, -1 when unknown
+ * @param lastChunk   chunkIndex of the last merged chunk, -1 when unknown
+ * @param ids         ids of the merged chunks, in file order
+ * @param text        merged text, overlap between neighbours removed
+ * @param score       best fused score among the merged chunks
+ */
+public record DocsPassage(String fileName, String headingPath, int firstChunk, int lastChunk, List<String> ids,
+        String text, double score) {
+
+    /**
+     * "file > heading path" label the passage is quoted under
+     */
+    public String source() {
+        if (fileName == null) {
+            return headingPath != null ? headingPath : "";
+        }
+        return headingPath != null ? fileName + " > " + headingPath : fileName;
+    }
+}
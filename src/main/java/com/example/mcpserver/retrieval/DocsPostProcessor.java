@@ -0,0 +1,337 @@
+package com.example.mcpserver.retrieval;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🎸 Epic docs post-processing - fewer tokens, more answer! 🎸
+ * Turns the fused candidates of a marklogic_docs query into the passages the
+ * agent actually reads:
+ * <ol>
+ * <li>vector-only candidates below the minimum relevance are dropped - the
+ * vector search always returns its k nearest chunks, however far they are,
+ * while a lexical hit shares at least one term with the query</li>
+ * <li>candidates that are neighbours in the same file (consecutive
+ * {@code chunkIndex}) are merged into one passage, their overlap removed</li>
+ * <li>maximal marginal relevance picks the passages, trading the fused score
+ * against similarity to the passages already picked, so five near-identical
+ * install snippets from five files do not crowd out everything else</li>
+ * <li>passages are added in that order until the character budget is spent</li>
+ * </ol>
+ */
+public class DocsPostProcessor {
+
+    // Shorter suffix/prefix matches between neighbours are coincidence, not splitter overlap
+    private static final int MIN_OVERLAP_CHARS = 16;
+    private static final int MAX_OVERLAP_CHARS = 2000;
+    private static final String TRUNCATED = " …";
+
+    private final double minScore;
+    private final double mmrLambda;
+    private final int maxChars;
+
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong candidates = new AtomicLong();
+    private final AtomicLong belowMinScore = new AtomicLong();
+    private final AtomicLong mergedChunks = new AtomicLong();
+    private final AtomicLong overBudget = new AtomicLong();
+    private final AtomicLong passagesReturned = new AtomicLong();
+    private final AtomicLong charsReturned = new AtomicLong();
+
+    /**
+     * @param minScore  minimum vector relevance (0..1) of a candidate only the
+     *                  vector search found, 0 keeps everything
+     * @param mmrLambda 1 ranks by score alone, lower values favour diversity
+     * @param maxChars  character budget for all passages together, 0 for none
+     */
+    public DocsPostProcessor(double minScore, double mmrLambda, int maxChars) {
+        this.minScore = minScore;
+        this.mmrLambda = Math.max(0, Math.min(1, mmrLambda));
+        this.maxChars = Math.max(0, maxChars);
+    }
+
+    /**
+     * 🎯 Up to {@code maxResults} passages for the candidates, best first
+     */
+    public List<DocsPassage> process(List<DocsMatch> matches, int maxResults) {
+        queries.incrementAndGet();
+        candidates.addAndGet(matches.size());
+        List<DocsMatch> relevant = new ArrayList<>(matches.size());
+        for (DocsMatch match : matches) {
+            if (match.lexicalScore() > 0 || match.vectorScore() >= minScore) {
+                relevant.add(match);
+            } else {
+                belowMinScore.incrementAndGet();
+            }
+        }
+
+        List<DocsPassage> passages = new ArrayList<>();
+        for (Passage passage : select(merge(relevant), maxResults)) {
+            passages.add(passage.toDocsPassage());
+        }
+        passages = fit(passages);
+        passagesReturned.addAndGet(passages.size());
+        charsReturned.addAndGet(passages.stream().mapToInt(passage -> passage.text().length()).sum());
+        return passages;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("minScore", minScore);
+        metrics.put("mmrLambda", mmrLambda);
+        metrics.put("maxChars", maxChars);
+        metrics.put("queries", queries.get());
+        metrics.put("candidates", candidates.get());
+        metrics.put("belowMinScore", belowMinScore.get());
+        metrics.put("mergedChunks", mergedChunks.get());
+        metrics.put("overBudget", overBudget.get());
+        metrics.put("passagesReturned", passagesReturned.get());
+        metrics.put("charsReturned", charsReturned.get());
+        return metrics;
+    }
+
+    /**
+     * Neighbouring chunks of one file, being merged
+     */
+    private static final class Passage {
+
+        private final String fileName;
+        private final String headingPath;
+        private final int firstChunk;
+        private int lastChunk;
+        private final List<String> ids = new ArrayList<>();
+        private final StringBuilder text;
+        private double score;
+        private float[] vectorSum;
+        private Set<String> terms;
+
+        Passage(DocsMatch match, int chunkIndex) {
+            TextSegment segment = match.segment();
+            this.fileName = segment.metadata().getString("fileName");
+            this.headingPath = segment.metadata().getString(MarkdownChunker.HEADING_PATH);
+            this.firstChunk = chunkIndex;
+            this.lastChunk = chunkIndex;
+            this.text = new StringBuilder(match.text());
+            add(match);
+        }
+
+        void append(DocsMatch match, int chunkIndex) {
+            lastChunk = chunkIndex;
+            String next = match.text();
+            int overlap = overlap(text, next);
+            if (overlap > 0) {
+                text.append(next, overlap, next.length());
+            } else {
+                text.append("\n\n").append(next);
+            }
+            add(match);
+        }
+
+        private void add(DocsMatch match) {
+            ids.add(match.id());
+            score = Math.max(score, match.score());
+            Embedding embedding = match.embedding();
+            if (embedding != null) {
+                float[] vector = embedding.vector();
+                if (vectorSum == null) {
+                    vectorSum = new float[vector.length];
+                }
+                for (int i = 0; i < vector.length && i < vectorSum.length; i++) {
+                    vectorSum[i] += vector[i];
+                }
+            }
+        }
+
+        double similarity(Passage other) {
+            if (vectorSum != null && other.vectorSum != null && vectorSum.length == other.vectorSum.length) {
+                return cosine(vectorSum, other.vectorSum);
+            }
+            // A lexical-only hit has no stored vector - compare the words instead
+            Set<String> mine = terms();
+            Set<String> theirs = other.terms();
+            if (mine.isEmpty() || theirs.isEmpty()) {
+                return 0;
+            }
+            int shared = 0;
+            for (String term : mine) {
+                if (theirs.contains(term)) {
+                    shared++;
+                }
+            }
+            return (double) shared / (mine.size() + theirs.size() - shared);
+        }
+
+        private Set<String> terms() {
+            if (terms == null) {
+                terms = new HashSet<>(LexicalIndex.tokenize(text.toString()));
+            }
+            return terms;
+        }
+
+        DocsPassage toDocsPassage() {
+            return new DocsPassage(fileName, headingPath, firstChunk, lastChunk, List.copyOf(ids), text.toString(),
+                    score);
+        }
+    }
+
+    /**
+     * Groups the candidates by file and merges runs of consecutive chunks
+     */
+    private List<Passage> merge(List<DocsMatch> matches) {
+        Map<String, List<DocsMatch>> byFile = new HashMap<>();
+        List<Passage> passages = new ArrayList<>();
+        for (DocsMatch match : matches) {
+            String fileName = match.segment().metadata().getString("fileName");
+            if (fileName == null || chunkIndex(match) < 0) {
+                passages.add(new Passage(match, -1));
+            } else {
+                byFile.computeIfAbsent(fileName, name -> new ArrayList<>()).add(match);
+            }
+        }
+        for (List<DocsMatch> file : byFile.values()) {
+            file.sort(Comparator.comparingInt(DocsPostProcessor::chunkIndex));
+            Passage current = null;
+            for (DocsMatch match : file) {
+                int chunkIndex = chunkIndex(match);
+                if (current != null && chunkIndex == current.lastChunk) {
+                    // The same chunk indexed twice (e.g. mid re-sync) - keep one
+                    continue;
+                }
+                if (current != null && chunkIndex == current.lastChunk + 1) {
+                    current.append(match, chunkIndex);
+                    mergedChunks.incrementAndGet();
+                } else {
+                    current = new Passage(match, chunkIndex);
+                    passages.add(current);
+                }
+            }
+        }
+        return passages;
+    }
+
+    /**
+     * Maximal marginal relevance over the passages
+     */
+    private List<Passage> select(List<Passage> passages, int maxResults) {
+        List<Passage> remaining = new ArrayList<>(passages);
+        // Deterministic tie-breaking: score first, then file order
+        remaining.sort(Comparator.comparingDouble((Passage passage) -> passage.score).reversed()
+                .thenComparing(passage -> passage.fileName == null ? "" : passage.fileName)
+                .thenComparingInt(passage -> passage.firstChunk));
+        double topScore = remaining.isEmpty() ? 0 : remaining.get(0).score;
+        List<Passage> selected = new ArrayList<>();
+        while (selected.size() < maxResults && !remaining.isEmpty()) {
+            int best = 0;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < remaining.size(); i++) {
+                Passage candidate = remaining.get(i);
+                double relevance = topScore > 0 ? candidate.score / topScore : 0;
+                double redundancy = 0;
+                for (Passage picked : selected) {
+                    redundancy = Math.max(redundancy, candidate.similarity(picked));
+                }
+                double value = mmrLambda * relevance - (1 - mmrLambda) * redundancy;
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = i;
+                }
+            }
+            selected.add(remaining.remove(best));
+        }
+        return selected;
+    }
+
+    /**
+     * Keeps passages in order while they fit the budget; a first passage that
+     * is too big on its own is cut rather than dropped
+     */
+    private List<DocsPassage> fit(List<DocsPassage> passages) {
+        if (maxChars == 0) {
+            return passages;
+        }
+        List<DocsPassage> fitted = new ArrayList<>(passages.size());
+        int used = 0;
+        for (DocsPassage passage : passages) {
+            int length = passage.text().length();
+            if (used + length <= maxChars) {
+                fitted.add(passage);
+                used += length;
+            } else if (fitted.isEmpty()) {
+                fitted.add(new DocsPassage(passage.fileName(), passage.headingPath(), passage.firstChunk(),
+                        passage.lastChunk(), passage.ids(), truncate(passage.text(), maxChars), passage.score()));
+                used = maxChars;
+                overBudget.incrementAndGet();
+            } else {
+                overBudget.incrementAndGet();
+            }
+        }
+        return fitted;
+    }
+
+    static String truncate(String text, int maxChars) {
+        int limit = Math.max(0, maxChars - TRUNCATED.length());
+        int cut = text.lastIndexOf('\n', limit);
+        if (cut < limit / 2) {
+            cut = text.lastIndexOf(' ', limit);
+        }
+        if (cut < limit / 2) {
+            cut = limit;
+        }
+        return text.substring(0, cut).stripTrailing() + TRUNCATED;
+    }
+
+    /**
+     * Length of the longest suffix of {@code text} that starts {@code next} -
+     * the overlap the splitter repeated between two neighbouring chunks
+     */
+    static int overlap(CharSequence text, String next) {
+        int max = Math.min(MAX_OVERLAP_CHARS, Math.min(text.length(), next.length()));
+        for (int length = max; length >= MIN_OVERLAP_CHARS; length--) {
+            int start = text.length() - length;
+            if (text.charAt(start) != next.charAt(0)) {
+                continue;
+            }
+            int i = 1;
+            while (i < length && text.charAt(start + i) == next.charAt(i)) {
+                i++;
+            }
+            if (i == length) {
+                return length;
+            }
+        }
+        return 0;
+    }
+
+    private static int chunkIndex(DocsMatch match) {
+        String value = match.segment().metadata().getString("chunkIndex");
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA > 0 && normB > 0 ? dot / Math.sqrt(normA * normB) : 0;
+    }
+}
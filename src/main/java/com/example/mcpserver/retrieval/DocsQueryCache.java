@@ -0,0 +1,154 @@
+package com.example.mcpserver.retrieval;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 🎸 Epic docs query cache - the same question never hits ONNX twice! 🎸
+ * Two bounded LRU maps in front of marklogic_docs retrieval:
+ * <ul>
+ * <li>normalized query text to its embedding - the model is uncased, so case
+ * and runs of whitespace do not change the vector</li>
+ * <li>(query, maxResults, weights) to the fused matches, valid for one index
+ * version only - any chunk swap bumps the version and drops them all</li>
+ * </ul>
+ * Values are computed outside the lock, so a slow embedding never blocks other
+ * lookups; two threads missing on the same key at once both compute it.
+ */
+public class DocsQueryCache {
+
+    private final boolean enabled;
+    private final Map<String, float[]> embeddings;
+    private final Map<String, List<DocsMatch>> results;
+    private long resultsVersion = Long.MIN_VALUE;
+
+    private final AtomicLong embeddingHits = new AtomicLong();
+    private final AtomicLong embeddingMisses = new AtomicLong();
+    private final AtomicLong resultHits = new AtomicLong();
+    private final AtomicLong resultMisses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public DocsQueryCache(boolean enabled, int maxEmbeddings, int maxResults) {
+        this.enabled = enabled;
+        this.embeddings = lru(maxEmbeddings);
+        this.results = lru(maxResults);
+    }
+
+    /**
+     * Cached embedding of the text, computed with {@code embed} on a miss
+     */
+    public float[] embedding(String text, Function<String, float[]> embed) {
+        if (!enabled) {
+            return embed.apply(text);
+        }
+        String key = normalize(text).toLowerCase(Locale.ROOT);
+        float[] cached;
+        synchronized (embeddings) {
+            cached = embeddings.get(key);
+        }
+        if (cached != null) {
+            embeddingHits.incrementAndGet();
+            return cached.clone();
+        }
+        embeddingMisses.incrementAndGet();
+        float[] vector = embed.apply(text);
+        synchronized (embeddings) {
+            embeddings.put(key, vector.clone());
+        }
+        return vector;
+    }
+
+    /**
+     * Cached matches for this query against this index version, found with
+     * {@code search} on a miss
+     */
+    public List<DocsMatch> matches(String query, int maxResults, HybridRetriever.Weights weights, long indexVersion,
+            Supplier<List<DocsMatch>> search) {
+        if (!enabled) {
+            return search.get();
+        }
+        // Case stays in the key - "mlDeploy" is an identifier lookup, "mldeploy" is not
+        String key = maxResults + "|" + weights.vector() + "|" + weights.lexical() + "|" + normalize(query);
+        List<DocsMatch> cached;
+        synchronized (results) {
+            if (resultsVersion != indexVersion) {
+                if (!results.isEmpty()) {
+                    invalidations.incrementAndGet();
+                }
+                results.clear();
+                resultsVersion = indexVersion;
+            }
+            cached = results.get(key);
+        }
+        if (cached != null) {
+            resultHits.incrementAndGet();
+            return cached;
+        }
+        resultMisses.incrementAndGet();
+        List<DocsMatch> matches = List.copyOf(search.get());
+        synchronized (results) {
+            if (resultsVersion == indexVersion) {
+                results.put(key, matches);
+            }
+        }
+        return matches;
+    }
+
+    public void clear() {
+        synchronized (embeddings) {
+            embeddings.clear();
+        }
+        synchronized (results) {
+            results.clear();
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("embeddingHits", embeddingHits.get());
+        metrics.put("embeddingMisses", embeddingMisses.get());
+        metrics.put("embeddingHitRate", rate(embeddingHits.get(), embeddingMisses.get()));
+        metrics.put("resultHits", resultHits.get());
+        metrics.put("resultMisses", resultMisses.get());
+        metrics.put("resultHitRate", rate(resultHits.get(), resultMisses.get()));
+        metrics.put("invalidations", invalidations.get());
+        metrics.put("evictions", evictions.get());
+        synchronized (embeddings) {
+            metrics.put("embeddings", embeddings.size());
+        }
+        synchronized (results) {
+            metrics.put("results", results.size());
+        }
+        return metrics;
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.strip().replaceAll("\\s+", " ");
+    }
+
+    private static double rate(long hits, long misses) {
+        return hits + misses > 0 ? (double) hits / (hits + misses) : 0.0;
+    }
+
+    // Access-ordered, so the eldest entry is the least recently used
+    private <V> Map<String, V> lru(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                if (size() > maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+}
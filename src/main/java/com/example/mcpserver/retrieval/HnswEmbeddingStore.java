@@ -0,0 +1,721 @@
+package com.example.mcpserver.retrieval;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 🎸 Epic HNSW embedding store - approximate nearest neighbours at any scale! 🎸
+ * Hierarchical Navigable Small World graph (Malkov and Yashunin) behind the
+ * langchain4j {@link EmbeddingStore} interface, so it drops in where the
+ * exhaustive {@code InMemoryEmbeddingStore} was used. A query visits a few
+ * hundred nodes instead of scoring every stored embedding.
+ * <ul>
+ *   <li>{@code m} - links per node and layer (2m on the bottom layer): more links, better recall, more memory</li>
+ *   <li>{@code efConstruction} - candidate list size while inserting: slower builds, a better graph</li>
+ *   <li>{@code efSearch} - candidate list size while querying: the recall vs latency knob</li>
+ * </ul>
+ * Inserts are incremental. Removed entries are tombstoned - they keep routing
+ * queries through the graph but are never returned. Once tombstones make up
+ * a quarter of the nodes, the graph is rebuilt from the live entries. Vectors are normalized on
+ * insert, so scores match the cosine relevance of the exhaustive store. The
+ * links can be exported with {@link #graph()} and handed back to
+ * {@link #restore(List, List, List, Graph)}, so a persisted index is loaded
+ * without inserting every node again.
+ *
+ * @param <Embedded> the stored item type, usually {@link TextSegment}
+ */
+public class HnswEmbeddingStore<Embedded> implements EmbeddingStore<Embedded> {
+
+    // Share of tombstoned nodes that triggers a rebuild from the live entries
+    private static final double COMPACT_FRACTION = 0.25;
+
+    private final int m;
+    private final int efConstruction;
+    private volatile int efSearch;
+    private final double levelMultiplier;
+    private final Random random;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<float[]> vectors = new ArrayList<>();
+    private final List<int[][]> links = new ArrayList<>();
+    private final List<int[]> linkCounts = new ArrayList<>();
+    private final List<String> ids = new ArrayList<>();
+    private final List<Embedded> items = new ArrayList<>();
+    private final Map<String, Integer> nodesById = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private long compactions;
+
+    private record Candidate(int node, float similarity) {
+    }
+
+    /**
+     * The links of every node, in insertion order - {@code links[node][layer]}
+     * holds that node's neighbours on the layer
+     */
+    public record Graph(int m, int efConstruction, int entryPoint, int maxLevel, int[][][] links) {
+
+        public int size() {
+            return links.length;
+        }
+    }
+
+    // Epoch-stamped visited marks reused per thread, so a search allocates no bitmap
+    private static final class VisitedSet {
+        private int[] marks = new int[0];
+        private int epoch;
+
+        void reset(int size) {
+            if (marks.length < size) {
+                marks = new int[Math.max(size, marks.length * 2)];
+                epoch = 0;
+            }
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+        }
+
+        boolean visit(int node) {
+            if (marks[node] == epoch) {
+                return false;
+            }
+            marks[node] = epoch;
+            return true;
+        }
+    }
+
+    private final ThreadLocal<VisitedSet> visitedSets = ThreadLocal.withInitial(VisitedSet::new);
+
+    private static final Comparator<Candidate> CLOSEST_FIRST =
+            Comparator.comparingDouble((Candidate candidate) -> candidate.similarity()).reversed();
+    private static final Comparator<Candidate> FURTHEST_FIRST =
+            Comparator.comparingDouble(Candidate::similarity);
+
+    public HnswEmbeddingStore(int m, int efConstruction, int efSearch) {
+        this(m, efConstruction, efSearch, 42L);
+    }
+
+    public HnswEmbeddingStore(int m, int efConstruction, int efSearch, long seed) {
+        if (m < 2 || efConstruction < 1 || efSearch < 1) {
+            throw new IllegalArgumentException("HNSW needs m >= 2, efConstruction >= 1 and efSearch >= 1");
+        }
+        this.m = m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        insert(id, embedding, null);
+    }
+
+    @Override
+    public String add(Embedding embedding, Embedded embedded) {
+        String id = UUID.randomUUID().toString();
+        insert(id, embedding, embedded);
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> added = new ArrayList<>(embeddings.size());
+        for (Embedding embedding : embeddings) {
+            added.add(add(embedding));
+        }
+        return added;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<Embedded> embedded) {
+        if (ids.size() != embeddings.size() || (embedded != null && embedded.size() != embeddings.size())) {
+            throw new IllegalArgumentException("ids, embeddings and embedded must have the same size");
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            insert(ids.get(i), embeddings.get(i), embedded != null ? embedded.get(i) : null);
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<String> idsToRemove) {
+        lock.writeLock().lock();
+        try {
+            for (String id : idsToRemove) {
+                Integer node = nodesById.remove(id);
+                if (node != null) {
+                    tombstone(node);
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        lock.writeLock().lock();
+        try {
+            for (int node = 0; node < items.size(); node++) {
+                if (!deleted.get(node) && filter.test(filterTarget(items.get(node)))) {
+                    nodesById.remove(ids.get(node));
+                    tombstone(node);
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            vectors.clear();
+            links.clear();
+            linkCounts.clear();
+            ids.clear();
+            items.clear();
+            nodesById.clear();
+            deleted.clear();
+            entryPoint = -1;
+            maxLevel = -1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 🔍 Approximate top-k by cosine relevance. A metadata filter falls back to
+     * an exact scan, since filtering the graph walk could starve the results.
+     */
+    @Override
+    public EmbeddingSearchResult<Embedded> search(EmbeddingSearchRequest request) {
+        float[] query = normalize(request.queryEmbedding().vector());
+        lock.readLock().lock();
+        try {
+            List<Candidate> candidates = request.filter() != null
+                    ? exactCandidates(query, Integer.MAX_VALUE)
+                    : approximateCandidates(query, request.maxResults(), efSearch);
+            List<EmbeddingMatch<Embedded>> matches = new ArrayList<>();
+            for (Candidate candidate : candidates) {
+                if (matches.size() >= request.maxResults()) {
+                    break;
+                }
+                double score = RelevanceScore.fromCosineSimilarity(candidate.similarity());
+                if (score < request.minScore()) {
+                    break;
+                }
+                Embedded item = items.get(candidate.node());
+                if (request.filter() != null && !request.filter().test(filterTarget(item))) {
+                    continue;
+                }
+                matches.add(new EmbeddingMatch<>(score, ids.get(candidate.node()),
+                        Embedding.from(vectors.get(candidate.node())), item));
+            }
+            return new EmbeddingSearchResult<>(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 🕸️ Snapshot of the links, or null once entries were removed - node
+     * numbers then no longer line up with the live entries
+     */
+    public Graph graph() {
+        lock.readLock().lock();
+        try {
+            if (!deleted.isEmpty()) {
+                return null;
+            }
+            int[][][] snapshot = new int[links.size()][][];
+            for (int node = 0; node < links.size(); node++) {
+                int[][] nodeLinks = links.get(node);
+                int[] counts = linkCounts.get(node);
+                snapshot[node] = new int[nodeLinks.length][];
+                for (int layer = 0; layer < nodeLinks.length; layer++) {
+                    snapshot[node][layer] = Arrays.copyOf(nodeLinks[layer], counts[layer]);
+                }
+            }
+            return new Graph(m, efConstruction, entryPoint, maxLevel, snapshot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 🚀 Fill an empty store from a graph built with the same m and
+     * efConstruction - node i is entry i. Returns false, leaving the store
+     * untouched, when the graph does not fit; add the entries instead.
+     */
+    public boolean restore(List<String> entryIds, List<Embedding> embeddings, List<Embedded> embedded, Graph graph) {
+        if (graph == null || graph.m() != m || graph.efConstruction() != efConstruction
+                || graph.size() != entryIds.size() || entryIds.size() != embeddings.size()
+                || (embedded != null && embedded.size() != entryIds.size())) {
+            return false;
+        }
+        if (graph.size() > 0 && (graph.entryPoint() < 0 || graph.entryPoint() >= graph.size()
+                || graph.links()[graph.entryPoint()].length != graph.maxLevel() + 1)) {
+            return false;
+        }
+        for (int[][] nodeLinks : graph.links()) {
+            for (int layer = 0; layer < nodeLinks.length; layer++) {
+                if (nodeLinks[layer].length > maxLinks(layer)) {
+                    return false;
+                }
+                for (int neighbour : nodeLinks[layer]) {
+                    if (neighbour < 0 || neighbour >= graph.size() || graph.links()[neighbour].length <= layer) {
+                        return false;
+                    }
+                }
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            if (!vectors.isEmpty()) {
+                return false;
+            }
+            for (int node = 0; node < entryIds.size(); node++) {
+                int[][] stored = graph.links()[node];
+                int[][] nodeLinks = new int[stored.length][];
+                int[] counts = new int[stored.length];
+                for (int layer = 0; layer < stored.length; layer++) {
+                    nodeLinks[layer] = Arrays.copyOf(stored[layer], maxLinks(layer));
+                    counts[layer] = stored[layer].length;
+                }
+                vectors.add(normalize(embeddings.get(node).vector()));
+                links.add(nodeLinks);
+                linkCounts.add(counts);
+                ids.add(entryIds.get(node));
+                items.add(embedded != null ? embedded.get(node) : null);
+                nodesById.put(entryIds.get(node), node);
+            }
+            entryPoint = graph.entryPoint();
+            maxLevel = graph.maxLevel();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodesById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getEfSearch() {
+        return efSearch;
+    }
+
+    /**
+     * Tune recall vs latency at runtime - takes effect on the next query
+     */
+    public void setEfSearch(int efSearch) {
+        this.efSearch = Math.max(1, efSearch);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            metrics.put("type", "hnsw");
+            metrics.put("size", nodesById.size());
+            metrics.put("tombstones", deleted.cardinality());
+            metrics.put("compactions", compactions);
+            metrics.put("layers", maxLevel + 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+        metrics.put("m", m);
+        metrics.put("efConstruction", efConstruction);
+        metrics.put("efSearch", efSearch);
+        return metrics;
+    }
+
+    /**
+     * 📊 Recall vs latency against an exact scan. Stored vectors with a little
+     * noise serve as queries; for each ef the report gives recall@k and the mean
+     * and p99 query latency, next to the latency of scoring every vector.
+     */
+    public List<Map<String, Object>> recallReport(int queries, int k, int... efValues) {
+        lock.readLock().lock();
+        try {
+            if (vectors.isEmpty() || queries < 1) {
+                return List.of();
+            }
+            Random sampler = new Random(7);
+            List<float[]> sample = new ArrayList<>(queries);
+            List<List<Candidate>> truth = new ArrayList<>(queries);
+            long[] exactNanos = new long[queries];
+            for (int i = 0; i < queries; i++) {
+                float[] base = vectors.get(sampler.nextInt(vectors.size()));
+                float[] query = new float[base.length];
+                for (int d = 0; d < base.length; d++) {
+                    query[d] = base[d] + (float) (sampler.nextGaussian() * 0.05 / Math.sqrt(base.length));
+                }
+                query = normalize(query);
+                sample.add(query);
+                long start = System.nanoTime();
+                truth.add(exactCandidates(query, k));
+                exactNanos[i] = System.nanoTime() - start;
+            }
+
+            List<Map<String, Object>> rows = new ArrayList<>();
+            rows.add(latencyRow("exact", -1, 1.0, exactNanos));
+            for (int ef : efValues) {
+                long[] nanos = new long[queries];
+                double recall = 0;
+                for (int i = 0; i < queries; i++) {
+                    long start = System.nanoTime();
+                    List<Candidate> found = approximateCandidates(sample.get(i), k, ef);
+                    nanos[i] = System.nanoTime() - start;
+                    BitSet expected = new BitSet();
+                    truth.get(i).forEach(candidate -> expected.set(candidate.node()));
+                    long hits = found.stream().limit(k).filter(candidate -> expected.get(candidate.node())).count();
+                    recall += truth.get(i).isEmpty() ? 1.0 : (double) hits / truth.get(i).size();
+                }
+                rows.add(latencyRow("hnsw", ef, recall / queries, nanos));
+            }
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Map<String, Object> latencyRow(String method, int ef, double recall, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("method", method);
+        if (ef > 0) {
+            row.put("efSearch", ef);
+        }
+        row.put("recall", Math.round(recall * 1000) / 1000.0);
+        row.put("meanMicros", Arrays.stream(sorted).sum() / sorted.length / 1000);
+        row.put("p99Micros", sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * 0.99) - 1)] / 1000);
+        return row;
+    }
+
+    private void insert(String id, Embedding embedding, Embedded embedded) {
+        float[] vector = normalize(embedding.vector());
+        lock.writeLock().lock();
+        try {
+            Integer existing = nodesById.remove(id);
+            if (existing != null) {
+                tombstone(existing);
+            }
+            insertNode(id, vector, embedded);
+            if (existing != null) {
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Links a normalized vector into the graph - the write lock must be held
+     */
+    private void insertNode(String id, float[] vector, Embedded embedded) {
+        int node = vectors.size();
+        int level = randomLevel();
+        int[][] nodeLinks = new int[level + 1][];
+        for (int layer = 0; layer <= level; layer++) {
+            nodeLinks[layer] = new int[maxLinks(layer)];
+        }
+        vectors.add(vector);
+        links.add(nodeLinks);
+        linkCounts.add(new int[level + 1]);
+        ids.add(id);
+        items.add(embedded);
+        nodesById.put(id, node);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int layer = maxLevel; layer > level; layer--) {
+            current = greedyClosest(vector, current, layer);
+        }
+        for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+            List<Candidate> found = searchLayer(vector, current, efConstruction, layer);
+            for (Candidate neighbour : selectNeighbours(found, m)) {
+                connect(node, neighbour.node(), layer);
+                connect(neighbour.node(), node, layer);
+            }
+            current = found.get(0).node();
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * 🧹 Rebuild the graph from the live entries once tombstones make up
+     * {@link #COMPACT_FRACTION} of it. Tombstones are never unlinked, so
+     * without this a store that keeps re-indexing files grows without bound
+     * and every query walks a wider beam. The write lock must be held.
+     */
+    private void compactIfNeeded() {
+        if (deleted.cardinality() <= vectors.size() * COMPACT_FRACTION) {
+            return;
+        }
+        List<String> liveIds = new ArrayList<>(nodesById.size());
+        List<float[]> liveVectors = new ArrayList<>(nodesById.size());
+        List<Embedded> liveItems = new ArrayList<>(nodesById.size());
+        for (int node = 0; node < vectors.size(); node++) {
+            if (!deleted.get(node)) {
+                liveIds.add(ids.get(node));
+                liveVectors.add(vectors.get(node));
+                liveItems.add(items.get(node));
+            }
+        }
+        vectors.clear();
+        links.clear();
+        linkCounts.clear();
+        ids.clear();
+        items.clear();
+        nodesById.clear();
+        deleted.clear();
+        entryPoint = -1;
+        maxLevel = -1;
+        for (int i = 0; i < liveIds.size(); i++) {
+            insertNode(liveIds.get(i), liveVectors.get(i), liveItems.get(i));
+        }
+        compactions++;
+    }
+
+    private void tombstone(int node) {
+        deleted.set(node);
+        items.set(node, null);
+    }
+
+    private List<Candidate> approximateCandidates(float[] query, int k, int ef) {
+        if (entryPoint < 0) {
+            return List.of();
+        }
+        int current = entryPoint;
+        for (int layer = maxLevel; layer > 0; layer--) {
+            current = greedyClosest(query, current, layer);
+        }
+        // Tombstones still route the walk but take result slots, so widen the beam
+        List<Candidate> found = searchLayer(query, current, Math.max(ef, k) + Math.min(deleted.cardinality(), ef), 0);
+        List<Candidate> live = new ArrayList<>(Math.min(found.size(), k));
+        for (Candidate candidate : found) {
+            if (!deleted.get(candidate.node())) {
+                live.add(candidate);
+            }
+        }
+        return live;
+    }
+
+    private List<Candidate> exactCandidates(float[] query, int k) {
+        PriorityQueue<Candidate> best = new PriorityQueue<>(FURTHEST_FIRST);
+        for (int node = 0; node < vectors.size(); node++) {
+            if (deleted.get(node)) {
+                continue;
+            }
+            float similarity = dot(query, vectors.get(node));
+            if (best.size() < k) {
+                best.add(new Candidate(node, similarity));
+            } else if (similarity > best.peek().similarity()) {
+                best.poll();
+                best.add(new Candidate(node, similarity));
+            }
+        }
+        List<Candidate> sorted = new ArrayList<>(best);
+        sorted.sort(CLOSEST_FIRST);
+        return sorted;
+    }
+
+    private int greedyClosest(float[] query, int start, int layer) {
+        int current = start;
+        float currentSimilarity = dot(query, vectors.get(current));
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links.get(current)[layer];
+            int count = linkCounts.get(current)[layer];
+            for (int i = 0; i < count; i++) {
+                float similarity = dot(query, vectors.get(neighbours[i]));
+                if (similarity > currentSimilarity) {
+                    currentSimilarity = similarity;
+                    current = neighbours[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Beam search on one layer - the ef closest nodes found, closest first
+     */
+    private List<Candidate> searchLayer(float[] query, int entry, int ef, int layer) {
+        VisitedSet visited = visitedSets.get();
+        visited.reset(vectors.size());
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(CLOSEST_FIRST);
+        PriorityQueue<Candidate> results = new PriorityQueue<>(FURTHEST_FIRST);
+        Candidate start = new Candidate(entry, dot(query, vectors.get(entry)));
+        visited.visit(entry);
+        candidates.add(start);
+        results.add(start);
+
+        while (!candidates.isEmpty()) {
+            Candidate closest = candidates.poll();
+            if (results.size() >= ef && closest.similarity() < results.peek().similarity()) {
+                break;
+            }
+            int[] neighbours = links.get(closest.node())[layer];
+            int count = linkCounts.get(closest.node())[layer];
+            for (int i = 0; i < count; i++) {
+                int neighbour = neighbours[i];
+                if (!visited.visit(neighbour)) {
+                    continue;
+                }
+                float similarity = dot(query, vectors.get(neighbour));
+                if (results.size() < ef || similarity > results.peek().similarity()) {
+                    Candidate candidate = new Candidate(neighbour, similarity);
+                    candidates.add(candidate);
+                    results.add(candidate);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(CLOSEST_FIRST);
+        return sorted;
+    }
+
+    /**
+     * Neighbour selection heuristic - skip a candidate that is closer to an
+     * already selected neighbour than to the new node, which keeps links spread
+     * across clusters; top up with the closest skipped ones
+     */
+    private List<Candidate> selectNeighbours(List<Candidate> closestFirst, int limit) {
+        List<Candidate> selected = new ArrayList<>(limit);
+        List<Candidate> skipped = new ArrayList<>();
+        for (Candidate candidate : closestFirst) {
+            if (selected.size() >= limit) {
+                break;
+            }
+            boolean diverse = true;
+            for (Candidate chosen : selected) {
+                if (dot(vectors.get(candidate.node()), vectors.get(chosen.node())) > candidate.similarity()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+            } else {
+                skipped.add(candidate);
+            }
+        }
+        for (int i = 0; i < skipped.size() && selected.size() < limit; i++) {
+            selected.add(skipped.get(i));
+        }
+        return selected;
+    }
+
+    private void connect(int from, int to, int layer) {
+        int[] neighbours = links.get(from)[layer];
+        int[] counts = linkCounts.get(from);
+        if (counts[layer] < neighbours.length) {
+            neighbours[counts[layer]++] = to;
+            return;
+        }
+        // Full - keep the best spread of the existing links plus the new one
+        float[] base = vectors.get(from);
+        List<Candidate> pool = new ArrayList<>(neighbours.length + 1);
+        for (int neighbour : neighbours) {
+            pool.add(new Candidate(neighbour, dot(base, vectors.get(neighbour))));
+        }
+        pool.add(new Candidate(to, dot(base, vectors.get(to))));
+        pool.sort(CLOSEST_FIRST);
+        List<Candidate> kept = selectNeighbours(pool, neighbours.length);
+        for (int i = 0; i < kept.size(); i++) {
+            neighbours[i] = kept.get(i).node();
+        }
+        counts[layer] = kept.size();
+    }
+
+    private int maxLinks(int layer) {
+        return layer == 0 ? 2 * m : m;
+    }
+
+    private int randomLevel() {
+        return (int) Math.floor(-Math.log(1 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private static Object filterTarget(Object item) {
+        return item instanceof TextSegment segment ? segment.metadata() : item;
+    }
+
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        if (norm == 0) {
+            return vector.clone();
+        }
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    // Both vectors are normalized, so the dot product is the cosine similarity
+    static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
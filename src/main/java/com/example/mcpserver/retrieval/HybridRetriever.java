@@ -0,0 +1,251 @@
+package com.example.mcpserver.retrieval;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * 🎸 Epic hybrid retrieval - BM25 and vectors in harmony! 🎸
+ * Every docs chunk lives in the vector store and in a {@link LexicalIndex}
+ * under the same id. A query runs both searches in parallel and fuses the
+ * two rankings with {@link ReciprocalRankFusion}, weighted per request. A query
+ * that is just a pasted identifier ("mlDeploy", "--collections") found
+ * verbatim by the lexical index is answered from it alone - no embedding.
+ * <p>
+ * Chunks are swapped in and out under a write lock that searches share, so a
+ * query sees either all of a file's old chunks or all of its new ones.
+ */
+public class HybridRetriever {
+
+    private final EmbeddingStore<TextSegment> store;
+    private final LexicalIndex<TextSegment> lexicalIndex;
+    private final Executor executor;
+    private final int rrfK;
+    private final int candidateDepth;
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final AtomicLong version = new AtomicLong();
+
+    private final AtomicLong hybridQueries = new AtomicLong();
+    private final AtomicLong vectorOnlyQueries = new AtomicLong();
+    private final AtomicLong lexicalOnlyQueries = new AtomicLong();
+    private final AtomicLong identifierShortcuts = new AtomicLong();
+
+    /**
+     * Relative weight of each ranking in the fusion - 0 switches a retriever off
+     */
+    public record Weights(double vector, double lexical) {
+    }
+
+    /**
+     * @param lexicalIndex   null for vector-only retrieval
+     * @param candidateDepth how many candidates each retriever contributes per
+     *                       requested result
+     */
+    public HybridRetriever(EmbeddingStore<TextSegment> store, LexicalIndex<TextSegment> lexicalIndex,
+            Executor executor, int rrfK, int candidateDepth) {
+        this.store = store;
+        this.lexicalIndex = lexicalIndex;
+        this.executor = executor;
+        this.rrfK = rrfK;
+        this.candidateDepth = Math.max(1, candidateDepth);
+    }
+
+    public void add(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+        replace(List.of(), ids, embeddings, segments);
+    }
+
+    /**
+     * 🚀 Add a persisted index - an HNSW store takes the saved graph as is
+     * instead of inserting every chunk again
+     */
+    public void add(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments,
+            HnswEmbeddingStore.Graph graph) {
+        if (graph == null || !(store instanceof HnswEmbeddingStore<TextSegment> hnsw)) {
+            add(ids, embeddings, segments);
+            return;
+        }
+        swapLock.writeLock().lock();
+        try {
+            if (!hnsw.restore(ids, embeddings, segments, graph)) {
+                store.addAll(ids, embeddings, segments);
+            }
+            if (lexicalIndex != null) {
+                for (int i = 0; i < ids.size(); i++) {
+                    lexicalIndex.add(ids.get(i), segments.get(i));
+                }
+            }
+            version.incrementAndGet();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Collection<String> ids) {
+        replace(ids, List.of(), List.of(), List.of());
+    }
+
+    /**
+     * 🔄 Atomically drop the old chunks and add the new ones. Embed before
+     * calling - the write lock only covers the index updates.
+     */
+    public void replace(Collection<String> oldIds, List<String> ids, List<Embedding> embeddings,
+            List<TextSegment> segments) {
+        swapLock.writeLock().lock();
+        try {
+            if (!oldIds.isEmpty()) {
+                store.removeAll(oldIds);
+                if (lexicalIndex != null) {
+                    oldIds.forEach(lexicalIndex::remove);
+                }
+            }
+            if (!ids.isEmpty()) {
+                store.addAll(ids, embeddings, segments);
+                if (lexicalIndex != null) {
+                    for (int i = 0; i < ids.size(); i++) {
+                        lexicalIndex.add(ids.get(i), segments.get(i));
+                    }
+                }
+            }
+            version.incrementAndGet();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Bumped by every chunk swap - results cached under an older version are stale
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * 🔍 Fused top results. The query embedding is only computed when the
+     * vector ranking is actually needed.
+     */
+    public List<DocsMatch> search(String query, Supplier<Embedding> queryEmbedding, int maxResults, Weights weights) {
+        swapLock.readLock().lock();
+        try {
+            return searchLocked(query, queryEmbedding, maxResults, weights);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private List<DocsMatch> searchLocked(String query, Supplier<Embedding> queryEmbedding, int maxResults,
+            Weights weights) {
+        int depth = Math.max(maxResults * candidateDepth, maxResults);
+        boolean useLexical = lexicalIndex != null && weights.lexical() > 0;
+        boolean useVector = weights.vector() > 0 || !useLexical;
+
+        if (useLexical && LexicalIndex.isIdentifier(query)) {
+            List<LexicalIndex.Hit<TextSegment>> hits = lexicalIndex.search(query, depth);
+            String needle = query.strip().toLowerCase(Locale.ROOT);
+            if (!hits.isEmpty() && hits.get(0).item().text().toLowerCase(Locale.ROOT).contains(needle)) {
+                identifierShortcuts.incrementAndGet();
+                return fuse(List.of(), hits, maxResults, new Weights(0, 1));
+            }
+        }
+
+        CompletableFuture<List<LexicalIndex.Hit<TextSegment>>> lexical = useLexical
+                ? CompletableFuture.supplyAsync(() -> lexicalIndex.search(query, depth), executor)
+                : CompletableFuture.completedFuture(List.of());
+
+        List<EmbeddingMatch<TextSegment>> vector = List.of();
+        if (useVector) {
+            EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                    .queryEmbedding(queryEmbedding.get())
+                    .maxResults(useLexical ? depth : maxResults)
+                    .build();
+            vector = store.search(request).matches();
+        }
+
+        List<LexicalIndex.Hit<TextSegment>> lexicalHits;
+        try {
+            lexicalHits = lexical.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+        }
+
+        if (useVector && useLexical) {
+            hybridQueries.incrementAndGet();
+        } else if (useVector) {
+            vectorOnlyQueries.incrementAndGet();
+        } else {
+            lexicalOnlyQueries.incrementAndGet();
+        }
+        return fuse(vector, lexicalHits, maxResults,
+                new Weights(useVector ? weights.vector() : 0, useLexical ? weights.lexical() : 0));
+    }
+
+    private List<DocsMatch> fuse(List<EmbeddingMatch<TextSegment>> vector, List<LexicalIndex.Hit<TextSegment>> lexical,
+            int maxResults, Weights weights) {
+        Map<String, EmbeddingMatch<TextSegment>> vectorById = new HashMap<>();
+        List<String> vectorRanking = new ArrayList<>(vector.size());
+        for (EmbeddingMatch<TextSegment> match : vector) {
+            vectorById.put(match.embeddingId(), match);
+            vectorRanking.add(match.embeddingId());
+        }
+        Map<String, LexicalIndex.Hit<TextSegment>> lexicalById = new HashMap<>();
+        List<String> lexicalRanking = new ArrayList<>(lexical.size());
+        for (LexicalIndex.Hit<TextSegment> hit : lexical) {
+            lexicalById.put(hit.id(), hit);
+            lexicalRanking.add(hit.id());
+        }
+
+        // Vector-only retrieval keeps the store's order (and its scores)
+        double vectorWeight = weights.vector() > 0 || weights.lexical() > 0 ? weights.vector() : 1;
+        List<ReciprocalRankFusion.Fused> fused = ReciprocalRankFusion.fuse(List.of(vectorRanking, lexicalRanking),
+                new double[] { vectorWeight, weights.lexical() }, rrfK);
+
+        List<DocsMatch> matches = new ArrayList<>(Math.min(maxResults, fused.size()));
+        for (ReciprocalRankFusion.Fused result : fused) {
+            if (matches.size() >= maxResults) {
+                break;
+            }
+            EmbeddingMatch<TextSegment> vectorMatch = vectorById.get(result.id());
+            LexicalIndex.Hit<TextSegment> lexicalHit = lexicalById.get(result.id());
+            TextSegment segment = vectorMatch != null ? vectorMatch.embedded() : lexicalHit.item();
+            matches.add(new DocsMatch(result.id(), segment, result.score(),
+                    vectorMatch != null ? vectorMatch.score() : 0,
+                    lexicalHit != null ? lexicalHit.score() : 0,
+                    vectorMatch != null ? vectorMatch.embedding() : null));
+        }
+        return matches;
+    }
+
+    public EmbeddingStore<TextSegment> getStore() {
+        return store;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("lexical", lexicalIndex != null);
+        if (lexicalIndex != null) {
+            metrics.put("lexicalChunks", lexicalIndex.size());
+            metrics.put("lexicalTerms", lexicalIndex.terms());
+        }
+        metrics.put("rrfK", rrfK);
+        metrics.put("version", version.get());
+        metrics.put("hybridQueries", hybridQueries.get());
+        metrics.put("vectorOnlyQueries", vectorOnlyQueries.get());
+        metrics.put("lexicalOnlyQueries", lexicalOnlyQueries.get());
+        metrics.put("identifierShortcuts", identifierShortcuts.get());
+        return metrics;
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.mcpserver.retrieval;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 🎸 Epic inverted BM25 index - exact identifiers, found instantly! 🎸
+ * Postings lists per term, so a query only touches documents that share one
+ * of its terms. Documents can be added and removed by id at any time; the docs
+ * index, the optic examples and the structured query examples all rank with it.
+ * <p>
+ * Text goes through {@link #tokenize(String)}, so "mlDeploy" also matches
+ * "ml deploy" and "joinInner" a prompt asking for an "inner join". Identifiers written the way users paste them - camelCase
+ * task and property names, {@code --flags}, dotted properties - are indexed a
+ * second time as a single exact term, which is what makes a pasted
+ * {@code mlDeploy} or {@code --collections} rank the defining chunk first.
+ *
+ * @param <T> the indexed item type
+ */
+public class LexicalIndex<T> {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "how", "i", "in", "is", "it",
+            "me", "my", "of", "on", "or", "that", "the", "to", "use", "using", "want", "when", "with");
+
+    private static final Pattern IDENTIFIER = Pattern.compile(
+            "(?<![A-Za-z0-9.-])(?:--?[A-Za-z][A-Za-z0-9-]*|[A-Za-z][A-Za-z0-9]*[a-z][A-Z][A-Za-z0-9]*|[A-Za-z][A-Za-z0-9]*(?:\\.[A-Za-z][A-Za-z0-9]*)+)");
+
+    private final Function<T, String> text;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Map<Integer, Integer>> postings = new HashMap<>();
+    private final Map<Integer, Document<T>> documents = new HashMap<>();
+    private final Map<String, Integer> documentsById = new HashMap<>();
+    private int nextDocument;
+    private long totalLength;
+
+    private record Document<T>(String id, T item, int length, Map<String, Integer> termFrequencies) {
+    }
+
+    /**
+     * A search hit with its BM25 score
+     */
+    public record Hit<T>(String id, T item, double score) {
+    }
+
+    public LexicalIndex(Function<T, String> text) {
+        this.text = text;
+    }
+
+    /**
+     * An index over a fixed list, each item under its position as id
+     */
+    public static <T> LexicalIndex<T> of(List<T> items, Function<T, String> text) {
+        LexicalIndex<T> index = new LexicalIndex<>(text);
+        for (int i = 0; i < items.size(); i++) {
+            index.add(String.valueOf(i), items.get(i));
+        }
+        return index;
+    }
+
+    /**
+     * Index an item under an id, replacing whatever the id held before
+     */
+    public void add(String id, T item) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        List<String> terms = terms(text.apply(item));
+        for (String term : terms) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            int document = nextDocument++;
+            documents.put(document, new Document<>(id, item, terms.size(), frequencies));
+            documentsById.put(id, document);
+            totalLength += terms.size();
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, key -> new HashMap<>()).put(document, frequency));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            documentsById.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 🔍 Top items for the query, best first - ties in the order they were
+     * added. Only documents sharing a query term are scored.
+     */
+    public List<Hit<T>> search(String query, int maxResults) {
+        List<String> queryTerms = terms(query).stream().distinct().toList();
+        lock.readLock().lock();
+        try {
+            if (documents.isEmpty() || queryTerms.isEmpty()) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / documents.size();
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String term : queryTerms) {
+                Map<Integer, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documents.size() - posting.size() + 0.5) / (posting.size() + 0.5));
+                posting.forEach((document, frequency) -> {
+                    double normalizedLength = averageLength > 0 ? documents.get(document).length() / averageLength : 1;
+                    double score = idf * (frequency * (K1 + 1)) / (frequency + K1 * (1 - B + B * normalizedLength));
+                    scores.merge(document, score, Double::sum);
+                });
+            }
+
+            // Best first: higher score, then earlier document
+            Comparator<Map.Entry<Integer, Double>> rank = Comparator
+                    .comparingDouble((Map.Entry<Integer, Double> entry) -> entry.getValue()).reversed()
+                    .thenComparing(Map.Entry::getKey);
+            PriorityQueue<Map.Entry<Integer, Double>> best = new PriorityQueue<>(rank.reversed());
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                best.add(entry);
+                if (best.size() > maxResults) {
+                    best.poll();
+                }
+            }
+            List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(best);
+            ranked.sort(rank);
+            List<Hit<T>> hits = new ArrayList<>(ranked.size());
+            for (Map.Entry<Integer, Double> entry : ranked) {
+                Document<T> document = documents.get(entry.getKey());
+                hits.add(new Hit<>(document.id(), document.item(), entry.getValue()));
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int terms() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * True for a query that is nothing but a pasted identifier, e.g. "mlDeploy"
+     * or "--collections" - those are answered best by exact terms
+     */
+    public static boolean isIdentifier(String query) {
+        return query != null && IDENTIFIER.matcher(query.strip()).matches();
+    }
+
+    /**
+     * The exact term an identifier is indexed under
+     */
+    public static String identifierTerm(String identifier) {
+        return "=" + identifier.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Lower-cased terms, splitting camelCase identifiers and dropping stop words
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        String spaced = text.replaceAll("([a-z0-9])([A-Z])", "$1 $2");
+        for (String token : spaced.toLowerCase(Locale.ROOT).split("[^a-z0-9]+")) {
+            if (token.length() > 1 && !STOP_WORDS.contains(token)) {
+                terms.add(stem(token));
+            }
+        }
+        return terms;
+    }
+
+    // Minimal plural folding so "joins" matches "join" and "queries" matches "query"
+    private static String stem(String token) {
+        if (token.length() > 4 && token.endsWith("ies")) {
+            return token.substring(0, token.length() - 3) + "y";
+        }
+        if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+
+    static List<String> terms(String text) {
+        List<String> terms = tokenize(text);
+        if (text != null) {
+            Matcher matcher = IDENTIFIER.matcher(text);
+            while (matcher.find()) {
+                terms.add(identifierTerm(matcher.group()));
+            }
+        }
+        return terms;
+    }
+
+    private void removeLocked(String id) {
+        Integer document = documentsById.remove(id);
+        if (document == null) {
+            return;
+        }
+        Document<T> removed = documents.remove(document);
+        totalLength -= removed.length();
+        removed.termFrequencies().keySet().forEach(term -> {
+            Map<Integer, Integer> posting = postings.get(term);
+            posting.remove(document);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+            }
+        });
+    }
+}
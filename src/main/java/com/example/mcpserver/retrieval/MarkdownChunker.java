@@ -0,0 +1,252 @@
+package com.example.mcpserver.retrieval;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.TokenCountEstimator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 🎸 Epic Markdown chunker - every section gets its own verse! 🎸
+ * Streams Markdown line by line and cuts chunks at heading boundaries, so a
+ * chunk never starts mid-section. A section longer than the token budget is
+ * cut between paragraphs, and a fenced code block is never cut - a fence
+ * bigger than the budget becomes a chunk of its own. Every chunk carries the
+ * path of headings above it (front matter title first) as
+ * {@value #HEADING_PATH} metadata, e.g. "Flux API > Adding Flux as a dependency".
+ * <p>
+ * Only the current section is held in memory. A section smaller than the
+ * minimum (a heading over a two-line list, say) is merged with the sections
+ * that follow it and the chunk gets their common heading path; a heading with
+ * no body at all is always carried forward. Kramdown attribute lines such as
+ * <code>{:toc}</code> and the "- TOC" placeholder before them are dropped.
+ */
+public class MarkdownChunker implements DocumentSplitter {
+
+    public static final String HEADING_PATH = "headingPath";
+
+    private static final String PATH_SEPARATOR = " > ";
+    private static final Pattern HEADING = Pattern.compile("^ {0,3}(#{1,6})\\s+(.*?)(?:\\s+#+)?\\s*$");
+    private static final Pattern FENCE = Pattern.compile("^ {0,3}(`{3,}|~{3,})");
+    private static final Pattern ATTRIBUTE_LIST = Pattern.compile("^\\s*\\{:.*}\\s*$");
+    private static final Pattern TITLE = Pattern.compile("^title:\\s*[\"']?(.*?)[\"']?\\s*$");
+
+    private final int maxTokens;
+    private final int minTokens;
+    private final TokenCountEstimator tokenCountEstimator;
+
+    /**
+     * @param maxTokens           chunk budget, counted with the estimator
+     * @param minTokens           sections below this are merged with the next
+     *                            one (0 = one chunk per section)
+     * @param tokenCountEstimator the embedding model's tokenizer, or null to
+     *                            count with {@link TokenEstimator}
+     */
+    public MarkdownChunker(int maxTokens, int minTokens, TokenCountEstimator tokenCountEstimator) {
+        this.maxTokens = Math.max(1, maxTokens);
+        this.minTokens = Math.max(0, Math.min(minTokens, this.maxTokens));
+        this.tokenCountEstimator = tokenCountEstimator;
+    }
+
+    @Override
+    public List<TextSegment> split(Document document) {
+        List<TextSegment> segments = new ArrayList<>();
+        try {
+            chunk(new StringReader(document.text()), document.metadata(), segments::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return segments;
+    }
+
+    /**
+     * 🔪 Chunk Markdown from a reader, handing each chunk to the sink as soon
+     * as its section is complete. Chunks get a copy of the given metadata.
+     */
+    public void chunk(Reader reader, Metadata metadata, Consumer<TextSegment> sink) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        new Chunking(metadata, sink).run(lines);
+    }
+
+    private int count(String text) {
+        return tokenCountEstimator != null
+                ? tokenCountEstimator.estimateTokenCountInText(text)
+                : TokenEstimator.estimate(text);
+    }
+
+    /**
+     * State of one streamed document
+     */
+    private final class Chunking {
+
+        private final Metadata metadata;
+        private final Consumer<TextSegment> sink;
+
+        // headings[0] is the front matter title, 1..6 the ATX heading levels
+        private final String[] headings = new String[7];
+        private final List<String> blocks = new ArrayList<>();
+        private final StringBuilder block = new StringBuilder();
+        private int chunkTokens;
+        private boolean chunkHasBody;
+        private List<String> chunkPath;
+        private String fence;
+
+        Chunking(Metadata metadata, Consumer<TextSegment> sink) {
+            this.metadata = metadata;
+            this.sink = sink;
+        }
+
+        void run(BufferedReader lines) throws IOException {
+            String line = lines.readLine();
+            if (line != null && line.strip().equals("---")) {
+                line = skipFrontMatter(lines);
+            }
+            for (; line != null; line = lines.readLine()) {
+                if (fence != null) {
+                    appendLine(line);
+                    if (line.strip().startsWith(fence) && line.strip().chars().allMatch(c -> c == fence.charAt(0))) {
+                        fence = null;
+                        endBlock(true);
+                    }
+                    continue;
+                }
+                Matcher fenceStart = FENCE.matcher(line);
+                if (fenceStart.find()) {
+                    endBlock(false);
+                    fence = fenceStart.group(1);
+                    appendLine(line);
+                    continue;
+                }
+                Matcher heading = HEADING.matcher(line);
+                if (heading.matches()) {
+                    endBlock(false);
+                    if (chunkHasBody && chunkTokens >= minTokens) {
+                        emit();
+                    }
+                    int level = heading.group(1).length();
+                    headings[level] = heading.group(2);
+                    for (int deeper = level + 1; deeper < headings.length; deeper++) {
+                        headings[deeper] = null;
+                    }
+                    addBlock(line.strip(), false);
+                    continue;
+                }
+                if (ATTRIBUTE_LIST.matcher(line).matches()) {
+                    if (line.strip().equals("{:toc}")) {
+                        dropTocPlaceholder();
+                    }
+                    continue;
+                }
+                if (line.isBlank()) {
+                    endBlock(false);
+                } else {
+                    appendLine(line);
+                }
+            }
+            // An unterminated fence still ends with the document
+            endBlock(fence != null);
+            if (chunkHasBody) {
+                emit();
+            }
+        }
+
+        /**
+         * Skips YAML front matter, keeping its title as the root of the heading path
+         */
+        private String skipFrontMatter(BufferedReader lines) throws IOException {
+            String line;
+            while ((line = lines.readLine()) != null && !line.strip().equals("---")) {
+                Matcher title = TITLE.matcher(line.strip());
+                if (title.matches() && !title.group(1).isEmpty()) {
+                    headings[0] = title.group(1);
+                }
+            }
+            return line == null ? null : lines.readLine();
+        }
+
+        private void dropTocPlaceholder() {
+            int lastLine = block.lastIndexOf("\n") + 1;
+            String placeholder = block.substring(lastLine).strip();
+            if (placeholder.equals("- TOC") || placeholder.equals("* TOC")) {
+                block.setLength(Math.max(0, lastLine - 1));
+            }
+        }
+
+        private void appendLine(String line) {
+            if (!block.isEmpty()) {
+                block.append('\n');
+            }
+            block.append(line);
+        }
+
+        private void endBlock(boolean code) {
+            if (block.isEmpty()) {
+                return;
+            }
+            String text = block.toString();
+            block.setLength(0);
+            if (code || count(text) <= maxTokens) {
+                addBlock(text, true);
+                return;
+            }
+            // An oversized paragraph or list is cut between lines
+            for (String line : text.split("\n")) {
+                addBlock(line, true);
+            }
+        }
+
+        private void addBlock(String text, boolean body) {
+            int tokens = count(text);
+            if (chunkHasBody && chunkTokens + tokens > maxTokens) {
+                emit();
+            }
+            blocks.add(text);
+            chunkTokens += tokens;
+            if (body) {
+                chunkPath = chunkPath == null ? headingPath() : commonPrefix(chunkPath, headingPath());
+                chunkHasBody = true;
+            }
+        }
+
+        private void emit() {
+            Metadata chunkMetadata = metadata.copy();
+            if (chunkPath != null && !chunkPath.isEmpty()) {
+                chunkMetadata.put(HEADING_PATH, String.join(PATH_SEPARATOR, chunkPath));
+            }
+            sink.accept(TextSegment.from(String.join("\n\n", blocks), chunkMetadata));
+            blocks.clear();
+            chunkTokens = 0;
+            chunkHasBody = false;
+            chunkPath = null;
+        }
+
+        private List<String> headingPath() {
+            List<String> path = new ArrayList<>();
+            for (String heading : headings) {
+                if (heading != null && !heading.isEmpty()) {
+                    path.add(heading);
+                }
+            }
+            return path;
+        }
+
+        private static List<String> commonPrefix(List<String> a, List<String> b) {
+            int common = 0;
+            while (common < Math.min(a.size(), b.size()) && a.get(common).equals(b.get(common))) {
+                common++;
+            }
+            return a.subList(0, common);
+        }
+    }
+}
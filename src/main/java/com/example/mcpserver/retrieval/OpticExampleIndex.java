@@ -0,0 +1,180 @@
+package com.example.mcpserver.retrieval;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🎸 Epic few-shot selector for the optic code generator! 🎸
+ * Splits optic-examples.js into its documented snippets once at startup and
+ * indexes them with BM25 (snippet text plus its section title). Each request
+ * gets only the snippets relevant to the user's prompt, within a token budget,
+ * instead of the whole file.
+ */
+@Component
+public class OpticExampleIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpticExampleIndex.class);
+
+    private static final String EXAMPLES_RESOURCE = "optic-examples.js";
+    private static final String PREAMBLE = "const op = require('/MarkLogic/optic');";
+
+    @Value("${mcp.optic.examples.top-k:6}")
+    private int topK = 6;
+
+    @Value("${mcp.optic.examples.token-budget:1000}")
+    private int tokenBudget = 1000;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong selectedTokens = new AtomicLong();
+    private final AtomicLong tokensSaved = new AtomicLong();
+
+    private volatile List<Snippet> snippets = List.of();
+    private volatile LexicalIndex<Snippet> index;
+    private volatile int fullTokens;
+
+    /**
+     * One documented example - the doc comment and the code after it
+     */
+    public record Snippet(String section, String text) {
+    }
+
+    @PostConstruct
+    public void initialize() {
+        try (InputStream inputStream = new ClassPathResource(EXAMPLES_RESOURCE).getInputStream()) {
+            load(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.warn("🔥 Could not load {} - the optic generator falls back to its built-in examples: {}",
+                    EXAMPLES_RESOURCE, e.getMessage());
+        }
+    }
+
+    /**
+     * Index a full examples file
+     */
+    public void load(String examples) {
+        List<Snippet> parsed = parse(examples);
+        index = LexicalIndex.of(parsed, snippet -> snippet.section() + " " + snippet.text());
+        snippets = List.copyOf(parsed);
+        fullTokens = TokenEstimator.estimate(examples);
+        logger.info("🎸 Indexed {} optic example snippets (~{} tokens for the whole file)", parsed.size(),
+                fullTokens);
+    }
+
+    public boolean isLoaded() {
+        return index != null && index.size() > 0;
+    }
+
+    /**
+     * 🔍 The examples to put in the prompt for this request: the best matching
+     * snippets, in rank order, until the token budget is used up. Returns null
+     * when no index is loaded.
+     */
+    public String select(String userPrompt) {
+        LexicalIndex<Snippet> current = index;
+        if (current == null || current.size() == 0) {
+            return null;
+        }
+
+        List<Snippet> ranked = current.search(userPrompt, topK).stream().map(LexicalIndex.Hit::item).toList();
+        if (ranked.isEmpty()) {
+            // Nothing matched - the basic operations are the most useful starting point
+            ranked = snippets.stream().filter(snippet -> snippet.section().startsWith("BASIC")).toList();
+        }
+
+        StringBuilder selected = new StringBuilder(PREAMBLE).append("\n");
+        int used = TokenEstimator.estimate(PREAMBLE);
+        int count = 0;
+        for (Snippet snippet : ranked) {
+            String block = "\n// " + snippet.section() + "\n" + snippet.text() + "\n";
+            int cost = TokenEstimator.estimate(block);
+            if (used + cost > tokenBudget) {
+                continue;
+            }
+            selected.append(block);
+            used += cost;
+            count++;
+        }
+
+        requests.incrementAndGet();
+        selectedTokens.addAndGet(used);
+        tokensSaved.addAndGet(Math.max(0, fullTokens - used));
+        logger.debug("🎸 Selected {} optic examples (~{} of ~{} tokens) for: {}", count, used, fullTokens,
+                userPrompt);
+        return selected.toString();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        long requestCount = requests.get();
+        metrics.put("snippets", index != null ? index.size() : 0);
+        metrics.put("requests", requestCount);
+        metrics.put("fullFileTokens", fullTokens);
+        metrics.put("avgSelectedTokens", requestCount > 0 ? selectedTokens.get() / requestCount : 0);
+        metrics.put("tokensSaved", tokensSaved.get());
+        metrics.put("tokenBudget", tokenBudget);
+        return metrics;
+    }
+
+    /**
+     * Each snippet starts at a top-level doc comment and runs to the next one or
+     * to the next section banner. The file header, the conclusion and the
+     * module.exports block carry no example and are skipped.
+     */
+    static List<Snippet> parse(String examples) {
+        List<Snippet> snippets = new ArrayList<>();
+        String section = null;
+        StringBuilder current = null;
+        String[] lines = examples.split("\n", -1);
+
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            if (line.startsWith("// ====")) {
+                addSnippet(snippets, section, current);
+                current = null;
+                if (i + 1 < lines.length && lines[i + 1].startsWith("// ") && !lines[i + 1].startsWith("// ====")) {
+                    section = lines[i + 1].substring(3).replace("🎸", "").trim();
+                    i++;
+                }
+                continue;
+            }
+            if (line.startsWith("/**")) {
+                addSnippet(snippets, section, current);
+                current = section != null ? new StringBuilder() : null;
+            }
+            if (line.startsWith("module.exports")) {
+                addSnippet(snippets, section, current);
+                current = null;
+            }
+            if (current != null) {
+                current.append(line).append("\n");
+            }
+        }
+        addSnippet(snippets, section, current);
+        return snippets;
+    }
+
+    private static void addSnippet(List<Snippet> snippets, String section, StringBuilder text) {
+        if (text == null || section == null || section.startsWith("CONCLUSION")) {
+            return;
+        }
+        String snippet = text.toString().trim();
+        // A doc comment with no code after it is not an example
+        if (snippet.endsWith("*/")) {
+            return;
+        }
+        snippets.add(new Snippet(section, snippet));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.mcpserver.retrieval;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 🎸 Reciprocal rank fusion - two rankings, one setlist 🎸
+ * Each ranking contributes {@code weight / (k + rank)} to every id it
+ * contains (rank starting at 1), so ids ranked well by several retrievers rise
+ * to the top without having to reconcile their incomparable raw scores.
+ */
+public final class ReciprocalRankFusion {
+
+    public static final int DEFAULT_K = 60;
+
+    private ReciprocalRankFusion() {
+    }
+
+    public record Fused(String id, double score) {
+    }
+
+    /**
+     * Fuse ranked id lists, best first. {@code weights[i]} scales ranking i; a
+     * weight of 0 ignores it. Ties keep the order ids were first seen in.
+     */
+    public static List<Fused> fuse(List<List<String>> rankings, double[] weights, int k) {
+        if (weights.length != rankings.size()) {
+            throw new IllegalArgumentException("One weight per ranking is required");
+        }
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (int r = 0; r < rankings.size(); r++) {
+            if (weights[r] <= 0) {
+                continue;
+            }
+            List<String> ranking = rankings.get(r);
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                scores.merge(ranking.get(rank), weights[r] / (k + rank + 1), Double::sum);
+            }
+        }
+        List<Fused> fused = new ArrayList<>(scores.size());
+        scores.forEach((id, score) -> fused.add(new Fused(id, score)));
+        fused.sort(Comparator.comparingDouble(Fused::score).reversed());
+        return fused;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.mcpserver.retrieval;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 🎸 Plain-loop vector scoring - works on every JVM 🎸
+ */
+public class ScalarVectorScorer implements VectorScorer {
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public float dot(float[] query, ByteBuffer vectors, int offset, int dimension) {
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += query[i] * vectors.getFloat(offset + i * 4);
+        }
+        return sum;
+    }
+
+    @Override
+    public float dotInt8(float[] query, ByteBuffer codes, int offset, int dimension) {
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += query[i] * codes.get(offset + i);
+        }
+        return sum;
+    }
+}
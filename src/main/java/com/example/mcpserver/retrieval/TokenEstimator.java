@@ -0,0 +1,22 @@
+package com.example.mcpserver.retrieval;
+
+/**
+ * 🎸 Cheap prompt token estimate - good enough for budgeting prompt sections 🎸
+ * GPT-style tokenizers average roughly four characters of English or code per
+ * token, so budgets are enforced on that estimate rather than by running a
+ * real tokenizer on every request.
+ */
+public final class TokenEstimator {
+
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+}
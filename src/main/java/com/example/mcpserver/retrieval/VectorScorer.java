@@ -0,0 +1,49 @@
+package com.example.mcpserver.retrieval;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 🎸 Dot products against vectors stored off-heap 🎸
+ * Offsets are in bytes. {@link #best()} picks the JDK Vector API
+ * implementation when the jdk.incubator.vector module is available and falls
+ * back to plain loops otherwise.
+ */
+public interface VectorScorer {
+
+    String name();
+
+    /**
+     * Query · stored float vector at the given byte offset
+     */
+    float dot(float[] query, ByteBuffer vectors, int offset, int dimension);
+
+    /**
+     * Query · stored int8 code at the given byte offset - multiply by the
+     * vector's scale to approximate the full precision dot product
+     */
+    float dotInt8(float[] query, ByteBuffer codes, int offset, int dimension);
+
+    static VectorScorer best() {
+        Logger logger = LoggerFactory.getLogger(VectorScorer.class);
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                VectorScorer simd = (VectorScorer) Class.forName("com.example.mcpserver.retrieval.SimdVectorScorer")
+                        .getDeclaredConstructor().newInstance();
+                // The incubator API changes between JDK releases - prove it works here
+                ByteBuffer probe = ByteBuffer.allocateDirect(64 * 4);
+                simd.dot(new float[64], probe, 0, 64);
+                simd.dotInt8(new float[64], probe, 0, 64);
+                logger.info("🚀 Vector scoring uses the JDK Vector API");
+                return simd;
+            } catch (Throwable e) {
+                logger.info("Vector API unusable on this JVM ({}) - using scalar scoring", e.toString());
+            }
+        } else {
+            logger.info("jdk.incubator.vector not enabled (--add-modules) - using scalar scoring");
+        }
+        return new ScalarVectorScorer();
+    }
+}
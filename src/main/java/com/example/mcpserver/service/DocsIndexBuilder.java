@@ -0,0 +1,21 @@
+package com.example.mcpserver.service;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 🏗️ Build-time entry point for the docs index - run by the buildDocsIndex
+ * Gradle task so the embedded docs and their HNSW graph ship inside the jar
+ * and a fresh container only has to load them instead of running the model
+ * over every chunk and inserting every chunk into the graph.
+ */
+public final class DocsIndexBuilder {
+
+    private DocsIndexBuilder() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path output = Paths.get(args.length > 0 ? args[0] : "build/docs-index/docs-index.bin");
+        new MarkLogicDocsService().writeIndex(output);
+    }
+}
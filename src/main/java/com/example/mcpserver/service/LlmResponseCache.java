@@ -0,0 +1,242 @@
+package com.example.mcpserver.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 🎸 Epic LLM response cache - why play the same solo twice? 🎸
+ * Bounded LRU + TTL cache in front of the chat model, keyed by tool, model
+ * deployment and the whitespace-normalized prompt. Optionally snapshotted to
+ * disk on shutdown and reloaded on startup, so repeated prompts stay cheap
+ * across restarts. Tools listed in mcp.llm.cache.disabled-tools always go to
+ * the model.
+ */
+@Service
+public class LlmResponseCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(LlmResponseCache.class);
+
+  @Value("${mcp.llm.cache.enabled:true}")
+  private boolean enabled = true;
+
+  @Value("${mcp.llm.cache.max-entries:1000}")
+  private int maxEntries = 1000;
+
+  @Value("${mcp.llm.cache.ttl-seconds:3600}")
+  private long ttlSeconds = 3600;
+
+  @Value("${mcp.llm.cache.disabled-tools:}")
+  private String disabledTools = "";
+
+  @Value("${mcp.llm.cache.snapshot-file:}")
+  private String snapshotFile = "";
+
+  @Value("${spring.ai.azure.openai.chat.options.deployment-name:default}")
+  private String deployment = "default";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong expirations = new AtomicLong();
+
+  // Access-ordered, so the eldest entry is the least recently used
+  private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+      if (size() > maxEntries) {
+        evictions.incrementAndGet();
+        return true;
+      }
+      return false;
+    }
+  };
+
+  private volatile Set<String> disabledToolSet = Set.of();
+
+  /**
+   * One cached completion - public fields so the snapshot is plain JSON
+   */
+  public static class CachedResponse {
+    public String tool;
+    public String content;
+    public long createdAt;
+
+    public CachedResponse() {
+    }
+
+    CachedResponse(String tool, String content, long createdAt) {
+      this.tool = tool;
+      this.content = content;
+      this.createdAt = createdAt;
+    }
+  }
+
+  @PostConstruct
+  public void init() {
+    disabledToolSet = Arrays.stream(disabledTools.split(","))
+        .map(String::trim)
+        .filter(tool -> !tool.isEmpty())
+        .collect(Collectors.toUnmodifiableSet());
+    loadSnapshot();
+    logger.info("🎸 LLM response cache: enabled={}, maxEntries={}, ttl={}s, disabledTools={}",
+        enabled, maxEntries, ttlSeconds, disabledToolSet);
+  }
+
+  public boolean isCacheable(String tool) {
+    return enabled && !disabledToolSet.contains(tool);
+  }
+
+  /**
+   * Cached completion for this tool and prompt, or null on a miss
+   */
+  public String get(String tool, String prompt) {
+    if (!isCacheable(tool)) {
+      return null;
+    }
+    String key = key(tool, prompt);
+    synchronized (entries) {
+      CachedResponse cached = entries.get(key);
+      if (cached != null && isExpired(cached)) {
+        entries.remove(key);
+        expirations.incrementAndGet();
+        cached = null;
+      }
+      if (cached == null) {
+        misses.incrementAndGet();
+        return null;
+      }
+      hits.incrementAndGet();
+      return cached.content;
+    }
+  }
+
+  public void put(String tool, String prompt, String content) {
+    if (!isCacheable(tool) || content == null) {
+      return;
+    }
+    String key = key(tool, prompt);
+    synchronized (entries) {
+      entries.put(key, new CachedResponse(tool, content, System.currentTimeMillis()));
+    }
+  }
+
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new HashMap<>();
+    long hitCount = hits.get();
+    long missCount = misses.get();
+    metrics.put("enabled", enabled);
+    metrics.put("hits", hitCount);
+    metrics.put("misses", missCount);
+    metrics.put("hitRate", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+    metrics.put("evictions", evictions.get());
+    metrics.put("expirations", expirations.get());
+    synchronized (entries) {
+      metrics.put("size", entries.size());
+    }
+    metrics.put("maxEntries", maxEntries);
+    return metrics;
+  }
+
+  /**
+   * 💾 Write the live entries to the snapshot file (if one is configured)
+   */
+  @PreDestroy
+  public void saveSnapshot() {
+    if (snapshotFile == null || snapshotFile.isBlank()) {
+      return;
+    }
+    Map<String, CachedResponse> live = new LinkedHashMap<>();
+    synchronized (entries) {
+      entries.forEach((key, cached) -> {
+        if (!isExpired(cached)) {
+          live.put(key, cached);
+        }
+      });
+    }
+    Path target = Paths.get(snapshotFile);
+    try {
+      if (target.getParent() != null) {
+        Files.createDirectories(target.getParent());
+      }
+      Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+      objectMapper.writeValue(temp.toFile(), live);
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      logger.info("💾 Saved {} LLM cache entries to {}", live.size(), target);
+    } catch (IOException e) {
+      logger.warn("🔥 Could not save LLM cache snapshot to {}: {}", target, e.getMessage());
+    }
+  }
+
+  private void loadSnapshot() {
+    if (snapshotFile == null || snapshotFile.isBlank() || !Files.exists(Paths.get(snapshotFile))) {
+      return;
+    }
+    try {
+      Map<String, CachedResponse> saved = objectMapper.readValue(Paths.get(snapshotFile).toFile(),
+          new TypeReference<LinkedHashMap<String, CachedResponse>>() {
+          });
+      List<Map.Entry<String, CachedResponse>> live = new ArrayList<>();
+      for (Map.Entry<String, CachedResponse> entry : saved.entrySet()) {
+        if (!isExpired(entry.getValue()) && isCacheable(entry.getValue().tool)) {
+          live.add(entry);
+        }
+      }
+      synchronized (entries) {
+        live.forEach(entry -> entries.put(entry.getKey(), entry.getValue()));
+      }
+      logger.info("💾 Loaded {} LLM cache entries from {}", live.size(), snapshotFile);
+    } catch (IOException e) {
+      logger.warn("🔥 Could not load LLM cache snapshot from {}: {}", snapshotFile, e.getMessage());
+    }
+  }
+
+  private boolean isExpired(CachedResponse cached) {
+    return ttlSeconds > 0 && System.currentTimeMillis() - cached.createdAt > ttlSeconds * 1000;
+  }
+
+  private String key(String tool, String prompt) {
+    String normalized = prompt == null ? "" : prompt.strip().replaceAll("\\s+", " ");
+    return tool + ":" + deployment + ":" + sha256(normalized);
+  }
+
+  private static String sha256(String value) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+}
@@ -3,124 +3,664 @@
  */
 package com.example.mcpserver.service;
 
-import dev.langchain4j.data.document.Document;
+import com.example.mcpserver.retrieval.CompactVectorStore;
+import com.example.mcpserver.retrieval.DocsDirectoryWatcher;
+import com.example.mcpserver.retrieval.DocsIndexFile;
+import com.example.mcpserver.retrieval.DocsIngestionPipeline;
+import com.example.mcpserver.retrieval.DocsMatch;
+import com.example.mcpserver.retrieval.DocsPassage;
+import com.example.mcpserver.retrieval.DocsPostProcessor;
+import com.example.mcpserver.retrieval.DocsQueryCache;
+import com.example.mcpserver.retrieval.HnswEmbeddingStore;
+import com.example.mcpserver.retrieval.HybridRetriever;
+import com.example.mcpserver.retrieval.LexicalIndex;
+import com.example.mcpserver.retrieval.MarkdownChunker;
 import dev.langchain4j.data.document.DocumentSplitter;
-import dev.langchain4j.data.document.Metadata;
 import dev.langchain4j.data.document.splitter.DocumentSplitters;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.TokenCountEstimator;
 import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.HuggingFaceTokenCountEstimator;
 import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
-import dev.langchain4j.store.embedding.EmbeddingMatch;
-import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
-import dev.langchain4j.store.embedding.EmbeddingSearchResult;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class MarkLogicDocsService {
 
     private static final Logger logger = LoggerFactory.getLogger(MarkLogicDocsService.class);
+
+    static final List<String> DOC_ZIPS = List.of("flux-docs.zip", "ml-gradle-docs.zip");
+    static final String BUNDLED_INDEX = "docs-index/docs-index.bin";
+
+    // Anything that changes the vectors must be part of the index fingerprint
+    private static final String EMBEDDING_MODEL_NAME = "all-minilm-l6-v2";
+
+    // all-MiniLM-L6-v2 was trained on at most 256 word-pieces, [CLS] and [SEP] included
+    static final int MODEL_MAX_TOKENS = 256;
+    private static final int SPECIAL_TOKENS = 2;
+
+    // markdown = one chunk per heading section (never inside a code fence),
+    // tokens = recursive splitter sized by the model's own word-piece tokenizer,
+    // chars = the original 1500/200 character splitter
+    @Value("${mcp.docs.splitter.mode:markdown}")
+    private String splitterMode = "markdown";
+
+    @Value("${mcp.docs.splitter.max-tokens:254}")
+    private int splitterMaxTokens = MODEL_MAX_TOKENS - SPECIAL_TOKENS;
+
+    // markdown: sections smaller than this are merged with the next one
+    @Value("${mcp.docs.splitter.min-tokens:64}")
+    private int splitterMinTokens = 64;
+
+    @Value("${mcp.docs.splitter.overlap-tokens:32}")
+    private int splitterOverlapTokens = 32;
+
+    @Value("${mcp.docs.splitter.max-chars:1500}")
+    private int splitterMaxChars = 1500;
+
+    @Value("${mcp.docs.splitter.overlap-chars:200}")
+    private int splitterOverlapChars = 200;
+
+    @Value("${mcp.docs.index.file:${java.io.tmpdir}/mcp-server/docs-index.bin}")
+    private String indexFile = System.getProperty("java.io.tmpdir") + "/mcp-server/docs-index.bin";
+
+    @Value("${mcp.docs.index.persist:true}")
+    private boolean persistIndex = true;
+
+    // 0 = one ingestion thread per available core
+    @Value("${mcp.docs.ingest.threads:0}")
+    private int ingestThreads = 0;
+
+    @Value("${mcp.docs.ingest.batch-size:32}")
+    private int ingestBatchSize = 32;
+
+    // Build the index on a background thread so the server takes traffic right away
+    @Value("${mcp.docs.warmup.background:true}")
+    private boolean backgroundWarmup = true;
+
+    // How long a search waits for a warming index before giving up
+    @Value("${mcp.docs.warmup.wait-ms:2000}")
+    private long warmupWaitMs = 2000;
+
+    // hnsw = approximate nearest neighbour graph, exact = score every chunk,
+    // compact = off-heap (optionally quantized) vectors, scanned and re-ranked
+    @Value("${mcp.docs.index.type:hnsw}")
+    private String indexType = "hnsw";
+
+    @Value("${mcp.docs.hnsw.m:16}")
+    private int hnswM = 16;
+
+    @Value("${mcp.docs.hnsw.ef-construction:100}")
+    private int hnswEfConstruction = 100;
+
+    @Value("${mcp.docs.hnsw.ef-search:64}")
+    private int hnswEfSearch = 64;
+
+    // int8, binary or none - quantized codes are scanned, the shortlist re-ranked at full precision
+    @Value("${mcp.docs.compact.quantization:int8}")
+    private String compactQuantization = "int8";
+
+    @Value("${mcp.docs.compact.rerank-factor:4}")
+    private int compactRerankFactor = 4;
+
+    // Measure recall and latency against an exact scan once the index is ready
+    @Value("${mcp.docs.hnsw.recall-report:false}")
+    private boolean hnswRecallReport = false;
+
+    // Fuse a BM25 ranking with the vector ranking - exact identifiers and flags
+    // are found even when the embedding misses them
+    @Value("${mcp.docs.hybrid.enabled:true}")
+    private boolean hybridEnabled = true;
+
+    @Value("${mcp.docs.hybrid.vector-weight:1.0}")
+    private double hybridVectorWeight = 1.0;
+
+    @Value("${mcp.docs.hybrid.lexical-weight:1.0}")
+    private double hybridLexicalWeight = 1.0;
+
+    @Value("${mcp.docs.hybrid.rrf-k:60}")
+    private int hybridRrfK = 60;
+
+    // Candidates each retriever contributes to the fusion, per requested result
+    @Value("${mcp.docs.hybrid.candidate-depth:4}")
+    private int hybridCandidateDepth = 4;
+
+    // A directory of extra docs indexed next to the bundled zips and re-indexed
+    // incrementally as its files change (empty = off)
+    @Value("${mcp.docs.watch.dir:}")
+    private String watchDir = "";
+
+    @Value("${mcp.docs.watch.extensions:md,markdown,txt,adoc,asciidoc,html,htm,rst}")
+    private String watchExtensions = "md,markdown,txt,adoc,asciidoc,html,htm,rst";
+
+    @Value("${mcp.docs.watch.debounce-ms:500}")
+    private long watchDebounceMs = 500;
+
+    private volatile DocsDirectoryWatcher directoryWatcher;
+
+    // Query embeddings and fused results of recent marklogic_docs calls
+    @Value("${mcp.docs.cache.enabled:true}")
+    private boolean queryCacheEnabled = true;
+
+    @Value("${mcp.docs.cache.embeddings.max-entries:2000}")
+    private int queryCacheMaxEmbeddings = 2000;
+
+    @Value("${mcp.docs.cache.results.max-entries:500}")
+    private int queryCacheMaxResults = 500;
+
+    private volatile DocsQueryCache queryCache = new DocsQueryCache(false, 0, 0);
+
+    // What marklogic_docs hands back: how many passages, how relevant, how long
+    @Value("${mcp.docs.results.max-results:5}")
+    private int resultsMaxResults = 5;
+
+    @Value("${mcp.docs.results.max-results-limit:20}")
+    private int resultsMaxResultsLimit = 20;
+
+    // Candidates fetched per returned passage, for merging and MMR to choose from
+    @Value("${mcp.docs.results.candidate-factor:3}")
+    private int resultsCandidateFactor = 3;
+
+    @Value("${mcp.docs.results.min-score:0.6}")
+    private double resultsMinScore = 0.6;
+
+    @Value("${mcp.docs.results.mmr-lambda:0.7}")
+    private double resultsMmrLambda = 0.7;
+
+    @Value("${mcp.docs.results.max-chars:6000}")
+    private int resultsMaxChars = 6000;
+
+    private volatile DocsPostProcessor postProcessor = new DocsPostProcessor(0, 1, 0);
+
+    private volatile List<Map<String, Object>> recallReport = List.of();
+
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+    private volatile long warmupStartedAt;
+    private volatile long warmupMs = -1;
+    private volatile int indexedChunks;
+    private volatile Map<String, Object> windowReport = Map.of();
+
+    /**
+     * Thrown by {@link #search(String, int, Double, Double)} and {@link #retrieve}
+     * while the index is still being built - callers should answer with a
+     * "warming up" result
+     */
+    public static class IndexWarmingException extends RuntimeException {
+        public IndexWarmingException(String message) {
+            super(message);
+        }
+    }
+
     private final EmbeddingModel embeddingModel;
-    private final EmbeddingStore<TextSegment> embeddingStore;
-    private final DocumentSplitter documentSplitter;
+    private volatile EmbeddingStore<TextSegment> embeddingStore;
+    private volatile HybridRetriever retriever;
+    private final TokenCountEstimator tokenCountEstimator;
+
+    // Runs the lexical half of a hybrid query while the caller embeds the query
+    private final ExecutorService lexicalExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "docs-lexical");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public MarkLogicDocsService() {
-        this.embeddingModel = new AllMiniLmL6V2EmbeddingModel();
-        this.embeddingStore = new InMemoryEmbeddingStore();
-        this.documentSplitter = DocumentSplitters.recursive(1500, 200);
+        // embedAll runs inline on the calling thread - the ingestion pipeline
+        // decides how many cores embed at once
+        this.embeddingModel = new AllMiniLmL6V2EmbeddingModel(Runnable::run);
+        // Same uncased BERT word-piece vocabulary as the model
+        this.tokenCountEstimator = new HuggingFaceTokenCountEstimator();
+    }
+
+    private DocumentSplitter documentSplitter() {
+        if ("chars".equalsIgnoreCase(splitterMode)) {
+            return DocumentSplitters.recursive(splitterMaxChars, splitterOverlapChars);
+        }
+        if ("tokens".equalsIgnoreCase(splitterMode)) {
+            return DocumentSplitters.recursive(splitterMaxTokens, splitterOverlapTokens, tokenCountEstimator);
+        }
+        return new MarkdownChunker(splitterMaxTokens, splitterMinTokens, tokenCountEstimator);
+    }
+
+    private String splitterSignature() {
+        if ("chars".equalsIgnoreCase(splitterMode)) {
+            return "recursive:" + splitterMaxChars + ":" + splitterOverlapChars;
+        }
+        if ("tokens".equalsIgnoreCase(splitterMode)) {
+            return "recursive-wordpiece:" + splitterMaxTokens + ":" + splitterOverlapTokens;
+        }
+        return "markdown-wordpiece:" + splitterMaxTokens + ":" + splitterMinTokens;
     }
 
+    /**
+     * 🔥 Kick off the docs index warm-up. In the background by default, so
+     * ping, tools/list and every other tool are served while the index loads.
+     */
     @PostConstruct
-    public void initialize() {
-        loadZip("flux-docs.zip");
-        loadZip("ml-gradle-docs.zip");
+    public void startWarmup() {
+        queryCache = new DocsQueryCache(queryCacheEnabled, queryCacheMaxEmbeddings, queryCacheMaxResults);
+        postProcessor = new DocsPostProcessor(resultsMinScore, resultsMmrLambda, resultsMaxChars);
+        warmupStartedAt = System.currentTimeMillis();
+        if (!backgroundWarmup) {
+            warmup();
+            ready.join();
+            return;
+        }
+        Thread thread = new Thread(this::warmup, "docs-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void warmup() {
+        try {
+            initialize();
+            startDirectoryWatcher();
+            warmupMs = System.currentTimeMillis() - warmupStartedAt;
+            ready.complete(null);
+            logger.info("✅ Docs index ready after {} ms", warmupMs);
+            if (hnswRecallReport && embeddingStore instanceof HnswEmbeddingStore<TextSegment> hnsw) {
+                recallReport = hnsw.recallReport(200, 5, 16, 32, 64, 128, 256);
+                recallReport.forEach(row -> logger.info("📊 Docs index recall vs latency: {}", row));
+            }
+        } catch (Throwable e) {
+            // Errors too (OutOfMemoryError, a missing ONNX runtime) - otherwise
+            // the index would report "warming" forever
+            logger.error("💥 Docs index warm-up failed", e);
+            ready.completeExceptionally(e);
+            if (e instanceof Error error) {
+                throw error;
+            }
+        }
     }
 
-    public List<EmbeddingMatch<TextSegment>> search(String query, int maxResults) {
-        Embedding queryEmbedding = embeddingModel.embed(query).content();
-        EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
-                .maxResults(maxResults)
-                .queryEmbedding(queryEmbedding)
-                .build();
+    /**
+     * 🚀 Load the docs index - from the persisted file when its fingerprint
+     * matches the zips on the classpath, otherwise by embedding every chunk
+     * and persisting the result for the next boot
+     */
+    public void initialize() {
+        long start = System.currentTimeMillis();
+        embeddingStore = createStore();
+        retriever = new HybridRetriever(embeddingStore,
+                hybridEnabled ? new LexicalIndex<>(TextSegment::text) : null,
+                lexicalExecutor, hybridRrfK, hybridCandidateDepth);
+        String fingerprint = fingerprint();
+        DocsIndexFile index = openPersistedIndex(fingerprint);
+        if (index != null) {
+            List<TextSegment> segments = loadIndex(index);
+            indexedChunks = index.size();
+            logger.info("🎸 Loaded {} docs chunks from {} in {} ms", index.size(), index.getPath(),
+                    System.currentTimeMillis() - start);
+            reportModelWindow(segments);
+            return;
+        }
+
+        DocsIngestionPipeline.Result ingested;
+        try {
+            ingested = ingest();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load documentation", e);
+        }
+        addChunks(ingested.embeddings(), ingested.segments());
+        indexedChunks = ingested.segments().size();
+        reportModelWindow(ingested.segments());
 
-        EmbeddingSearchResult result = embeddingStore.search(request);
-        return result.matches();
+        if (persistIndex) {
+            try {
+                DocsIndexFile.write(Paths.get(indexFile), fingerprint, ingested.embeddings(), ingested.segments(),
+                        embeddingStore instanceof HnswEmbeddingStore<TextSegment> hnsw ? hnsw.graph() : null);
+                logger.info("💾 Persisted docs index to {}", indexFile);
+            } catch (IOException e) {
+                logger.warn("🔥 Could not persist docs index to {}: {}", indexFile, e.getMessage());
+            }
+        }
     }
 
-    private void loadZip(String filename) {
+    /**
+     * 📂 Index mcp.docs.watch.dir and follow its changes. A broken directory
+     * is logged and skipped - the bundled docs still serve.
+     */
+    private void startDirectoryWatcher() {
+        if (watchDir == null || watchDir.isBlank()) {
+            return;
+        }
+        Set<String> extensions = Arrays.stream(watchExtensions.split(","))
+                .map(extension -> extension.trim().toLowerCase(Locale.ROOT))
+                .filter(extension -> !extension.isEmpty())
+                .collect(Collectors.toSet());
+        DocsDirectoryWatcher watcher = new DocsDirectoryWatcher(Paths.get(watchDir), extensions,
+                new DocsIngestionPipeline(embeddingModel, documentSplitter(), ingestThreads, ingestBatchSize),
+                retriever, watchDebounceMs);
         try {
-            ClassPathResource resource = new ClassPathResource(filename);
+            watcher.start();
+            directoryWatcher = watcher;
+        } catch (IOException e) {
+            logger.warn("🔥 Not watching docs directory {}: {}", watchDir, e.getMessage());
+        }
+    }
 
-            try (InputStream inputStream = resource.getInputStream();
-                 ZipInputStream zipInputStream = new ZipInputStream(inputStream)) {
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (directoryWatcher != null) {
+            directoryWatcher.close();
+        }
+        lexicalExecutor.shutdownNow();
+    }
 
-                ZipEntry entry;
-                while ((entry = zipInputStream.getNextEntry()) != null) {
-                    if (!entry.isDirectory()) {
-                        String fileName = entry.getName();
-                        String content = readEntryContent(zipInputStream);
+    /**
+     * 🏗️ Embed the docs zips and build their HNSW graph into an index file -
+     * used by the buildDocsIndex Gradle task to bundle a ready-made index with
+     * the application
+     */
+    public void writeIndex(Path path) throws IOException {
+        DocsIngestionPipeline.Result ingested = ingest();
+        HnswEmbeddingStore<TextSegment> hnsw = new HnswEmbeddingStore<>(hnswM, hnswEfConstruction, hnswEfSearch);
+        hnsw.addAll(ids(ingested.segments().size()), ingested.embeddings(), ingested.segments());
+        DocsIndexFile.write(path, fingerprint(), ingested.embeddings(), ingested.segments(), hnsw.graph());
+        logger.info("💾 Wrote {} docs chunks to {}", ingested.segments().size(), path);
+    }
 
-                        logger.info("Processing zip entry: {} (size: {} bytes)",
-                                fileName, content.length());
+    /**
+     * 🔥 Embed both corpora in parallel and log where the time went
+     */
+    private DocsIngestionPipeline.Result ingest() throws IOException {
+        DocsIngestionPipeline pipeline = new DocsIngestionPipeline(embeddingModel, documentSplitter(),
+                ingestThreads, ingestBatchSize);
+        DocsIngestionPipeline.Result result = pipeline.ingest(DOC_ZIPS);
+        DocsIngestionPipeline.Timings timings = result.timings();
+        logger.info("🎸 Embedded {} docs chunks from {} files in {} ms on {} threads, {} duplicate chunks skipped "
+                        + "(decode {} ms, split {} ms, embed {} ms in {} batches - stage times summed over threads)",
+                result.segments().size(), timings.entries(), timings.wallMs(), timings.threads(),
+                timings.duplicates(), timings.decodeMs(), timings.splitMs(), timings.embedMs(), timings.batches());
+        return result;
+    }
 
-                        // TODO: Add your processing logic here
-                        processEntry(fileName, content);
-                    }
-                    zipInputStream.closeEntry();
-                }
+    /**
+     * ✂️ Count the chunks longer than the model's input window - text past
+     * the window is stored and returned but barely shapes the chunk's vector
+     */
+    private void reportModelWindow(List<TextSegment> segments) {
+        int limit = MODEL_MAX_TOKENS - SPECIAL_TOKENS;
+        int over = 0;
+        int longest = 0;
+        long tokens = 0;
+        for (TextSegment segment : segments) {
+            int count = tokenCountEstimator.estimateTokenCountInText(segment.text());
+            tokens += count;
+            longest = Math.max(longest, count);
+            if (count > limit) {
+                over++;
             }
+        }
+        Map<String, Object> report = new HashMap<>();
+        report.put("splitter", splitterSignature());
+        report.put("modelMaxTokens", MODEL_MAX_TOKENS);
+        report.put("truncatedChunks", over);
+        report.put("longestChunkTokens", longest);
+        report.put("averageChunkTokens", segments.isEmpty() ? 0 : tokens / segments.size());
+        windowReport = report;
+        if (over > 0) {
+            logger.warn("✂️ {} of {} docs chunks exceed the {} word-piece window of {} (longest {}) - "
+                            + "their tail barely affects the vector; mcp.docs.splitter.mode=markdown or tokens sizes chunks to fit",
+                    over, segments.size(), MODEL_MAX_TOKENS, EMBEDDING_MODEL_NAME, longest);
+        } else {
+            logger.info("✂️ All {} docs chunks fit the {} word-piece window of {} (longest {})",
+                    segments.size(), MODEL_MAX_TOKENS, EMBEDDING_MODEL_NAME, longest);
+        }
+    }
 
-            logger.info("Finished loading flux-docs.zip");
-
-        } catch (IOException e) {
-            logger.error("Error loading flux-docs.zip", e);
-            throw new RuntimeException("Failed to load flux documentation", e);
+    private EmbeddingStore<TextSegment> createStore() {
+        if ("exact".equalsIgnoreCase(indexType)) {
+            return new InMemoryEmbeddingStore<>();
         }
+        if ("compact".equalsIgnoreCase(indexType)) {
+            CompactVectorStore<TextSegment> store = new CompactVectorStore<>(
+                    CompactVectorStore.Quantization.from(compactQuantization), compactRerankFactor);
+            logger.info("🗜️ Docs index uses off-heap vectors: {}", store.getMetrics());
+            return store;
+        }
+        logger.info("🕸️ Docs index uses HNSW (m={}, efConstruction={}, efSearch={})",
+                hnswM, hnswEfConstruction, hnswEfSearch);
+        return new HnswEmbeddingStore<>(hnswM, hnswEfConstruction, hnswEfSearch);
+    }
+
+    public boolean isReady() {
+        return ready.isDone() && !ready.isCompletedExceptionally();
     }
 
-    private String readEntryContent(ZipInputStream zipInputStream) throws IOException {
-        StringBuilder content = new StringBuilder();
-        byte[] buffer = new byte[1024];
-        int length;
+    /**
+     * 🩺 Readiness of the docs index - warming, ready or failed
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        String state = !ready.isDone() ? "warming" : ready.isCompletedExceptionally() ? "failed" : "ready";
+        status.put("status", state);
+        DocsDirectoryWatcher watcher = directoryWatcher;
+        status.put("chunks", indexedChunks + (watcher != null ? watcher.chunks() : 0));
+        if (watcher != null) {
+            status.put("watch", watcher.getMetrics());
+        }
+        if (retriever != null) {
+            status.put("retrieval", retriever.getMetrics());
+        }
+        status.put("cache", queryCache.getMetrics());
+        status.put("results", postProcessor.getMetrics());
+        if (!windowReport.isEmpty()) {
+            status.put("chunking", windowReport);
+        }
+        if (embeddingStore instanceof HnswEmbeddingStore<TextSegment> hnsw) {
+            status.put("store", hnsw.getMetrics());
+        } else if (embeddingStore instanceof CompactVectorStore<TextSegment> compact) {
+            status.put("store", compact.getMetrics());
+        } else {
+            status.put("store", Map.of("type", "exact"));
+        }
+        if (!recallReport.isEmpty()) {
+            status.put("recallReport", recallReport);
+        }
+        if (warmupMs >= 0) {
+            status.put("warmupMs", warmupMs);
+        } else if (warmupStartedAt > 0) {
+            status.put("warmingForMs", System.currentTimeMillis() - warmupStartedAt);
+        }
+        return status;
+    }
 
-        while ((length = zipInputStream.read(buffer)) > 0) {
-            content.append(new String(buffer, 0, length, StandardCharsets.UTF_8));
+    /**
+     * Wait up to mcp.docs.warmup.wait-ms for the index; searches never block
+     * longer than that on a cold start
+     */
+    private void awaitReady() {
+        if (isReady()) {
+            return;
+        }
+        try {
+            ready.get(warmupWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IndexWarmingException("The MarkLogic docs index is still warming up ("
+                    + (System.currentTimeMillis() - warmupStartedAt) + " ms so far)");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IndexWarmingException("Interrupted while waiting for the MarkLogic docs index");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The MarkLogic docs index failed to load: "
+                    + e.getCause().getMessage(), e.getCause());
         }
+    }
+
+    public List<DocsMatch> search(String query, int maxResults) {
+        return search(query, maxResults, null, null);
+    }
+
+    /**
+     * 🔍 Hybrid docs search. Null weights fall back to the configured ones; a
+     * weight of 0 switches that retriever off for this query.
+     */
+    public List<DocsMatch> search(String query, int maxResults, Double vectorWeight, Double lexicalWeight) {
+        awaitReady();
+        HybridRetriever.Weights weights = new HybridRetriever.Weights(
+                Math.max(0, vectorWeight != null ? vectorWeight : hybridVectorWeight),
+                Math.max(0, lexicalWeight != null ? lexicalWeight : hybridLexicalWeight));
+        HybridRetriever current = retriever;
+        return queryCache.matches(query, maxResults, weights, current.version(),
+                () -> current.search(query, () -> Embedding.from(embed(query)), maxResults, weights));
+    }
+
+    /**
+     * 📚 The passages marklogic_docs answers with: candidates from
+     * {@link #search(String, int, Double, Double)}, neighbouring chunks merged,
+     * diversified with MMR and cut to the size budget. A null maxResults means
+     * the configured default; anything above the limit is capped.
+     */
+    public List<DocsPassage> retrieve(String query, Integer maxResults, Double vectorWeight, Double lexicalWeight) {
+        int limit = Math.max(1, Math.min(maxResults != null ? maxResults : resultsMaxResults, resultsMaxResultsLimit));
+        List<DocsMatch> candidates = search(query, limit * Math.max(1, resultsCandidateFactor), vectorWeight,
+                lexicalWeight);
+        return postProcessor.process(candidates, limit);
+    }
 
-        return content.toString();
+    /**
+     * Embed arbitrary text with the same local model used for the docs index -
+     * repeated texts come from the query cache
+     */
+    public float[] embed(String text) {
+        return queryCache.embedding(text, value -> embeddingModel.embed(value).content().vector());
     }
 
-    private void processEntry(String fileName, String content) {
-        Document originalDocument = Document.from(content, Metadata.from("fileName", fileName));
-        List<TextSegment> chunks = documentSplitter.split(originalDocument);
+    /**
+     * SHA-256 over the index format, the model, the splitter settings and the
+     * bytes of every docs zip - any change means the persisted vectors are stale
+     */
+    String fingerprint() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String settings = "format=" + DocsIndexFile.FORMAT_VERSION
+                    + ";model=" + EMBEDDING_MODEL_NAME
+                    + ";splitter=" + splitterSignature()
+                    + ";dedup=sha256"
+                    + ";ingest=" + DocsIngestionPipeline.VERSION;
+            digest.update(settings.getBytes(StandardCharsets.UTF_8));
+            byte[] buffer = new byte[1 << 16];
+            for (String zip : DOC_ZIPS) {
+                digest.update(zip.getBytes(StandardCharsets.UTF_8));
+                try (InputStream inputStream = new DigestInputStream(
+                        new ClassPathResource(zip).getInputStream(), digest)) {
+                    while (inputStream.read(buffer) != -1) {
+                        // the stream feeds the digest
+                    }
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Failed to fingerprint the documentation zips", e);
+        }
+    }
 
-        logger.debug("Split {} into {} chunks", fileName, chunks.size());
+    /**
+     * The configured index file when it matches, else the index bundled at build
+     * time (copied out of the jar so it can be mapped), else null
+     */
+    private DocsIndexFile openPersistedIndex(String fingerprint) {
+        Path path = Paths.get(indexFile);
+        if (Files.isRegularFile(path)) {
+            try {
+                DocsIndexFile index = DocsIndexFile.map(path);
+                if (fingerprint.equals(index.getFingerprint())) {
+                    return index;
+                }
+                logger.info("🔄 Docs index at {} is stale - docs or splitter changed", path);
+            } catch (IOException e) {
+                logger.warn("🔥 Ignoring unreadable docs index {}: {}", path, e.getMessage());
+            }
+        }
 
-        for (int i = 0; i < chunks.size(); i++) {
-            TextSegment chunk = chunks.get(i);
+        ClassPathResource bundled = new ClassPathResource(BUNDLED_INDEX);
+        if (!bundled.exists()) {
+            return null;
+        }
+        try {
+            try (InputStream inputStream = bundled.getInputStream()) {
+                if (!fingerprint.equals(DocsIndexFile.readFingerprint(inputStream))) {
+                    logger.info("🔄 Bundled docs index does not match the docs zips - re-embedding");
+                    return null;
+                }
+            }
+            Path target = path;
+            if (!persistIndex) {
+                target = Files.createTempFile("docs-index", ".bin");
+                target.toFile().deleteOnExit();
+            } else if (path.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+            }
+            try (InputStream inputStream = bundled.getInputStream()) {
+                Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return DocsIndexFile.map(target);
+        } catch (IOException e) {
+            logger.warn("🔥 Could not use the bundled docs index: {}", e.getMessage());
+            return null;
+        }
+    }
 
-            Metadata chunkMetadata = Metadata.from("fileName", fileName)
-                    .put("chunkIndex", String.valueOf(i))
-                    .put("totalChunks", String.valueOf(chunks.size()));
+    /**
+     * Copies the vectors and segments into the index; an HNSW store takes the
+     * persisted graph instead of being rebuilt
+     */
+    private List<TextSegment> loadIndex(DocsIndexFile index) {
+        List<Embedding> embeddings = new ArrayList<>(index.size());
+        List<TextSegment> segments = new ArrayList<>(index.size());
+        for (int i = 0; i < index.size(); i++) {
+            embeddings.add(index.embedding(i));
+            segments.add(index.segment(i));
+        }
+        retriever.add(ids(segments.size()), embeddings, segments, index.graph());
+        return segments;
+    }
 
-            TextSegment segmentWithMetadata = TextSegment.from(chunk.text(), chunkMetadata);
+    private void addChunks(List<Embedding> embeddings, List<TextSegment> segments) {
+        retriever.add(ids(segments.size()), embeddings, segments);
+    }
 
-            // Create embedding and store
-            Embedding embedding = embeddingModel.embed(segmentWithMetadata).content();
-            embeddingStore.add(embedding, segmentWithMetadata);
+    private static List<String> ids(int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(UUID.randomUUID().toString());
         }
+        return ids;
     }
-}
\ No newline at end of file
+}
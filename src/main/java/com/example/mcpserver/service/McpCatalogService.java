@@ -0,0 +1,186 @@
+package com.example.mcpserver.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.RawValue;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🎸 Epic pre-serialized catalog - tools, resources and prompts encoded once! 🎸
+ * The list methods are by far the most frequent calls and the tools, resources
+ * and prompts are fixed for the life of the server, so the results are
+ * rendered to JSON once and served as raw, pre-encoded values with a content
+ * hash for ETag / If-None-Match.
+ */
+@Service
+public class McpCatalogService {
+
+  private static final Logger logger = LoggerFactory.getLogger(McpCatalogService.class);
+
+  @Autowired
+  private McpService mcpService;
+
+  // Sorted keys keep the content hash (and so the ETag) stable across restarts
+  private final ObjectMapper objectMapper = new ObjectMapper()
+      .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+  private final AtomicLong served = new AtomicLong();
+  private final AtomicLong notModified = new AtomicLong();
+  private final AtomicLong builds = new AtomicLong();
+
+  private volatile Map<String, CatalogEntry> entries;
+  private volatile String version;
+
+  /**
+   * A list result rendered once - {@link #getResult()} is written verbatim by
+   * Jackson, so no Tool/Resource objects or schema maps are walked per call.
+   */
+  public static final class CatalogEntry {
+    private final RawValue result;
+    private final String etag;
+    private final int size;
+
+    CatalogEntry(String json, String etag) {
+      this.result = new RawValue(new SerializedString(json));
+      this.etag = etag;
+      this.size = json.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    public RawValue getResult() {
+      return result;
+    }
+
+    /**
+     * Strong ETag (quoted SHA-256 of the encoded result)
+     */
+    public String getEtag() {
+      return etag;
+    }
+
+    public int getSize() {
+      return size;
+    }
+  }
+
+  /**
+   * 🚀 Render the catalog at startup so the first list call is as cheap as the rest
+   */
+  @PostConstruct
+  public void init() {
+    build();
+  }
+
+  public boolean isCatalogMethod(String method) {
+    return "tools/list".equals(method) || "resources/list".equals(method)
+        || "resources/templates/list".equals(method) || "prompts/list".equals(method);
+  }
+
+  /**
+   * The pre-encoded result for a list method, or null for any other method
+   */
+  public CatalogEntry get(String method) {
+    Map<String, CatalogEntry> current = entries;
+    if (current == null) {
+      current = build();
+    }
+    CatalogEntry entry = current.get(method);
+    if (entry != null) {
+      served.incrementAndGet();
+    }
+    return entry;
+  }
+
+  /**
+   * Does the client's If-None-Match header still match the current entry?
+   * Handles lists of tags, weak tags and "*".
+   */
+  public boolean matches(String ifNoneMatch, CatalogEntry entry) {
+    if (ifNoneMatch == null || entry == null) {
+      return false;
+    }
+    for (String tag : ifNoneMatch.split(",")) {
+      String candidate = tag.trim();
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if ("*".equals(candidate) || entry.getEtag().equals(candidate)) {
+        notModified.incrementAndGet();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Hash over every list result - changes whenever any of them does
+   */
+  public String getVersion() {
+    if (entries == null) {
+      build();
+    }
+    return version;
+  }
+
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new HashMap<>();
+    metrics.put("version", version);
+    metrics.put("served", served.get());
+    metrics.put("notModified", notModified.get());
+    metrics.put("builds", builds.get());
+    return metrics;
+  }
+
+  private synchronized Map<String, CatalogEntry> build() {
+    if (entries != null) {
+      return entries;
+    }
+
+    Map<String, Object> results = new LinkedHashMap<>();
+    results.put("tools/list", Map.of("tools", mcpService.listTools()));
+    results.put("resources/list", Map.of("resources", mcpService.listResources()));
+    results.put("resources/templates/list", Map.of("resourceTemplates", mcpService.listResourceTemplates()));
+    results.put("prompts/list", Map.of("prompts", mcpService.listPrompts()));
+
+    Map<String, CatalogEntry> built = new HashMap<>();
+    StringBuilder allHashes = new StringBuilder();
+    try {
+      for (Map.Entry<String, Object> result : results.entrySet()) {
+        String json = objectMapper.writeValueAsString(result.getValue());
+        String hash = sha256(json);
+        built.put(result.getKey(), new CatalogEntry(json, "\"" + hash + "\""));
+        allHashes.append(hash);
+      }
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not serialize MCP catalog", e);
+    }
+
+    version = sha256(allHashes.toString()).substring(0, 16);
+    entries = Map.copyOf(built);
+    builds.incrementAndGet();
+    logger.info("🎸 MCP catalog built - version {}", version);
+    return entries;
+  }
+
+  private static String sha256(String value) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+}
@@ -0,0 +1,352 @@
+package com.example.mcpserver.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🎸 Epic server-to-client notification hub - broadcasting like the Spirit of Radio! 🎸
+ * Pushes JSON-RPC notifications (resource updates, progress, log messages) to
+ * connected clients. Every client gets a bounded queue drained by a shared
+ * pool, so one slow SSE consumer can never stall a tool call or another client.
+ */
+@Service
+public class McpNotificationService {
+
+  private static final Logger logger = LoggerFactory.getLogger(McpNotificationService.class);
+
+  // MCP logging levels, least to most severe (RFC 5424 names)
+  private static final List<String> LOG_LEVELS = List.of(
+      "debug", "info", "notice", "warning", "error", "critical", "alert", "emergency");
+
+  /**
+   * Transport specific writer for a single client (an SSE emitter, stdout...)
+   */
+  @FunctionalInterface
+  public interface NotificationWriter {
+    void write(String json) throws IOException;
+  }
+
+  /**
+   * Handle of one registered channel
+   */
+  public interface Registration {
+    /**
+     * Close this channel - a no-op once a newer registration for the same
+     * client replaced it, so a stale stream cannot tear down its successor.
+     */
+    void unregister();
+  }
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final Map<String, ClientChannel> channels = new ConcurrentHashMap<>();
+  private final Map<String, String> clientLogLevels = new ConcurrentHashMap<>();
+  // Session ids this server handed out, with the time they were last used
+  private final Map<String, Long> sessions = new ConcurrentHashMap<>();
+  private final AtomicLong sessionsOpened = new AtomicLong();
+  private final AtomicLong sent = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong undeliverable = new AtomicLong();
+  private final ExecutorService deliveryExecutor;
+
+  @Value("${mcp.notifications.queue-capacity:256}")
+  private int queueCapacity = 256;
+
+  @Value("${mcp.sessions.idle-timeout-ms:86400000}")
+  private long sessionIdleTimeoutMs = 86_400_000;
+
+  // Catch-all channel for single-client transports (stdio)
+  private volatile ClientChannel fallbackChannel;
+
+  public McpNotificationService() {
+    AtomicInteger counter = new AtomicInteger();
+    this.deliveryExecutor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "mcp-notify-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * 🚀 Register a client channel - notifications for this client id are queued
+   * and written through the given writer.
+   */
+  public Registration register(String clientId, NotificationWriter writer) {
+    return register(clientId, writer, null);
+  }
+
+  /**
+   * Register a client channel; {@code onReplaced} runs when a later
+   * registration for the same client id takes over, so the transport can
+   * finish the stream that no longer receives anything.
+   */
+  public Registration register(String clientId, NotificationWriter writer, Runnable onReplaced) {
+    ClientChannel channel = new ClientChannel(clientId, writer, queueCapacity, onReplaced);
+    ClientChannel previous = channels.put(clientId, channel);
+    if (previous != null) {
+      previous.close();
+      previous.replaced();
+    }
+    logger.info("📡 Notification channel opened for client: {}", clientId);
+    return channel;
+  }
+
+  /**
+   * Register the channel used for any client without its own channel - the
+   * stdio transport has exactly one client, whatever id it subscribes with.
+   */
+  public void registerFallback(NotificationWriter writer) {
+    this.fallbackChannel = new ClientChannel("fallback", writer, queueCapacity, null);
+    logger.info("📡 Fallback notification channel registered");
+  }
+
+  public void unregister(String clientId) {
+    ClientChannel channel = channels.remove(clientId);
+    clientLogLevels.remove(clientId);
+    if (channel != null) {
+      channel.close();
+      logger.info("🛑 Notification channel closed for client: {}", clientId);
+    }
+  }
+
+  public boolean isConnected(String clientId) {
+    return channels.containsKey(clientId);
+  }
+
+  /**
+   * 🎫 Issue a new session id - only issued ids can open a notification
+   * stream or be closed, so nobody can take over another client's stream.
+   */
+  public String openSession() {
+    if (sessionsOpened.incrementAndGet() % 256 == 0) {
+      pruneSessions();
+    }
+    String sessionId = UUID.randomUUID().toString();
+    sessions.put(sessionId, System.currentTimeMillis());
+    return sessionId;
+  }
+
+  /**
+   * True when this server issued the session id and has not closed it
+   */
+  public boolean isSession(String sessionId) {
+    return sessionId != null
+        && sessions.computeIfPresent(sessionId, (id, lastUsed) -> System.currentTimeMillis()) != null;
+  }
+
+  public void closeSession(String sessionId) {
+    sessions.remove(sessionId);
+    unregister(sessionId);
+  }
+
+  /**
+   * Forget sessions that were never closed and have been idle too long
+   */
+  private void pruneSessions() {
+    long cutoff = System.currentTimeMillis() - sessionIdleTimeoutMs;
+    sessions.entrySet().removeIf(entry -> entry.getValue() < cutoff && !channels.containsKey(entry.getKey()));
+  }
+
+  /**
+   * Queue a notification for a client. Returns false when no channel can
+   * deliver it (the client has no open stream).
+   */
+  public boolean send(String clientId, Object notification) {
+    ClientChannel channel = clientId != null ? channels.get(clientId) : null;
+    if (channel == null) {
+      channel = fallbackChannel;
+    }
+    if (channel == null) {
+      undeliverable.incrementAndGet();
+      logger.debug("🔇 No notification channel for client: {}", clientId);
+      return false;
+    }
+
+    try {
+      String json = notification instanceof String ? (String) notification
+          : objectMapper.writeValueAsString(notification);
+      channel.offer(json);
+      return true;
+    } catch (IOException e) {
+      logger.warn("🔥 Could not serialize notification for client {}: {}", clientId, e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * 🎸 notifications/progress for a request that supplied a progressToken
+   */
+  public boolean sendProgress(String clientId, Object progressToken, double progress, Double total,
+      String message) {
+    if (progressToken == null) {
+      return false;
+    }
+    Map<String, Object> params = new HashMap<>();
+    params.put("progressToken", progressToken);
+    params.put("progress", progress);
+    if (total != null) {
+      params.put("total", total);
+    }
+    if (message != null) {
+      params.put("message", message);
+    }
+    return send(clientId, notification("notifications/progress", params));
+  }
+
+  /**
+   * 🎸 notifications/message - structured log output, filtered by the level
+   * the client asked for with logging/setLevel (default: info)
+   */
+  public boolean sendLog(String clientId, String level, String loggerName, Object data) {
+    String threshold = clientLogLevels.getOrDefault(clientId != null ? clientId : "", "info");
+    if (LOG_LEVELS.indexOf(level) < LOG_LEVELS.indexOf(threshold)) {
+      return false;
+    }
+    Map<String, Object> params = new HashMap<>();
+    params.put("level", level);
+    params.put("logger", loggerName);
+    params.put("data", data);
+    return send(clientId, notification("notifications/message", params));
+  }
+
+  public Map<String, Object> setLogLevel(String clientId, String level) {
+    if (level == null || !LOG_LEVELS.contains(level)) {
+      throw new IllegalArgumentException("Unknown log level: " + level);
+    }
+    clientLogLevels.put(clientId != null ? clientId : "", level);
+    logger.info("🎚️ Log level for client {} set to {}", clientId, level);
+    return Map.of();
+  }
+
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new HashMap<>();
+    metrics.put("connectedClients", channels.size());
+    metrics.put("sessions", sessions.size());
+    metrics.put("queuedNotifications", channels.values().stream().mapToInt(ClientChannel::queued).sum());
+    metrics.put("sent", sent.get());
+    metrics.put("dropped", dropped.get());
+    metrics.put("undeliverable", undeliverable.get());
+    metrics.put("queueCapacity", queueCapacity);
+    return metrics;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    channels.values().forEach(ClientChannel::close);
+    channels.clear();
+    deliveryExecutor.shutdownNow();
+  }
+
+  private static Map<String, Object> notification(String method, Map<String, Object> params) {
+    Map<String, Object> notification = new HashMap<>();
+    notification.put("jsonrpc", "2.0");
+    notification.put("method", method);
+    notification.put("params", params);
+    return notification;
+  }
+
+  /**
+   * A bounded per-client queue. When the client falls behind the oldest
+   * notification is dropped - newer state wins over stale progress.
+   */
+  private final class ClientChannel implements Registration {
+    private final String clientId;
+    private final NotificationWriter writer;
+    private final Runnable onReplaced;
+    private final BlockingQueue<String> queue;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean closed;
+
+    ClientChannel(String clientId, NotificationWriter writer, int capacity, Runnable onReplaced) {
+      this.clientId = clientId;
+      this.writer = writer;
+      this.onReplaced = onReplaced;
+      this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    void offer(String json) {
+      if (closed) {
+        undeliverable.incrementAndGet();
+        return;
+      }
+      while (!queue.offer(json)) {
+        if (queue.poll() != null) {
+          dropped.incrementAndGet();
+        }
+      }
+      scheduleDrain();
+    }
+
+    int queued() {
+      return queue.size();
+    }
+
+    void close() {
+      closed = true;
+      queue.clear();
+    }
+
+    void replaced() {
+      if (onReplaced == null) {
+        return;
+      }
+      try {
+        onReplaced.run();
+      } catch (RuntimeException e) {
+        logger.debug("🔇 Replaced channel for client {} did not close cleanly: {}", clientId, e.getMessage());
+      }
+    }
+
+    @Override
+    public void unregister() {
+      close();
+      if (channels.remove(clientId, this)) {
+        clientLogLevels.remove(clientId);
+        logger.info("🛑 Notification channel closed for client: {}", clientId);
+      }
+    }
+
+    private void scheduleDrain() {
+      if (draining.compareAndSet(false, true)) {
+        deliveryExecutor.execute(this::drain);
+      }
+    }
+
+    private void drain() {
+      try {
+        String json;
+        while (!closed && (json = queue.poll()) != null) {
+          writer.write(json);
+          sent.incrementAndGet();
+        }
+      } catch (Exception e) {
+        logger.warn("🔥 Notification delivery to client {} failed - closing channel: {}", clientId, e.getMessage());
+        closed = true;
+        channels.remove(clientId, this);
+      } finally {
+        draining.set(false);
+      }
+      // A notification may have arrived between the last poll and releasing the flag
+      if (!closed && !queue.isEmpty()) {
+        scheduleDrain();
+      }
+    }
+  }
+}
@@ -7,23 +7,36 @@ import com.example.mcpserver.model.Resource;
 import com.example.mcpserver.model.ResourceTemplate;
 import com.example.mcpserver.model.ResourceSubscription;
 import com.example.mcpserver.model.ResourceNotification;
-import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.store.embedding.EmbeddingMatch;
+import com.example.mcpserver.retrieval.DocsPassage;
+import com.example.mcpserver.retrieval.OpticExampleIndex;
 import com.marklogic.client.DatabaseClient;
 import com.marklogic.client.io.JacksonHandle;
 import com.marklogic.client.query.QueryManager;
 import com.marklogic.client.query.RawStructuredQueryDefinition;
 
+import jakarta.annotation.PreDestroy;
 import org.springframework.ai.chat.ChatClient;
 import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.chat.StreamingChatClient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.io.IOException;
 import java.io.InputStream;
@@ -32,6 +45,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.stream.Stream;
+import java.time.Duration;
 
 @Service
 public class McpService {
@@ -41,6 +55,20 @@ public class McpService {
   @Autowired(required = false)
   private ChatClient chatClient;
 
+  @Autowired(required = false)
+  private StreamingChatClient streamingChatClient;
+
+  @Value("${mcp.llm.streaming.enabled:true}")
+  private boolean streamingEnabled = true;
+
+  @Value("${mcp.llm.streaming.flush-interval-ms:100}")
+  private long streamingFlushIntervalMs = 100;
+
+  // Deadline for a tool call when the client sends no _meta.timeoutMs;
+  // mcp.tools.<tool>.timeout-ms overrides it per tool
+  @Value("${mcp.tools.default-timeout-ms:60000}")
+  private long defaultToolTimeoutMs = 60000;
+
   @Autowired
   private ApplicationContext applicationContext;
 
@@ -50,8 +78,33 @@ public class McpService {
   @Autowired(required = false)
   private DatabaseClient databaseClient;
 
-  // Track running operations that can be cancelled
-  private final Map<Object, Boolean> runningOperations = new ConcurrentHashMap<>();
+  @Autowired(required = false)
+  private McpNotificationService notificationService;
+
+  @Autowired(required = false)
+  private LlmResponseCache llmResponseCache;
+
+  @Autowired(required = false)
+  private SemanticQueryCache semanticQueryCache;
+
+  @Autowired(required = false)
+  private OpticExampleIndex opticExampleIndex;
+
+  @Autowired(required = false)
+  private StructuredQueryExampleCatalog structuredQueryExampleCatalog;
+
+  // Track running tool calls by request id and progress token so they can be cancelled
+  private final Map<String, ToolCallContext> runningOperations = new ConcurrentHashMap<>();
+  private final AtomicLong cancelledOperations = new AtomicLong();
+  private final AtomicLong deadlinesExceeded = new AtomicLong();
+
+  // LLM and MarkLogic round trips run here so a cancelled tool call can stop
+  // waiting immediately and abort the remote call. Fixed size: the tool
+  // executor already bounds how many tool calls wait on it.
+  @Value("${mcp.remote.pool-size:32}")
+  private int remotePoolSize = 32;
+
+  private volatile ThreadPoolExecutor remoteCallExecutor;
 
   // Track resource subscriptions for real-time updates 🎸
   private final Map<String, ResourceSubscription> resourceSubscriptions = new ConcurrentHashMap<>();
@@ -82,6 +135,7 @@ public class McpService {
     capabilities.put("resourceTemplates", Map.of("listChanged", true));
     capabilities.put("prompts", Map.of("listChanged", true));
     capabilities.put("completion", Map.of("enabled", true));
+    capabilities.put("logging", Map.of());
     serverInfo.put("capabilities", capabilities);
 
     return serverInfo;
@@ -144,10 +198,27 @@ public class McpService {
                 "description", "The user prompt")),
         "required", List.of("prompt"));
 
+    Map<String, Object> docsSchema = Map.of(
+        "type", "object",
+        "properties", Map.of(
+            "prompt", Map.of(
+                "type", "string",
+                "description", "The user prompt"),
+            "vectorWeight", Map.of(
+                "type", "number",
+                "description", "Weight of semantic (embedding) matches in the ranking - 0 turns them off"),
+            "lexicalWeight", Map.of(
+                "type", "number",
+                "description", "Weight of exact keyword matches in the ranking - raise it for identifiers and flags"),
+            "maxResults", Map.of(
+                "type", "integer",
+                "description", "How many docs passages to return (default 5) - fewer keeps the answer short")),
+        "required", List.of("prompt"));
+
     tools.add(new Tool(
         "marklogic_docs",
         "Help you out with MarkLogic",
-        genericUserPromptSchema));
+        docsSchema));
 
     tools.add(new Tool(
         "search_marklogic",
@@ -258,16 +329,290 @@ public class McpService {
   }
 
   public Map<String, Object> callTool(String toolName, Map<String, Object> arguments) {
+    return callTool(toolName, arguments, ToolCallContext.none());
+  }
+
+  public Map<String, Object> callTool(String toolName, Map<String, Object> arguments, ToolCallContext context) {
+    context.applyDefaultTimeout(toolTimeoutMs(toolName));
+    trackOperation(context);
+    Map<String, Object> mcpResponse;
+    try {
+      if (context.isCancelled()) {
+        return cancelledResponse(toolName);
+      }
+      sendProgress(context, 0, "🎸 Starting " + toolName);
+      mcpResponse = executeTool(toolName, arguments, context);
+    } finally {
+      untrackOperation(context);
+    }
+
+    // Whatever the tool fell back to after an abort, the client no longer wants it
+    if (context.isCancelled()) {
+      return cancelledResponse(toolName);
+    }
+    sendProgress(context, 1, "🎸 Finished " + toolName);
+
+    if (Boolean.TRUE.equals(mcpResponse.get("isError")) && notificationService != null
+        && context.getClientId() != null) {
+      notificationService.sendLog(context.getClientId(), "error", "mcp-server.tools",
+          Map.of("tool", toolName, "content", mcpResponse.get("content")));
+    }
+    return mcpResponse;
+  }
+
+  private long toolTimeoutMs(String toolName) {
+    if (applicationContext == null || applicationContext.getEnvironment() == null) {
+      return defaultToolTimeoutMs;
+    }
+    Long timeoutMs = applicationContext.getEnvironment()
+        .getProperty("mcp.tools." + toolName + ".timeout-ms", Long.class);
+    return timeoutMs != null ? timeoutMs : defaultToolTimeoutMs;
+  }
+
+  private Map<String, Object> cancelledResponse(String toolName) {
+    logger.info("🛑 Tool call {} was cancelled", toolName);
+    Map<String, Object> mcpResponse = new HashMap<>();
+    mcpResponse.put("content", List.of(Map.of("type", "text", "text", "🛑 Request cancelled by client")));
+    mcpResponse.put("isError", true);
+    mcpResponse.put("cancelled", true);
+    return mcpResponse;
+  }
+
+  /**
+   * 🎸 Make a tool call cancellable - registered under its request id (scoped
+   * to the client) and its progress token. Called again by callTool, so a call
+   * can be cancelled while it still waits in an executor queue.
+   */
+  public void trackOperation(ToolCallContext context) {
+    for (String key : operationKeys(context.getClientId(), context.getRequestId(), context.getProgressToken())) {
+      runningOperations.put(key, context);
+    }
+  }
+
+  public void untrackOperation(ToolCallContext context) {
+    for (String key : operationKeys(context.getClientId(), context.getRequestId(), context.getProgressToken())) {
+      runningOperations.remove(key, context);
+    }
+  }
+
+  private static List<String> operationKeys(String clientId, Object requestId, Object progressToken) {
+    List<String> keys = new ArrayList<>(2);
+    if (requestId != null) {
+      keys.add("request:" + clientId + ":" + requestId);
+    }
+    if (progressToken != null) {
+      keys.add("progress:" + clientId + ":" + progressToken);
+    }
+    return keys;
+  }
+
+  /**
+   * 🔥 Run a remote call (LLM, MarkLogic) for a tool. Cancelling the tool call
+   * cancels the MarkLogic HTTP calls it started (see {@link RemoteCallScope}),
+   * interrupts the remote thread and releases the waiting tool thread at once;
+   * when the deadline passes the call is aborted the same way and a
+   * {@link TimeoutException} lets the tool fall back.
+   */
+  private <T> T awaitRemote(Callable<T> call, ToolCallContext context) throws Exception {
+    return awaitRemote(call, context, true);
+  }
+
+  private <T> T awaitRemote(Callable<T> call, ToolCallContext context, boolean enforceDeadline) throws Exception {
+    context.throwIfCancelled();
+    if (enforceDeadline && context.isExpired()) {
+      deadlinesExceeded.incrementAndGet();
+      throw new TimeoutException("Deadline of " + context.getTimeoutMs() + " ms already exceeded");
+    }
+    RemoteCallScope scope = new RemoteCallScope();
+    Future<T> future = remoteCallExecutor().submit(() -> scope.call(call));
+    Runnable abort = () -> {
+      scope.abort();
+      future.cancel(true);
+    };
+    context.onCancel(abort);
+    try {
+      if (enforceDeadline && context.hasDeadline()) {
+        return future.get(context.remainingMillis(), TimeUnit.MILLISECONDS);
+      }
+      return future.get();
+    } catch (TimeoutException e) {
+      abort.run();
+      deadlinesExceeded.incrementAndGet();
+      throw new TimeoutException("Deadline of " + context.getTimeoutMs() + " ms exceeded");
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception cause ? cause : e;
+    } finally {
+      context.removeOnCancel(abort);
+    }
+  }
+
+  private ThreadPoolExecutor remoteCallExecutor() {
+    ThreadPoolExecutor executor = remoteCallExecutor;
+    if (executor == null) {
+      synchronized (this) {
+        executor = remoteCallExecutor;
+        if (executor == null) {
+          AtomicInteger counter = new AtomicInteger();
+          int threads = Math.max(1, remotePoolSize);
+          executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+              runnable -> {
+                Thread thread = new Thread(runnable, "mcp-remote-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              });
+          executor.allowCoreThreadTimeOut(true);
+          remoteCallExecutor = executor;
+        }
+      }
+    }
+    return executor;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    ThreadPoolExecutor executor = remoteCallExecutor;
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  private void sendProgress(ToolCallContext context, double progress, String message) {
+    if (notificationService != null && context.hasProgressToken()) {
+      notificationService.sendProgress(context.getClientId(), context.getProgressToken(), progress, 1.0, message);
+    }
+  }
+
+  /**
+   * 🎸 One LLM round trip, returning the completion text (null when the model
+   * gave back nothing usable). When the caller asked for progress and a
+   * streaming client is available, partial text is pushed out as
+   * notifications/progress while the full completion is still aggregated for
+   * the tools/call response - first tokens show up in milliseconds instead of
+   * after the whole generation. Identical prompts are answered from the
+   * {@link LlmResponseCache}.
+   */
+  private String complete(String toolName, String prompt, ToolCallContext context) throws Exception {
+    String completion = lookupOrComplete(toolName, prompt, context);
+    // Never cache a partial completion cut off by the deadline
+    if (llmResponseCache != null && completion != null && !context.isExpired()) {
+      llmResponseCache.put(toolName, prompt, completion);
+    }
+    return completion;
+  }
+
+  /**
+   * Like {@link #complete} but leaves storing the completion to the caller -
+   * for answers that are only worth caching once they proved usable
+   */
+  private String lookupOrComplete(String toolName, String prompt, ToolCallContext context) throws Exception {
+    String cached = llmResponseCache != null ? llmResponseCache.get(toolName, prompt) : null;
+    if (cached != null) {
+      logger.debug("🎸 LLM cache hit for {}", toolName);
+      if (context.hasProgressToken()) {
+        sendProgress(context, 0.5, cached);
+      }
+      return cached;
+    }
+    return completeUncached(prompt, context);
+  }
+
+  /**
+   * 🔍 Natural language to structured query - paraphrases of an earlier prompt
+   * reuse its query from the {@link SemanticQueryCache} without an LLM call.
+   * The caller stores the query in both caches once MarkLogic ran it, or
+   * evicts a cached one MarkLogic rejected.
+   */
+  private String generateStructuredQuery(String searchPrompt, String systemPrompt,
+      SemanticQueryCache.Lookup lookup, ToolCallContext context) throws Exception {
+    if (lookup != null && lookup.isHit()) {
+      logger.info("🎸 Semantic cache hit ({}) for '{}' - reusing query from '{}'",
+          String.format("%.3f", lookup.getSimilarity()), searchPrompt, lookup.getMatchedPrompt());
+      return lookup.getQuery();
+    }
+
+    String generatedStructuredQuery = lookupOrComplete("search_marklogic", systemPrompt, context);
+    if (lookup != null && generatedStructuredQuery != null && lookup.isVerificationSample()) {
+      semanticQueryCache.verify(lookup, generatedStructuredQuery);
+    }
+    return generatedStructuredQuery;
+  }
+
+  private String completeUncached(String prompt, ToolCallContext context) throws Exception {
+    org.springframework.ai.chat.prompt.Prompt chatPrompt = new org.springframework.ai.chat.prompt.Prompt(prompt);
+    if (streamingEnabled && streamingChatClient != null && notificationService != null
+        && context.hasProgressToken()) {
+      // The stream enforces the deadline itself so it can keep the partial text
+      return awaitRemote(() -> streamCompletion(chatPrompt, context), context, false);
+    }
+
+    ChatResponse response = awaitRemote(() -> chatClient.call(chatPrompt), context);
+    if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+      return null;
+    }
+    return response.getResult().getOutput().getContent();
+  }
+
+  private String streamCompletion(org.springframework.ai.chat.prompt.Prompt chatPrompt, ToolCallContext context)
+      throws TimeoutException {
+    StringBuilder completion = new StringBuilder();
+    StringBuilder pending = new StringBuilder();
+    long[] lastFlush = { System.currentTimeMillis() };
+    int[] chunks = { 0 };
+
+    reactor.core.publisher.Flux<ChatResponse> stream = streamingChatClient.stream(chatPrompt);
+    if (context.hasDeadline()) {
+      // Stops the stream (and the HTTP call) at the deadline, keeping what arrived so far
+      stream = stream.take(Duration.ofMillis(context.remainingMillis()));
+    }
+    stream
+        .mapNotNull(response -> response.getResult() != null && response.getResult().getOutput() != null
+            ? response.getResult().getOutput().getContent()
+            : null)
+        .doOnNext(delta -> {
+          completion.append(delta);
+          pending.append(delta);
+          long now = System.currentTimeMillis();
+          if (now - lastFlush[0] >= streamingFlushIntervalMs) {
+            sendPartial(context, pending, ++chunks[0]);
+            lastFlush[0] = now;
+          }
+        })
+        .blockLast();
+
+    if (pending.length() > 0) {
+      sendPartial(context, pending, ++chunks[0]);
+    }
+    logger.debug("🎸 Streamed {} chars in {} progress chunks", completion.length(), chunks[0]);
+
+    if (context.isExpired()) {
+      deadlinesExceeded.incrementAndGet();
+      if (completion.length() == 0) {
+        throw new TimeoutException("Deadline of " + context.getTimeoutMs() + " ms exceeded");
+      }
+      logger.warn("⏱️ Deadline reached - returning {} chars of partial completion", completion.length());
+      completion.append("\n\n⏱️ [Partial result - the ").append(context.getTimeoutMs())
+          .append(" ms deadline was reached]");
+    }
+    return completion.length() > 0 ? completion.toString() : null;
+  }
+
+  // Progress has to keep increasing and stay below the final 1.0 sent by callTool
+  private void sendPartial(ToolCallContext context, StringBuilder pending, int chunk) {
+    sendProgress(context, chunk / (chunk + 1.0), pending.toString());
+    pending.setLength(0);
+  }
+
+  private Map<String, Object> executeTool(String toolName, Map<String, Object> arguments, ToolCallContext context) {
     Map<String, Object> mcpResponse = new HashMap<>();
 
     try {
       Map<String, Object> toolResult;
       switch (toolName) {
         case "generate_text":
-          toolResult = generateText(arguments);
+          toolResult = generateText(arguments, context);
           break;
         case "optic_code_generator":
-          toolResult = generateOpticCode(arguments);
+          toolResult = generateOpticCode(arguments, context);
           break;
         case "verify_optic_code":
           toolResult = verifyOpticCode(arguments);
@@ -276,7 +621,7 @@ public class McpService {
           toolResult = markLogicDocs(arguments);
           break;
         case "search_marklogic":
-          toolResult = searchMarkLogic(arguments);
+          toolResult = searchMarkLogic(arguments, context);
           break;
         default:
           // Return MCP-compliant error response
@@ -324,7 +669,7 @@ public class McpService {
     return mcpResponse;
   }
 
-  private Map<String, Object> generateText(Map<String, Object> arguments) {
+  private Map<String, Object> generateText(Map<String, Object> arguments, ToolCallContext context) {
     Map<String, Object> result = new HashMap<>();
 
     try {
@@ -359,17 +704,21 @@ public class McpService {
       if (chatClient != null) {
         try {
           logger.debug("Calling Azure OpenAI with prompt: {}", prompt);
-          ChatResponse response = chatClient.call(new org.springframework.ai.chat.prompt.Prompt(prompt));
-          if (response == null || response.getResult() == null) {
+          String content = complete("generate_text", prompt, context);
+          if (content == null) {
             result.put("content",
                 List.of(Map.of("type", "text", "text", "🔥 AI response was incomplete")));
             result.put("isError", true);
           } else {
-            String content = response.getResult().getOutput().getContent();
             result.put("content", List.of(Map.of("type", "text", "text", content)));
             result.put("isError", false);
             logger.debug("Successfully generated text");
           }
+        } catch (TimeoutException e) {
+          logger.warn("⏱️ Text generation hit its deadline: {}", e.getMessage());
+          result.put("content", List.of(Map.of("type", "text", "text",
+              "⏱️ The model did not answer in time (" + e.getMessage() + ") - try a shorter prompt or a larger _meta.timeoutMs")));
+          result.put("isError", true);
         } catch (Exception e) {
           logger.error("Error generating text", e);
           result.put("content",
@@ -395,7 +744,7 @@ public class McpService {
     return result;
   }
 
-  private Map<String, Object> generateOpticCode(Map<String, Object> arguments) {
+  private Map<String, Object> generateOpticCode(Map<String, Object> arguments, ToolCallContext context) {
     Map<String, Object> result = new HashMap<>();
 
     try {
@@ -418,8 +767,11 @@ public class McpService {
         return result;
       }
 
-      // Load comprehensive Optic examples for the LLM
-      String opticExamples = loadOpticExamples();
+      // Only the examples relevant to this request, within the token budget;
+      // the whole file is the fallback when no index is loaded
+      String opticExamples = opticExampleIndex != null && opticExampleIndex.isLoaded()
+          ? opticExampleIndex.select(userPrompt)
+          : loadOpticExamples();
 
       // Create a comprehensive prompt for the LLM to generate optic code
       String systemPrompt = String.format(
@@ -428,7 +780,7 @@ public class McpService {
               Generate optic code based on the user's request inspired by the precision and versatility of the band Rush.
               Optic code is used for reading rows of data from MarkLogic databases and then data transformation and manipulation.
 
-              Here are comprehensive examples of MarkLogic Optic API functions to reference:
+              Here are relevant examples of MarkLogic Optic API functions to reference:
 
               %s
 
@@ -446,11 +798,9 @@ public class McpService {
         try {
           logger.debug("🎸 Generating optic code with LLM for prompt: {}", userPrompt);
           logger.debug("🎸 System prompt being sent to LLM: {}", systemPrompt);
-          ChatResponse response = chatClient
-              .call(new org.springframework.ai.chat.prompt.Prompt(systemPrompt));
+          String generatedCode = complete("optic_code_generator", systemPrompt, context);
 
-          if (response != null && response.getResult() != null) {
-            String generatedCode = response.getResult().getOutput().getContent();
+          if (generatedCode != null) {
             logger.debug("🎸 LLM response received: {}", generatedCode);
             result.put("content", List.of(Map.of("type", "text", "text", generatedCode)));
             result.put("isError", false);
@@ -578,16 +928,32 @@ public class McpService {
     Map<String, Object> result = new HashMap<>();
     try {
       String userPrompt = (String) arguments.get("prompt");
-      List<EmbeddingMatch<TextSegment>> matches = markLogicDocsService.search(userPrompt, 5);
+      Double maxResults = numberArgument(arguments, "maxResults");
+      List<DocsPassage> passages = markLogicDocsService.retrieve(userPrompt,
+          maxResults != null ? maxResults.intValue() : null,
+          numberArgument(arguments, "vectorWeight"), numberArgument(arguments, "lexicalWeight"));
       StringBuilder sb = new StringBuilder();
-      matches.forEach(match -> {
-        System.out.println("MATCH: " + match.embedded().text());
-        System.out.println("SCORE: " + match.score());
-        sb.append("\n").append(match.embedded().text()).append("\n\n");
+      passages.forEach(passage -> {
+        logger.debug("🔍 Docs passage {} (score {})", passage.source(), passage.score());
+        sb.append("\n");
+        if (!passage.source().isEmpty()) {
+          sb.append("[").append(passage.source()).append("]\n");
+        }
+        sb.append(passage.text()).append("\n\n");
       });
+      if (passages.isEmpty()) {
+        sb.append("No MarkLogic documentation matched this closely enough - try naming the feature, task or property");
+      }
       result.put("content", List.of(Map.of("type", "text", "text", sb.toString())));
       result.put("isError", false);
       result.put("mimeType", "text/plain");
+    } catch (MarkLogicDocsService.IndexWarmingException e) {
+      logger.info("⏳ marklogic_docs called while the docs index is warming up");
+      result.put("content", List.of(Map.of("type", "text", "text",
+          "⏳ " + e.getMessage() + " - try again in a few seconds")));
+      result.put("isError", true);
+      result.put("warming", true);
+      result.put("mimeType", "text/plain");
     } catch (Exception e) {
       logger.error("💥 Unexpected error in markLogicDocs", e);
       result.put("content",
@@ -598,7 +964,22 @@ public class McpService {
     return result;
   }
 
-  private Map<String, Object> searchMarkLogic(Map<String, Object> arguments) {
+  private static Double numberArgument(Map<String, Object> arguments, String name) {
+    Object value = arguments.get(name);
+    if (value instanceof Number number) {
+      return number.doubleValue();
+    }
+    if (value instanceof String text && !text.isBlank()) {
+      try {
+        return Double.parseDouble(text.trim());
+      } catch (NumberFormatException e) {
+        logger.warn("🔥 Ignoring non-numeric {} argument: {}", name, text);
+      }
+    }
+    return null;
+  }
+
+  private Map<String, Object> searchMarkLogic(Map<String, Object> arguments, ToolCallContext context) {
     Map<String, Object> result = new HashMap<>();
 
     try {
@@ -628,8 +1009,11 @@ public class McpService {
         logger.debug("🎸 DatabaseClient not configured - using query generation mode only");
       }
 
-      // 🎸 Load comprehensive MarkLogic Structured Query examples for the LLM
-      String structuredQueryExamples = loadMarkLogicStructuredQueryExamples();
+      // 🎸 Only the structured query patterns closest to this request, plus the rules
+      boolean useCatalog = structuredQueryExampleCatalog != null && structuredQueryExampleCatalog.isLoaded();
+      String structuredQueryExamples = useCatalog
+          ? structuredQueryExampleCatalog.select(searchPrompt)
+          : loadMarkLogicStructuredQueryExamples();
 
       // Create a comprehensive prompt for the LLM to generate MarkLogic Structured
       // Query
@@ -638,7 +1022,7 @@ public class McpService {
               You are an expert MarkLogic Structured Query generator.
               Generate a structured query (JSON format) based on the user's natural language request.
 
-              Here are comprehensive examples of MarkLogic structured query patterns to reference:
+              Here are relevant examples of MarkLogic structured query patterns to reference:
 
               %s
 
@@ -663,11 +1047,11 @@ public class McpService {
       if (chatClient != null) {
         try {
           logger.debug("🎸 Generating MarkLogic structured query with LLM for prompt: {}", searchPrompt);
-          ChatResponse response = chatClient
-              .call(new org.springframework.ai.chat.prompt.Prompt(systemPrompt));
+          SemanticQueryCache.Lookup lookup = semanticQueryCache != null ? semanticQueryCache.lookup(searchPrompt)
+              : null;
+          String generatedStructuredQuery = generateStructuredQuery(searchPrompt, systemPrompt, lookup, context);
 
-          if (response != null && response.getResult() != null) {
-            String generatedStructuredQuery = response.getResult().getOutput().getContent();
+          if (generatedStructuredQuery != null) {
             logger.debug("🎸 LLM structured query response received: {}", generatedStructuredQuery);
 
             // 🎸 EPIC DATABASE EXECUTION TIME! 🎸
@@ -676,7 +1060,18 @@ public class McpService {
                 logger.debug("🎸 EXECUTING STRUCTURED QUERY AGAINST MARKLOGIC DATABASE! 🎸");
 
                 // Execute the search using MarkLogic database
-                String searchResults = executeMarkLogicStructuredSearch(generatedStructuredQuery);
+                String searchResults = awaitRemote(
+                    () -> executeMarkLogicStructuredSearch(generatedStructuredQuery), context);
+
+                // Only a query MarkLogic accepted is worth reusing, verbatim or for paraphrases
+                if (!context.isExpired()) {
+                  if (llmResponseCache != null) {
+                    llmResponseCache.put("search_marklogic", systemPrompt, generatedStructuredQuery);
+                  }
+                  if (semanticQueryCache != null) {
+                    semanticQueryCache.store(lookup, generatedStructuredQuery);
+                  }
+                }
 
                 // 🎸 Format the search results in a righteous Markdown table! 🎸
                 String formattedResults = formatSearchResultsAsMarkdownTable(searchResults, searchPrompt);
@@ -706,6 +1101,12 @@ public class McpService {
 
               } catch (Exception searchException) {
                 logger.error("🔥 Database search execution failed: {}", searchException.getMessage(), searchException);
+                if (semanticQueryCache != null && lookup != null && lookup.isHit()
+                    && !(searchException instanceof TimeoutException)
+                    && !(searchException instanceof CancellationException)) {
+                  // A cached query MarkLogic rejects must not be handed out again
+                  semanticQueryCache.evict(lookup);
+                }
 
                 // Fall back to query-only mode with error info
                 String fallbackResponse = String.format(
@@ -1440,23 +1841,68 @@ public class McpService {
   }
 
   public Map<String, Object> cancelOperation(Object progressToken) {
+    return cancelOperation(null, null, progressToken);
+  }
+
+  /**
+   * 🛑 notifications/cancelled - abort the tool call matching the request id
+   * (scoped to the client that sent it) or the progress token. The running
+   * LLM / MarkLogic call is interrupted and the tool's slot is freed at once.
+   */
+  public Map<String, Object> cancelOperation(String clientId, Object requestId, Object progressToken) {
     Map<String, Object> result = new HashMap<>();
 
-    if (progressToken != null) {
-      // Mark the operation as cancelled
-      runningOperations.put(progressToken, false);
-      result.put("cancelled", true);
-      result.put("progressToken", progressToken);
-      logger.info("Operation cancelled for token: {}", progressToken);
-    } else {
+    if (requestId == null && progressToken == null) {
       result.put("cancelled", false);
       result.put("error", "No progress token provided");
-      logger.warn("Cancellation request without progress token");
+      logger.warn("Cancellation request without request id or progress token");
+      return result;
+    }
+
+    ToolCallContext operation = null;
+    for (String key : operationKeys(clientId, requestId, progressToken)) {
+      operation = runningOperations.get(key);
+      if (operation != null) {
+        break;
+      }
     }
 
+    boolean running = operation != null && operation.cancel();
+    if (running) {
+      cancelledOperations.incrementAndGet();
+      untrackOperation(operation);
+    }
+    result.put("cancelled", true);
+    result.put("running", running);
+    if (requestId != null) {
+      result.put("requestId", requestId);
+    }
+    if (progressToken != null) {
+      result.put("progressToken", progressToken);
+    }
+    logger.info("🛑 Cancellation for request {} / token {} - {}", requestId, progressToken,
+        running ? "aborted running call" : "no running call");
     return result;
   }
 
+  public Map<String, Object> getOperationMetrics() {
+    Map<String, Object> metrics = new HashMap<>();
+    metrics.put("running", new HashSet<>(runningOperations.values()).size());
+    metrics.put("cancelled", cancelledOperations.get());
+    metrics.put("deadlinesExceeded", deadlinesExceeded.get());
+    return metrics;
+  }
+
+  /**
+   * 🎚️ logging/setLevel - minimum level of notifications/message sent to a client
+   */
+  public Map<String, Object> setLogLevel(String clientId, String level) {
+    if (notificationService == null) {
+      return Map.of();
+    }
+    return notificationService.setLogLevel(clientId, level);
+  }
+
   /**
    * 🎸 Epic resource subscription management - 2112 style! 🎸
    * Subscribe to real-time resource updates
@@ -1583,14 +2029,13 @@ public class McpService {
             // Create notification
             ResourceNotification notification = new ResourceNotification(uri, subscriptionId);
 
-            // In a real implementation, you'd send this to the client
-            // For now, we'll log it as a demonstration
             logger.info("🚨 NOTIFICATION: Resource {} updated for subscription {}", uri, subscriptionId);
             logger.debug("📡 Notification payload: {}", notification);
 
-            // TODO: In production, integrate with WebSocket or SSE to push to client
-            // Example: webSocketService.sendToClient(subscription.getClientId(),
-            // notification);
+            // Push to the client's SSE stream (HTTP) or stdout (stdio)
+            if (notificationService != null) {
+              notificationService.send(subscription.getClientId(), notification);
+            }
           }
         }
       } else {
@@ -1903,12 +2348,21 @@ public class McpService {
    * 🎸 Load comprehensive MarkLogic Structured Query examples for LLM training
    */
   private String loadMarkLogicStructuredQueryExamples() {
-    return """
-        🎸 EPIC MARKLOGIC STRUCTURED QUERY EXAMPLES! 🎸
-
-        These examples show the proper JSON format for MarkLogic Structured Queries.
-        Generate queries that follow these patterns exactly:
+    try {
+      org.springframework.core.io.Resource resource = applicationContext
+          .getResource("classpath:" + StructuredQueryExampleCatalog.EXAMPLES_RESOURCE);
+      if (resource != null && resource.exists()) {
+        InputStream inputStream = resource.getInputStream();
+        return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+      } else {
+        logger.warn("🔥 Structured query examples file not found in classpath, using fallback examples");
+      }
+    } catch (IOException | NullPointerException e) {
+      logger.warn("🔥 Could not load structured query examples file: {}", e.getMessage());
+    }
 
+    // Return the basic patterns and the rules as fallback
+    return """
         # 1. SIMPLE TEXT SEARCH
         User: "find documents with Rush"
         {
@@ -1929,197 +2383,6 @@ public class McpService {
           }
         }
 
-        # 3. COMBINED TEXT AND COLLECTION
-        User: "find Rush songs in red collection"
-        {
-          "query": {
-            "and-query": {
-              "queries": [
-                {
-                  "term-query": {
-                    "text": ["Rush"]
-                  }
-                },
-                {
-                  "collection-query": {
-                    "uri": ["red"]
-                  }
-                }
-              ]
-            }
-          }
-        }
-
-        # 4. MULTIPLE TERMS (OR)
-        User: "find documents about drums or bass"
-        {
-          "query": {
-            "or-query": {
-              "queries": [
-                {
-                  "term-query": {
-                    "text": ["drums"]
-                  }
-                },
-                {
-                  "term-query": {
-                    "text": ["bass"]
-                  }
-                }
-              ]
-            }
-          }
-        }
-
-        # 5. ELEMENT QUERIES
-        User: "find songs with title containing Time"
-        {
-          "query": {
-            "element-query": {
-              "element": {
-                "name": "title"
-              },
-              "query": {
-                "term-query": {
-                  "text": ["Time"]
-                }
-              }
-            }
-          }
-        }
-
-        # 6. ATTRIBUTE QUERIES
-        User: "find documents where genre is progressive"
-        {
-          "query": {
-            "element-attribute-query": {
-              "element": {
-                "name": "song"
-              },
-              "attribute": {
-                "name": "genre"
-              },
-              "query": {
-                "term-query": {
-                  "text": ["progressive"]
-                }
-              }
-            }
-          }
-        }
-
-        # 7. RANGE QUERIES (for dates/numbers)
-        User: "find songs from 1980 to 1990"
-        {
-          "query": {
-            "range-query": {
-              "type": "xs:int",
-              "element": {
-                "name": "year"
-              },
-              "operator": "GE",
-              "value": ["1980"]
-            }
-          }
-        }
-
-        # 8. COMPLEX NESTED QUERIES
-        User: "find Rush or Geddy Lee songs in red collection but not from 1970s"
-        {
-          "query": {
-            "and-query": {
-              "queries": [
-                {
-                  "or-query": {
-                    "queries": [
-                      {
-                        "term-query": {
-                          "text": ["Rush"]
-                        }
-                      },
-                      {
-                        "term-query": {
-                          "text": ["Geddy Lee"]
-                        }
-                      }
-                    ]
-                  }
-                },
-                {
-                  "collection-query": {
-                    "uri": ["red"]
-                  }
-                },
-                {
-                  "not-query": {
-                    "query": {
-                      "range-query": {
-                        "type": "xs:int",
-                        "element": {
-                          "name": "year"
-                        },
-                        "operator": "GE",
-                        "value": ["1970"]
-                      }
-                    }
-                  }
-                }
-              ]
-            }
-          }
-        }
-
-        # 9. DOCUMENT QUERIES (specific documents)
-        User: "find document with URI /rush/songs/freewill.xml"
-        {
-          "query": {
-            "document-query": {
-              "uri": ["/rush/songs/freewill.xml"]
-            }
-          }
-        }
-
-        # 10. WILDCARD QUERIES
-        User: "find words starting with rock"
-        {
-          "query": {
-            "term-query": {
-              "text": ["rock*"]
-            }
-          }
-        }
-
-        # 11. PHRASE QUERIES
-        User: "find exact phrase 'Working Man'"
-        {
-          "query": {
-            "term-query": {
-              "text": ["Working Man"]
-            }
-          }
-        }
-
-        # 12. MULTIPLE COLLECTIONS
-        User: "find documents in red or blue collections"
-        {
-          "query": {
-            "or-query": {
-              "queries": [
-                {
-                  "collection-query": {
-                    "uri": ["red"]
-                  }
-                },
-                {
-                  "collection-query": {
-                    "uri": ["blue"]
-                  }
-                }
-              ]
-            }
-          }
-        }
-
         🎸 CRITICAL STRUCTURED QUERY RULES:
         1. Always wrap the main query in a "query" object
         2. Use proper query types: term-query, element-query, collection-query, etc.
@@ -2128,12 +2391,6 @@ public class McpService {
         5. Combine queries with and-query, or-query, not-query
         6. Each query type has specific required properties
         7. Return ONLY valid JSON - no explanations or markdown
-
-        🎸 RESPONSE FORMAT:
-        Generate a single JSON object that represents the structured query.
-        The query will be executed directly against MarkLogic using the Java Client API.
-
-        🎸 Remember: You are the master of MarkLogic structured queries - make them EPIC! 🎸
         """;
   }
 
@@ -0,0 +1,60 @@
+package com.example.mcpserver.service;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 🛑 Abort hooks of the HTTP calls one remote call makes 🛑
+ * Interrupting a thread does not stop a blocking socket read, so cancelling a
+ * tool call's future alone leaves the MarkLogic request running until its own
+ * timeout. While {@link #call(Callable)} runs, HTTP clients register each call
+ * they start with {@link #register(Runnable)} from the calling thread;
+ * {@link #abort()} then cancels the calls themselves.
+ */
+public final class RemoteCallScope {
+
+  private static final ThreadLocal<RemoteCallScope> CURRENT = new ThreadLocal<>();
+
+  private final List<Runnable> aborts = new CopyOnWriteArrayList<>();
+  private volatile boolean aborted;
+
+  /**
+   * Run the call with this scope bound to the current thread
+   */
+  public <T> T call(Callable<T> call) throws Exception {
+    CURRENT.set(this);
+    try {
+      return call.call();
+    } finally {
+      CURRENT.remove();
+    }
+  }
+
+  /**
+   * Register the abort hook of an HTTP call started on this thread - runs
+   * at once when the scope was already aborted. No-op outside a scope.
+   */
+  public static void register(Runnable abort) {
+    RemoteCallScope scope = CURRENT.get();
+    if (scope == null) {
+      return;
+    }
+    scope.aborts.add(abort);
+    if (scope.aborted && scope.aborts.remove(abort)) {
+      abort.run();
+    }
+  }
+
+  public void abort() {
+    aborted = true;
+    for (Runnable abort : aborts) {
+      abort.run();
+    }
+    aborts.clear();
+  }
+
+  public boolean isAborted() {
+    return aborted;
+  }
+}
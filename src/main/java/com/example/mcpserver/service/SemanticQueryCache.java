@@ -0,0 +1,367 @@
+package com.example.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 🎸 Epic semantic cache for search_marklogic - paraphrases welcome! 🎸
+ * Embeds each search prompt with the local MiniLM model and reuses the
+ * structured query generated for an earlier prompt whose cosine similarity is
+ * above the threshold, skipping the LLM. Embeddings barely register the values
+ * in a prompt - "orders over 100 dollars" and "orders over 500 dollars" sit
+ * close together - so a hit also needs the same quoted strings, numbers,
+ * paths and capitalised names in both prompts, as well as the same word in
+ * front of "collection", "directory", "element" and the like, so "the red
+ * collection" never reuses the query for "the blue collection". A small sample of hits still goes to the
+ * LLM and the two queries are compared; a mismatch evicts the cached query and
+ * estimates the false-hit rate.
+ */
+@Service
+public class SemanticQueryCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(SemanticQueryCache.class);
+
+  // Quoted strings, the word naming a collection, directory, element..., a name
+  // after "named" or "called", paths, numbers and capitalised words - the
+  // values a query is built from
+  private static final Pattern LITERAL = Pattern.compile(
+      "\"([^\"]*)\"|(?<![\\p{L}\\d])'([^']*)'(?![\\p{L}\\d])"
+          + "|\\b([\\p{L}\\d_-]+)(?=\\s+(?i:collection|directory|folder|uri|element|attribute|property|field|key"
+          + "|tag|category)s?\\b)"
+          + "|\\b(?i:named|called)\\s+([\\p{L}\\d_./-]+)"
+          + "|(?<![\\p{L}\\d])(/[\\p{L}\\d_./-]+)"
+          + "|(\\d+(?:[.,]\\d+)*)|\\b(\\p{Lu}[\\p{L}\\d_-]*)");
+
+  // Words in front of "collection" and friends that do not name one
+  private static final Set<String> NOT_A_NAME = Set.of("the", "a", "an", "this", "that", "these", "those", "same",
+      "any", "each", "every", "my", "our", "your", "its", "their", "which", "what", "one", "whole", "entire", "in",
+      "of", "by", "from", "for", "and", "or", "to", "with");
+
+  @Autowired
+  private MarkLogicDocsService markLogicDocsService;
+
+  @Value("${mcp.semantic-cache.enabled:true}")
+  private boolean enabled = true;
+
+  @Value("${mcp.semantic-cache.threshold:0.92}")
+  private double threshold = 0.92;
+
+  @Value("${mcp.semantic-cache.max-entries:500}")
+  private int maxEntries = 500;
+
+  @Value("${mcp.semantic-cache.ttl-seconds:86400}")
+  private long ttlSeconds = 86400;
+
+  @Value("${mcp.semantic-cache.verify-sample-rate:0.05}")
+  private double verifySampleRate = 0.05;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final List<Entry> entries = new ArrayList<>();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong sampled = new AtomicLong();
+  private final AtomicLong falseHits = new AtomicLong();
+  private final AtomicLong literalMismatches = new AtomicLong();
+  private final AtomicLong evicted = new AtomicLong();
+
+  private static final class Entry {
+    final String prompt;
+    final float[] vector;
+    final Set<String> literals;
+    final String query;
+    final long createdAt;
+    volatile long lastUsed;
+
+    Entry(String prompt, float[] vector, Set<String> literals, String query) {
+      this.prompt = prompt;
+      this.vector = vector;
+      this.literals = literals;
+      this.query = query;
+      this.createdAt = System.currentTimeMillis();
+      this.lastUsed = createdAt;
+    }
+  }
+
+  /**
+   * Result of a lookup - carries the prompt embedding so a miss can be stored
+   * without embedding the prompt twice.
+   */
+  public static final class Lookup {
+    private final String prompt;
+    private final float[] vector;
+    private final Set<String> literals;
+    private final Entry match;
+    private final double similarity;
+    private final boolean verificationSample;
+
+    Lookup(String prompt, float[] vector, Set<String> literals, Entry match, double similarity,
+        boolean verificationSample) {
+      this.prompt = prompt;
+      this.vector = vector;
+      this.literals = literals;
+      this.match = match;
+      this.similarity = similarity;
+      this.verificationSample = verificationSample;
+    }
+
+    /**
+     * A cached query the caller should use instead of calling the LLM
+     */
+    public boolean isHit() {
+      return match != null && !verificationSample;
+    }
+
+    /**
+     * A hit picked for verification - call the LLM and hand the result to
+     * {@link SemanticQueryCache#verify(Lookup, String)}
+     */
+    public boolean isVerificationSample() {
+      return verificationSample;
+    }
+
+    public String getQuery() {
+      return match != null ? match.query : null;
+    }
+
+    public String getMatchedPrompt() {
+      return match != null ? match.prompt : null;
+    }
+
+    public double getSimilarity() {
+      return similarity;
+    }
+  }
+
+  /**
+   * 🔍 Find the closest earlier prompt above the threshold with the same
+   * literals. Returns null when the cache is disabled or the prompt could not
+   * be embedded.
+   */
+  public Lookup lookup(String prompt) {
+    if (!enabled || prompt == null || prompt.isBlank()) {
+      return null;
+    }
+    float[] vector;
+    try {
+      vector = normalize(markLogicDocsService.embed(prompt.strip()));
+    } catch (Exception e) {
+      logger.warn("🔥 Could not embed search prompt for the semantic cache: {}", e.getMessage());
+      return null;
+    }
+    Set<String> literals = literals(prompt);
+
+    Entry best = null;
+    double bestSimilarity = -1;
+    double nearestSimilarity = -1;
+    long now = System.currentTimeMillis();
+    synchronized (entries) {
+      entries.removeIf(entry -> isExpired(entry, now));
+      for (Entry entry : entries) {
+        double similarity = dot(vector, entry.vector);
+        nearestSimilarity = Math.max(nearestSimilarity, similarity);
+        if (similarity > bestSimilarity && entry.literals.equals(literals)) {
+          bestSimilarity = similarity;
+          best = entry;
+        }
+      }
+    }
+
+    if (best == null || bestSimilarity < threshold) {
+      misses.incrementAndGet();
+      if (nearestSimilarity >= threshold) {
+        literalMismatches.incrementAndGet();
+        logger.debug("🎸 Semantic cache near miss ({}) for '{}' - different values",
+            String.format("%.3f", nearestSimilarity), prompt);
+      }
+      return new Lookup(prompt, vector, literals, null, Math.max(nearestSimilarity, 0), false);
+    }
+
+    best.lastUsed = now;
+    boolean sample = verifySampleRate > 0 && ThreadLocalRandom.current().nextDouble() < verifySampleRate;
+    if (sample) {
+      sampled.incrementAndGet();
+    } else {
+      hits.incrementAndGet();
+    }
+    logger.debug("🎸 Semantic cache {} ({}) for '{}' ~ '{}'", sample ? "sample" : "hit",
+        String.format("%.3f", bestSimilarity), prompt, best.prompt);
+    return new Lookup(prompt, vector, literals, best, bestSimilarity, sample);
+  }
+
+  /**
+   * Remember the query generated for a prompt - call it once the query ran
+   * successfully. Ignored for a hit, and for a verified sample whose cached
+   * query is still there.
+   */
+  public void store(Lookup lookup, String query) {
+    if (lookup == null || query == null) {
+      return;
+    }
+    synchronized (entries) {
+      if (lookup.match != null && entries.contains(lookup.match)) {
+        return;
+      }
+      if (entries.size() >= maxEntries) {
+        entries.stream().min(Comparator.comparingLong(entry -> entry.lastUsed)).ifPresent(entries::remove);
+      }
+      entries.add(new Entry(lookup.prompt, lookup.vector, lookup.literals, query));
+    }
+  }
+
+  /**
+   * 🧪 Compare a sampled hit with what the LLM generated for the new prompt.
+   * A different query counts as a false hit - the threshold is too loose -
+   * and the cached query is evicted, so {@link #store(Lookup, String)} can
+   * put the fresh one in its place.
+   */
+  public boolean verify(Lookup lookup, String freshQuery) {
+    if (lookup == null || !lookup.verificationSample || freshQuery == null) {
+      return true;
+    }
+    boolean same = sameQuery(lookup.getQuery(), freshQuery);
+    if (!same) {
+      falseHits.incrementAndGet();
+      evict(lookup);
+      logger.info("🔥 Semantic cache false hit ({}) - '{}' vs cached '{}'",
+          String.format("%.3f", lookup.similarity), lookup.prompt, lookup.getMatchedPrompt());
+    }
+    return same;
+  }
+
+  /**
+   * Drop the cached query a lookup matched - e.g. when MarkLogic rejected it
+   */
+  public void evict(Lookup lookup) {
+    if (lookup == null || lookup.match == null) {
+      return;
+    }
+    synchronized (entries) {
+      if (entries.remove(lookup.match)) {
+        evicted.incrementAndGet();
+      }
+    }
+  }
+
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new HashMap<>();
+    long hitCount = hits.get();
+    long missCount = misses.get();
+    long sampledCount = sampled.get();
+    long lookups = hitCount + missCount + sampledCount;
+    metrics.put("enabled", enabled);
+    metrics.put("threshold", threshold);
+    metrics.put("hits", hitCount);
+    metrics.put("misses", missCount);
+    metrics.put("hitRate", lookups > 0 ? (double) (hitCount + sampledCount) / lookups : 0.0);
+    metrics.put("sampled", sampledCount);
+    metrics.put("falseHits", falseHits.get());
+    metrics.put("estimatedFalseHitRate", sampledCount > 0 ? (double) falseHits.get() / sampledCount : 0.0);
+    metrics.put("literalMismatches", literalMismatches.get());
+    metrics.put("evicted", evicted.get());
+    synchronized (entries) {
+      metrics.put("size", entries.size());
+    }
+    return metrics;
+  }
+
+  private boolean sameQuery(String cached, String fresh) {
+    try {
+      JsonNode cachedJson = objectMapper.readTree(stripFences(cached));
+      JsonNode freshJson = objectMapper.readTree(stripFences(fresh));
+      return cachedJson.equals(freshJson);
+    } catch (Exception e) {
+      return stripFences(cached).replaceAll("\\s+", "").equals(stripFences(fresh).replaceAll("\\s+", ""));
+    }
+  }
+
+  /**
+   * Quoted strings, collection/directory/element names, paths, numbers and
+   * capitalised words of a prompt. Names are lower-cased, so "Red collection"
+   * and "red collection" agree. Any other first word only counts when it is
+   * all capitals, since every sentence starts upper case.
+   */
+  static Set<String> literals(String prompt) {
+    Set<String> literals = new TreeSet<>();
+    String text = prompt.strip();
+    Matcher matcher = LITERAL.matcher(text);
+    while (matcher.find()) {
+      if (matcher.group(1) != null || matcher.group(2) != null) {
+        String quoted = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+        literals.add("\"" + quoted.strip() + "\"");
+      } else if (matcher.group(3) != null || matcher.group(4) != null) {
+        String name = (matcher.group(3) != null ? matcher.group(3) : matcher.group(4)).toLowerCase(Locale.ROOT);
+        if (!NOT_A_NAME.contains(name)) {
+          literals.add(name);
+        }
+      } else if (matcher.group(5) != null) {
+        literals.add(matcher.group(5));
+      } else if (matcher.group(6) != null) {
+        literals.add(matcher.group(6));
+      } else {
+        String word = matcher.group(7);
+        boolean firstWord = matcher.start() == 0;
+        if (!firstWord || word.length() > 1 && word.equals(word.toUpperCase())) {
+          literals.add(word);
+        }
+      }
+    }
+    return literals;
+  }
+
+  private static String stripFences(String query) {
+    return query.replaceAll("```json\\s*", "").replaceAll("```\\s*", "").trim();
+  }
+
+  private boolean isExpired(Entry entry, long now) {
+    return ttlSeconds > 0 && now - entry.createdAt > ttlSeconds * 1000;
+  }
+
+  private static float[] normalize(float[] vector) {
+    double norm = 0;
+    for (float value : vector) {
+      norm += value * value;
+    }
+    norm = Math.sqrt(norm);
+    if (norm == 0) {
+      return vector;
+    }
+    float[] normalized = new float[vector.length];
+    for (int i = 0; i < vector.length; i++) {
+      normalized[i] = (float) (vector[i] / norm);
+    }
+    return normalized;
+  }
+
+  // Both vectors are normalized, so the dot product is the cosine similarity
+  private static double dot(float[] a, float[] b) {
+    double sum = 0;
+    for (int i = 0; i < Math.min(a.length, b.length); i++) {
+      sum += a[i] * b[i];
+    }
+    return sum;
+  }
+}
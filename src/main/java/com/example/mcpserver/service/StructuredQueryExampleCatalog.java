@@ -0,0 +1,238 @@
+package com.example.mcpserver.service;
+
+import com.example.mcpserver.retrieval.LexicalIndex;
+import com.example.mcpserver.retrieval.TokenEstimator;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 🎸 Epic structured query example catalog - the right riffs for every search! 🎸
+ * Parses structured-query-examples.txt once into typed examples (query type,
+ * example prompt, JSON) and picks the ones closest to each search_marklogic
+ * request: by MiniLM cosine similarity to the example prompts, or by BM25 when
+ * no embedding model is available. The rules section always goes along.
+ */
+@Service
+public class StructuredQueryExampleCatalog {
+
+  private static final Logger logger = LoggerFactory.getLogger(StructuredQueryExampleCatalog.class);
+
+  public static final String EXAMPLES_RESOURCE = "structured-query-examples.txt";
+
+  private static final Pattern EXAMPLE_HEADING = Pattern.compile("^# \\d+\\.\\s+(.+)$");
+  private static final Pattern EXAMPLE_PROMPT = Pattern.compile("^User:\\s*\"(.*)\"\\s*$");
+
+  @Autowired(required = false)
+  private MarkLogicDocsService markLogicDocsService;
+
+  @Value("${mcp.search.examples.top-k:3}")
+  private int topK = 3;
+
+  @Value("${mcp.search.examples.token-budget:600}")
+  private int tokenBudget = 600;
+
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong selectedTokens = new AtomicLong();
+  private final AtomicLong tokensSaved = new AtomicLong();
+
+  private volatile List<Example> examples = List.of();
+  private volatile String rules = "";
+  private volatile LexicalIndex<Example> bm25;
+  private volatile float[][] vectors;
+  private volatile int fullTokens;
+
+  /**
+   * One catalog entry - the query type, the example user prompt and its JSON
+   */
+  public record Example(String type, String prompt, String json) {
+
+    String render() {
+      return "# " + type + "\nUser: \"" + prompt + "\"\n" + json + "\n";
+    }
+  }
+
+  @PostConstruct
+  public void initialize() {
+    try (InputStream inputStream = new ClassPathResource(EXAMPLES_RESOURCE).getInputStream()) {
+      load(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      logger.warn("🔥 Could not load {} - search_marklogic falls back to its built-in examples: {}",
+          EXAMPLES_RESOURCE, e.getMessage());
+    }
+  }
+
+  /**
+   * Parse a full examples text into the catalog
+   */
+  public void load(String text) {
+    List<Example> parsed = new ArrayList<>();
+    StringBuilder rulesText = new StringBuilder();
+    String type = null;
+    String prompt = null;
+    StringBuilder json = null;
+
+    for (String line : text.split("\n", -1)) {
+      Matcher heading = EXAMPLE_HEADING.matcher(line);
+      Matcher user = EXAMPLE_PROMPT.matcher(line);
+      if (heading.matches()) {
+        addExample(parsed, type, prompt, json);
+        type = heading.group(1).trim();
+        prompt = null;
+        json = new StringBuilder();
+      } else if ((line.startsWith("🎸") && !parsed.isEmpty()) || rulesText.length() > 0) {
+        // Everything after the last example is rules - it goes into every prompt
+        addExample(parsed, type, prompt, json);
+        type = null;
+        json = null;
+        rulesText.append(line).append("\n");
+      } else if (type != null && prompt == null && user.matches()) {
+        prompt = user.group(1);
+      } else if (json != null && prompt != null) {
+        json.append(line).append("\n");
+      }
+    }
+    addExample(parsed, type, prompt, json);
+
+    examples = List.copyOf(parsed);
+    rules = rulesText.toString().trim();
+    bm25 = LexicalIndex.of(parsed, example -> example.type() + " " + example.prompt() + " " + example.json());
+    vectors = null;
+    fullTokens = TokenEstimator.estimate(text);
+    logger.info("🎸 Loaded {} structured query examples (~{} tokens for the whole text)", parsed.size(), fullTokens);
+  }
+
+  public boolean isLoaded() {
+    return !examples.isEmpty();
+  }
+
+  public List<Example> getExamples() {
+    return examples;
+  }
+
+  /**
+   * 🔍 The examples for this search prompt - the closest ones, in rank order,
+   * within the token budget - followed by the rules.
+   */
+  public String select(String searchPrompt) {
+    List<Example> ranked = rank(searchPrompt);
+
+    StringBuilder selected = new StringBuilder(
+        "These examples show the proper JSON format for MarkLogic Structured Queries.\n\n");
+    int used = TokenEstimator.estimate(selected.toString()) + TokenEstimator.estimate(rules);
+    int count = 0;
+    for (Example example : ranked) {
+      if (count >= topK) {
+        break;
+      }
+      String block = example.render() + "\n";
+      int cost = TokenEstimator.estimate(block);
+      if (used + cost > tokenBudget) {
+        continue;
+      }
+      selected.append(block);
+      used += cost;
+      count++;
+    }
+    selected.append(rules).append("\n");
+
+    requests.incrementAndGet();
+    selectedTokens.addAndGet(used);
+    tokensSaved.addAndGet(Math.max(0, fullTokens - used));
+    logger.debug("🎸 Selected {} structured query examples (~{} of ~{} tokens) for: {}", count, used, fullTokens,
+        searchPrompt);
+    return selected.toString();
+  }
+
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new HashMap<>();
+    long requestCount = requests.get();
+    metrics.put("examples", examples.size());
+    metrics.put("requests", requestCount);
+    metrics.put("fullTextTokens", fullTokens);
+    metrics.put("avgSelectedTokens", requestCount > 0 ? selectedTokens.get() / requestCount : 0);
+    metrics.put("tokensSaved", tokensSaved.get());
+    metrics.put("avgTokensSaved", requestCount > 0 ? tokensSaved.get() / requestCount : 0);
+    metrics.put("similarity", markLogicDocsService != null ? "embedding" : "bm25");
+    return metrics;
+  }
+
+  /**
+   * Every example, most similar first. Falls back to BM25 (and then to catalog
+   * order) when the prompt cannot be embedded.
+   */
+  private List<Example> rank(String searchPrompt) {
+    List<Example> current = examples;
+    if (markLogicDocsService != null) {
+      try {
+        float[][] exampleVectors = exampleVectors(current);
+        float[] query = markLogicDocsService.embed(searchPrompt);
+        List<Integer> order = new ArrayList<>();
+        double[] scores = new double[current.size()];
+        for (int i = 0; i < current.size(); i++) {
+          scores[i] = cosine(query, exampleVectors[i]);
+          order.add(i);
+        }
+        order.sort(Comparator.comparingDouble((Integer i) -> scores[i]).reversed());
+        return order.stream().map(current::get).toList();
+      } catch (Exception e) {
+        logger.warn("🔥 Could not embed search prompt for example selection: {}", e.getMessage());
+      }
+    }
+
+    List<Example> ranked = new ArrayList<>(bm25.search(searchPrompt, current.size()).stream()
+        .map(LexicalIndex.Hit::item).toList());
+    if (ranked.isEmpty()) {
+      ranked.addAll(current);
+    }
+    return ranked;
+  }
+
+  // Embedded on first use - the model is shared with the docs index and the semantic cache
+  private synchronized float[][] exampleVectors(List<Example> current) {
+    if (vectors == null || vectors.length != current.size()) {
+      float[][] embedded = new float[current.size()][];
+      for (int i = 0; i < current.size(); i++) {
+        Example example = current.get(i);
+        embedded[i] = markLogicDocsService.embed(example.type() + ": " + example.prompt());
+      }
+      vectors = embedded;
+    }
+    return vectors;
+  }
+
+  private static void addExample(List<Example> parsed, String type, String prompt, StringBuilder json) {
+    if (type == null || prompt == null || json == null || json.toString().isBlank()) {
+      return;
+    }
+    parsed.add(new Example(type, prompt, json.toString().trim()));
+  }
+
+  private static double cosine(float[] a, float[] b) {
+    double dot = 0;
+    double normA = 0;
+    double normB = 0;
+    for (int i = 0; i < Math.min(a.length, b.length); i++) {
+      dot += a[i] * b[i];
+      normA += a[i] * a[i];
+      normB += b[i] * b[i];
+    }
+    return normA == 0 || normB == 0 ? 0 : dot / (Math.sqrt(normA) * Math.sqrt(normB));
+  }
+}
@@ -0,0 +1,148 @@
+package com.example.mcpserver.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 🎸 Per-call context for tools/call - who asked, where progress goes, and
+ * whether the client has since cancelled the call 🎸
+ * Built by the transports from the JSON-RPC request and handed to
+ * {@link McpService#callTool(String, Map, ToolCallContext)}. Remote calls made
+ * on behalf of the tool register an abort hook with {@link #onCancel(Runnable)}
+ * and wait no longer than {@link #remainingMillis()}.
+ */
+public class ToolCallContext {
+
+  private final Object requestId;
+  private final String clientId;
+  private final Object progressToken;
+  private final AtomicBoolean cancelled = new AtomicBoolean();
+  private final List<Runnable> cancelHandlers = new CopyOnWriteArrayList<>();
+  // The budget starts when the request arrives, so time spent queued counts
+  private final long createdAtNanos = System.nanoTime();
+  private volatile long timeoutMs;
+
+  public ToolCallContext(Object requestId, String clientId, Object progressToken) {
+    this(requestId, clientId, progressToken, 0);
+  }
+
+  public ToolCallContext(Object requestId, String clientId, Object progressToken, long timeoutMs) {
+    this.requestId = requestId;
+    this.clientId = clientId;
+    this.progressToken = progressToken;
+    this.timeoutMs = Math.max(0, timeoutMs);
+  }
+
+  /**
+   * Context for callers that are not tied to a client request (tests, REST API)
+   */
+  public static ToolCallContext none() {
+    return new ToolCallContext(null, null, null);
+  }
+
+  /**
+   * Build the context from tools/call params, picking up the optional
+   * {@code _meta.progressToken} and {@code _meta.timeoutMs} the client sent.
+   */
+  public static ToolCallContext from(Object requestId, Map<String, Object> params, String clientId) {
+    Object progressToken = null;
+    long timeoutMs = 0;
+    if (params != null && params.get("_meta") instanceof Map<?, ?> meta) {
+      progressToken = meta.get("progressToken");
+      if (meta.get("timeoutMs") instanceof Number timeout) {
+        timeoutMs = timeout.longValue();
+      }
+    }
+    return new ToolCallContext(requestId, clientId, progressToken, timeoutMs);
+  }
+
+  public Object getRequestId() {
+    return requestId;
+  }
+
+  public String getClientId() {
+    return clientId;
+  }
+
+  public Object getProgressToken() {
+    return progressToken;
+  }
+
+  public boolean hasProgressToken() {
+    return progressToken != null;
+  }
+
+  /**
+   * ⏱️ Use the per-tool default when the client did not ask for a deadline
+   */
+  public void applyDefaultTimeout(long defaultTimeoutMs) {
+    if (timeoutMs == 0 && defaultTimeoutMs > 0) {
+      timeoutMs = defaultTimeoutMs;
+    }
+  }
+
+  public boolean hasDeadline() {
+    return timeoutMs > 0;
+  }
+
+  public long getTimeoutMs() {
+    return timeoutMs;
+  }
+
+  /**
+   * Time left before the deadline - never negative, Long.MAX_VALUE without one
+   */
+  public long remainingMillis() {
+    if (!hasDeadline()) {
+      return Long.MAX_VALUE;
+    }
+    long elapsedMs = (System.nanoTime() - createdAtNanos) / 1_000_000;
+    return Math.max(0, timeoutMs - elapsedMs);
+  }
+
+  public boolean isExpired() {
+    return hasDeadline() && remainingMillis() == 0;
+  }
+
+  /**
+   * 🛑 Cancel the call and run every registered abort hook. Returns false when
+   * the call was already cancelled.
+   */
+  public boolean cancel() {
+    if (!cancelled.compareAndSet(false, true)) {
+      return false;
+    }
+    for (Runnable handler : cancelHandlers) {
+      handler.run();
+    }
+    cancelHandlers.clear();
+    return true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled.get();
+  }
+
+  public void throwIfCancelled() {
+    if (isCancelled()) {
+      throw new CancellationException("Request cancelled by client");
+    }
+  }
+
+  /**
+   * Register an abort hook - runs immediately when the call is already cancelled
+   */
+  public void onCancel(Runnable handler) {
+    cancelHandlers.add(handler);
+    if (isCancelled() && cancelHandlers.remove(handler)) {
+      handler.run();
+    }
+  }
+
+  public void removeOnCancel(Runnable handler) {
+    cancelHandlers.remove(handler);
+  }
+}
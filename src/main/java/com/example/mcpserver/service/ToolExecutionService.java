@@ -0,0 +1,101 @@
+package com.example.mcpserver.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🎸 Asynchronous tools/call execution - free the request threads! 🎸
+ * Runs tool calls on the dedicated mcpToolExecutor and keeps count of how many
+ * are waiting in the queue versus actually running.
+ */
+@Service
+public class ToolExecutionService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ToolExecutionService.class);
+
+  @Autowired
+  private McpService mcpService;
+
+  @Autowired
+  @Qualifier("mcpToolExecutor")
+  private ThreadPoolTaskExecutor toolExecutor;
+
+  private final AtomicInteger queued = new AtomicInteger();
+  private final AtomicInteger running = new AtomicInteger();
+  private final AtomicLong completed = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong totalQueueWaitMs = new AtomicLong();
+  private final AtomicLong maxQueueWaitMs = new AtomicLong();
+
+  /**
+   * 🚀 Queue a tool call. The returned future completes with the MCP tool
+   * result, exceptionally with {@link TaskRejectedException} when the
+   * executor queue is full, or with {@link CancellationException} as soon as
+   * the client cancels the call - queued or running.
+   */
+  public CompletableFuture<Map<String, Object>> submit(String toolName, Map<String, Object> arguments,
+      ToolCallContext context) {
+    CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+    long enqueuedAt = System.currentTimeMillis();
+    queued.incrementAndGet();
+    mcpService.trackOperation(context);
+    context.onCancel(() -> future.completeExceptionally(new CancellationException("Request cancelled by client")));
+
+    try {
+      toolExecutor.execute(() -> {
+        queued.decrementAndGet();
+        if (context.isCancelled()) {
+          // Cancelled while waiting in the queue - never start the work
+          mcpService.untrackOperation(context);
+          return;
+        }
+        running.incrementAndGet();
+        long waitMs = System.currentTimeMillis() - enqueuedAt;
+        totalQueueWaitMs.addAndGet(waitMs);
+        maxQueueWaitMs.accumulateAndGet(waitMs, Math::max);
+        try {
+          future.complete(mcpService.callTool(toolName, arguments, context));
+        } catch (Throwable t) {
+          future.completeExceptionally(t);
+        } finally {
+          running.decrementAndGet();
+          completed.incrementAndGet();
+        }
+      });
+    } catch (TaskRejectedException e) {
+      queued.decrementAndGet();
+      mcpService.untrackOperation(context);
+      rejected.incrementAndGet();
+      logger.warn("🔥 Tool executor saturated - rejecting call to {}", toolName);
+      future.completeExceptionally(e);
+    }
+
+    return future;
+  }
+
+  public Map<String, Object> getMetrics() {
+    Map<String, Object> metrics = new HashMap<>();
+    long completedCalls = completed.get();
+    metrics.put("queued", queued.get());
+    metrics.put("running", running.get());
+    metrics.put("completed", completedCalls);
+    metrics.put("rejected", rejected.get());
+    metrics.put("poolSize", toolExecutor.getMaxPoolSize());
+    metrics.put("activeThreads", toolExecutor.getActiveCount());
+    metrics.put("avgQueueWaitMs", completedCalls > 0 ? totalQueueWaitMs.get() / completedCalls : 0);
+    metrics.put("maxQueueWaitMs", maxQueueWaitMs.get());
+    return metrics;
+  }
+}
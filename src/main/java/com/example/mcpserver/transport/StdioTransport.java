@@ -0,0 +1,282 @@
+package com.example.mcpserver.transport;
+
+import com.example.mcpserver.model.McpRequest;
+import com.example.mcpserver.model.McpResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 🎸 Pipelined stdio transport - every request gets its own stage! 🎸
+ * Reads JSON-RPC lines from stdin and dispatches each request onto a worker
+ * pool, so a slow tools/call no longer blocks ping or tools/list behind it.
+ * Responses are written by a single writer thread in completion order and are
+ * correlated by their JSON-RPC id.
+ */
+public class StdioTransport {
+
+    private static final String END_OF_STREAM = "\u0000EOF";
+
+    private final ObjectMapper objectMapper;
+    private final Function<McpRequest, Object> requestHandler;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final ExecutorService workers;
+    private final BlockingQueue<String> outbound = new LinkedBlockingQueue<>();
+
+    public StdioTransport(ObjectMapper objectMapper, Function<McpRequest, Object> requestHandler, int maxInFlight) {
+        this.objectMapper = objectMapper;
+        this.requestHandler = requestHandler;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.inFlight = new Semaphore(this.maxInFlight);
+        this.workers = createWorkerPool();
+    }
+
+    /**
+     * Run the read loop until stdin closes, then drain in-flight requests and
+     * flush the remaining responses.
+     */
+    public void run(InputStream in, PrintStream out) {
+        Thread writer = new Thread(() -> writeLoop(out), "mcp-stdio-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            System.err.println("MCP stdio server started (max in-flight: " + maxInFlight + "), waiting for requests...");
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                System.err.println("Received: " + line);
+                dispatch(line);
+            }
+        } catch (Exception e) {
+            System.err.println("Error in stdio loop: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            shutdown(writer);
+        }
+    }
+
+    private void dispatch(String line) throws InterruptedException {
+        JsonNode message;
+        try {
+            message = objectMapper.readTree(line);
+        } catch (Exception e) {
+            System.err.println("Error parsing request: " + e.getMessage());
+            enqueue(new McpResponse(null, new McpResponse.McpError(-32700, "Parse error", e.getMessage())));
+            return;
+        }
+
+        if (message.isArray()) {
+            dispatchBatch(message);
+            return;
+        }
+
+        McpRequest request;
+        try {
+            request = objectMapper.treeToValue(message, McpRequest.class);
+        } catch (Exception e) {
+            System.err.println("Invalid request: " + e.getMessage());
+            enqueue(new McpResponse(null, new McpResponse.McpError(-32600, "Invalid Request", e.getMessage())));
+            return;
+        }
+
+        if (request.isNotification()) {
+            // Notifications are cheap and order sensitive (initialized, cancelled) - handle inline
+            handleNotification(request);
+            return;
+        }
+
+        submit(() -> {
+            McpResponse response = process(request);
+            if (response != null) {
+                enqueue(response);
+            }
+        });
+    }
+
+    /**
+     * Every request in a JSON-RPC batch takes its own in-flight slot, exactly
+     * like a request sent on its own - so max in-flight bounds a batch too, and
+     * 1 still means strictly sequential. The responses are written as one array
+     * in request order once the last member finishes. Notifications inside the
+     * batch are handled inline and produce no entries.
+     */
+    private void dispatchBatch(JsonNode batch) throws InterruptedException {
+        if (batch.isEmpty()) {
+            enqueue(new McpResponse(null, new McpResponse.McpError(-32600, "Invalid Request", "Empty batch")));
+            return;
+        }
+        System.err.println("Received batch of " + batch.size() + " requests");
+
+        List<CompletableFuture<McpResponse>> pending = new ArrayList<>();
+        for (JsonNode member : batch) {
+            McpRequest request;
+            try {
+                request = objectMapper.treeToValue(member, McpRequest.class);
+            } catch (Exception e) {
+                pending.add(CompletableFuture.completedFuture(new McpResponse(null,
+                        new McpResponse.McpError(-32600, "Invalid Request", e.getMessage()))));
+                continue;
+            }
+            if (request.isNotification()) {
+                handleNotification(request);
+                continue;
+            }
+            CompletableFuture<McpResponse> response = new CompletableFuture<>();
+            submit(() -> {
+                try {
+                    response.complete(process(request));
+                } catch (Throwable t) {
+                    response.complete(new McpResponse(request.getId(),
+                            new McpResponse.McpError(-32603, "Internal error", t.getMessage())));
+                }
+            });
+            pending.add(response);
+        }
+
+        // Runs on the worker that finishes last, before it gives back its slot
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).thenRun(() -> {
+            List<McpResponse> responses = pending.stream()
+                    .map(CompletableFuture::join)
+                    .filter(Objects::nonNull)
+                    .toList();
+            if (!responses.isEmpty()) {
+                enqueue(responses);
+            }
+        });
+    }
+
+    private void submit(Runnable task) throws InterruptedException {
+        // Back-pressure: stop reading once max in-flight requests are running
+        inFlight.acquire();
+        try {
+            workers.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private void handleNotification(McpRequest request) {
+        System.err.println("Handling notification: " + request.getMethod());
+        try {
+            requestHandler.apply(request);
+            System.err.println("Notification processed");
+        } catch (Exception e) {
+            System.err.println("Error processing notification: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Server-initiated notifications share the writer with responses so lines
+     * never interleave on stdout.
+     */
+    public void sendNotification(String json) {
+        outbound.add(json);
+    }
+
+    /**
+     * Returns null for a request the client cancelled - per MCP no response is
+     * sent for it.
+     */
+    private McpResponse process(McpRequest request) {
+        try {
+            System.err.println("Parsed request method: " + request.getMethod() + " (id: " + request.getId() + ")");
+            Object result = requestHandler.apply(request);
+            return new McpResponse(request.getId(), result);
+        } catch (CancellationException e) {
+            System.err.println("Request " + request.getId() + " cancelled - no response sent");
+            return null;
+        } catch (Exception e) {
+            System.err.println("Error processing request " + request.getId() + ": " + e.getMessage());
+            e.printStackTrace();
+            return new McpResponse(request.getId(),
+                    new McpResponse.McpError(-32603, "Internal error", e.getMessage()));
+        }
+    }
+
+    private void enqueue(Object response) {
+        try {
+            outbound.add(objectMapper.writeValueAsString(response));
+        } catch (Exception e) {
+            System.err.println("Failed to serialize response: " + e.getMessage());
+        }
+    }
+
+    private void writeLoop(PrintStream out) {
+        try {
+            while (true) {
+                String responseJson = outbound.take();
+                if (END_OF_STREAM.equals(responseJson)) {
+                    return;
+                }
+                System.err.println("Sending response: " + responseJson);
+                out.println(responseJson);
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void shutdown(Thread writer) {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.MINUTES)) {
+                System.err.println("Timed out waiting for in-flight requests to finish");
+                workers.shutdownNow();
+            }
+            outbound.add(END_OF_STREAM);
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Virtual threads where the runtime provides them (JDK 21+), otherwise a
+     * cached pool of daemon threads. The in-flight semaphore bounds either one.
+     */
+    private static ExecutorService createWorkerPool() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "mcp-stdio-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(threadFactory);
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
 
 import java.util.Map;
 
@@ -90,9 +91,7 @@ class MarkLogicSearchToolIntegrationTest {
                                     "prompt", "Find documents about machine learning algorithms")));
 
             // When & Then
-            MvcResult result = mockMvc.perform(post("/mcp")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .content(objectMapper.writeValueAsString(mcpRequest)))
+            MvcResult result = performToolCall(mcpRequest)
                     .andDo(print())
                     .andExpect(status().isOk())
                     .andExpect(jsonPath("$.jsonrpc").value("2.0"))
@@ -124,9 +123,7 @@ class MarkLogicSearchToolIntegrationTest {
                                     "prompt", "")));
 
             // When & Then
-            MvcResult result = mockMvc.perform(post("/mcp")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .content(objectMapper.writeValueAsString(mcpRequest)))
+            MvcResult result = performToolCall(mcpRequest)
                     .andDo(print())
                     .andExpect(status().isOk())
                     .andExpect(jsonPath("$.jsonrpc").value("2.0"))
@@ -155,9 +152,7 @@ class MarkLogicSearchToolIntegrationTest {
                                     "other_param", "value")));
 
             // When & Then
-            MvcResult result = mockMvc.perform(post("/mcp")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .content(objectMapper.writeValueAsString(mcpRequest)))
+            MvcResult result = performToolCall(mcpRequest)
                     .andDo(print())
                     .andExpect(status().isOk())
                     .andExpect(jsonPath("$.jsonrpc").value("2.0"))
@@ -186,9 +181,7 @@ class MarkLogicSearchToolIntegrationTest {
                                             "'neural networks' or 'deep learning' created after 2023-01-01")));
 
             // When & Then
-            MvcResult result = mockMvc.perform(post("/mcp")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .content(objectMapper.writeValueAsString(mcpRequest)))
+            MvcResult result = performToolCall(mcpRequest)
                     .andDo(print())
                     .andExpect(status().isOk())
                     .andExpect(jsonPath("$.jsonrpc").value("2.0"))
@@ -223,9 +216,7 @@ class MarkLogicSearchToolIntegrationTest {
                                     "prompt", "metadata test query")));
 
             // When & Then
-            MvcResult result = mockMvc.perform(post("/mcp")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .content(objectMapper.writeValueAsString(mcpRequest)))
+            MvcResult result = performToolCall(mcpRequest)
                     .andDo(print())
                     .andExpect(status().isOk())
                     .andExpect(jsonPath("$.result.metadata").exists())
@@ -262,9 +253,7 @@ class MarkLogicSearchToolIntegrationTest {
                     ));
 
             // When & Then
-            mockMvc.perform(post("/mcp")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .content(objectMapper.writeValueAsString(mcpRequest)))
+            performToolCall(mcpRequest)
                     .andDo(print())
                     .andExpect(status().isOk())
                     .andExpect(jsonPath("$.jsonrpc").value("2.0"))
@@ -314,9 +303,7 @@ class MarkLogicSearchToolIntegrationTest {
 
             // When & Then - Make multiple requests rapidly
             for (int i = 0; i < 3; i++) {
-                mockMvc.perform(post("/mcp")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content(objectMapper.writeValueAsString(mcpRequest)))
+                performToolCall(mcpRequest)
                         .andExpect(status().isOk())
                         .andExpect(jsonPath("$.jsonrpc").value("2.0"));
             }
@@ -342,9 +329,7 @@ class MarkLogicSearchToolIntegrationTest {
             // When & Then
             long startTime = System.currentTimeMillis();
 
-            MvcResult result = mockMvc.perform(post("/mcp")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .content(objectMapper.writeValueAsString(mcpRequest)))
+            MvcResult result = performToolCall(mcpRequest)
                     .andDo(print())
                     .andExpect(status().isOk())
                     .andExpect(jsonPath("$.jsonrpc").value("2.0"))
@@ -381,9 +366,7 @@ class MarkLogicSearchToolIntegrationTest {
                                     "prompt", "format test query")));
 
             // When & Then
-            MvcResult result = mockMvc.perform(post("/mcp")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .content(objectMapper.writeValueAsString(mcpRequest)))
+            MvcResult result = performToolCall(mcpRequest)
                     .andDo(print())
                     .andExpect(status().isOk())
                     .andExpect(jsonPath("$.result.mimeType").value("text/markdown"))
@@ -414,9 +397,7 @@ class MarkLogicSearchToolIntegrationTest {
                                     "prompt", "comprehensive query examples")));
 
             // When & Then
-            MvcResult result = mockMvc.perform(post("/mcp")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .content(objectMapper.writeValueAsString(mcpRequest)))
+            MvcResult result = performToolCall(mcpRequest)
                     .andDo(print())
                     .andExpect(status().isOk())
                     .andExpect(jsonPath("$.result.isError").value(false))
@@ -428,4 +409,17 @@ class MarkLogicSearchToolIntegrationTest {
             assertTrue(responseContent.contains("MarkLogic") || responseContent.contains("query"));
         }
     }
+
+    /**
+     * tools/call is answered asynchronously - wait for the DeferredResult and
+     * dispatch it to get the JSON-RPC response.
+     */
+    private ResultActions performToolCall(Map<String, Object> mcpRequest) throws Exception {
+        MvcResult pending = mockMvc.perform(post("/mcp")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(mcpRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(pending));
+    }
 }
@@ -9,7 +9,10 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
 
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -109,9 +112,7 @@ class McpControllerIntegrationTest {
                                                                 "maxTokens", 50)));
 
                 // When & Then
-                mockMvc.perform(post("/mcp")
-                                .contentType(MediaType.APPLICATION_JSON)
-                                .content(objectMapper.writeValueAsString(mcpRequest)))
+                performToolCall(mcpRequest)
                                 .andDo(print())
                                 .andExpect(status().isOk())
                                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
@@ -136,9 +137,7 @@ class McpControllerIntegrationTest {
                                                 "arguments", Map.of()));
 
                 // When & Then
-                mockMvc.perform(post("/mcp")
-                                .contentType(MediaType.APPLICATION_JSON)
-                                .content(objectMapper.writeValueAsString(mcpRequest)))
+                performToolCall(mcpRequest)
                                 .andDo(print())
                                 .andExpect(status().isOk())
                                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
@@ -271,6 +270,199 @@ class McpControllerIntegrationTest {
                                 .andExpect(status().isBadRequest());
         }
 
+        @Test
+        @Order(11)
+        @DisplayName("🎸 Should answer a JSON-RPC batch in request order")
+        void shouldAnswerBatchInRequestOrder() throws Exception {
+                // Given
+                List<Map<String, Object>> batch = List.of(
+                                Map.of("jsonrpc", "2.0", "id", 11, "method", "tools/list"),
+                                Map.of("jsonrpc", "2.0", "method", "notifications/initialized"),
+                                Map.of("jsonrpc", "2.0", "id", 12, "method", "resources/list"),
+                                Map.of("jsonrpc", "2.0", "id", 13, "method", "prompts/list"));
+
+                // When & Then
+                performAsync(batch)
+                                .andDo(print())
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.length()").value(3))
+                                .andExpect(jsonPath("$[0].id").value(11))
+                                .andExpect(jsonPath("$[0].result.tools").isArray())
+                                .andExpect(jsonPath("$[1].id").value(12))
+                                .andExpect(jsonPath("$[1].result.resources").isArray())
+                                .andExpect(jsonPath("$[2].id").value(13))
+                                .andExpect(jsonPath("$[2].result.prompts").isArray());
+        }
+
+        @Test
+        @Order(12)
+        @DisplayName("🎸 Should accept a batch of only notifications without a body")
+        void shouldAcceptNotificationOnlyBatch() throws Exception {
+                List<Map<String, Object>> batch = List.of(
+                                Map.of("jsonrpc", "2.0", "method", "notifications/initialized"));
+
+                performAsync(batch)
+                                .andExpect(status().isAccepted())
+                                .andExpect(content().string(""));
+        }
+
+        @Test
+        @Order(13)
+        @DisplayName("🔥 Should reject an empty batch")
+        void shouldRejectEmptyBatch() throws Exception {
+                mockMvc.perform(post("/mcp")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.error.code").value(-32600));
+        }
+
+        @Test
+        @Order(14)
+        @DisplayName("📡 Should hand out a session id on initialize")
+        void shouldHandOutSessionIdOnInitialize() throws Exception {
+                Map<String, Object> mcpRequest = Map.of(
+                                "jsonrpc", "2.0",
+                                "id", 14,
+                                "method", "initialize",
+                                "params", Map.of("protocolVersion", "2024-11-05"));
+
+                mockMvc.perform(post("/mcp")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(mcpRequest)))
+                                .andExpect(status().isOk())
+                                .andExpect(header().exists("Mcp-Session-Id"))
+                                .andExpect(jsonPath("$.result.capabilities.logging").exists());
+        }
+
+        @Test
+        @Order(15)
+        @DisplayName("📡 Should open an SSE notification stream for a session")
+        void shouldOpenSseNotificationStream() throws Exception {
+                // Given - a session id issued by initialize
+                Map<String, Object> initialize = Map.of(
+                                "jsonrpc", "2.0",
+                                "id", 15,
+                                "method", "initialize",
+                                "params", Map.of("protocolVersion", "2024-11-05"));
+                String sessionId = mockMvc.perform(post("/mcp")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(initialize)))
+                                .andReturn().getResponse().getHeader("Mcp-Session-Id");
+
+                // When & Then
+                mockMvc.perform(get("/mcp")
+                                .accept(MediaType.TEXT_EVENT_STREAM)
+                                .header("Mcp-Session-Id", sessionId))
+                                .andExpect(request().asyncStarted())
+                                .andExpect(header().string("Mcp-Session-Id", sessionId));
+        }
+
+        @Test
+        @Order(15)
+        @DisplayName("🚫 Should refuse session ids the server never issued")
+        void shouldRejectUnknownSessionIds() throws Exception {
+                mockMvc.perform(get("/mcp")
+                                .accept(MediaType.TEXT_EVENT_STREAM)
+                                .header("Mcp-Session-Id", "guessed-session"))
+                                .andExpect(status().isNotFound());
+
+                mockMvc.perform(delete("/mcp")
+                                .header("Mcp-Session-Id", "guessed-session"))
+                                .andExpect(status().isNotFound());
+
+                mockMvc.perform(post("/mcp")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Mcp-Session-Id", "guessed-session")
+                                .content(objectMapper.writeValueAsString(
+                                                Map.of("jsonrpc", "2.0", "id", 150, "method", "ping"))))
+                                .andExpect(status().isNotFound());
+        }
+
+        @Test
+        @Order(16)
+        @DisplayName("📊 Should report queued vs running tool calls")
+        void shouldReportToolExecutionMetrics() throws Exception {
+                mockMvc.perform(get("/mcp/metrics"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.tools.queued").isNumber())
+                                .andExpect(jsonPath("$.tools.running").isNumber())
+                                .andExpect(jsonPath("$.tools.completed").isNumber())
+                                .andExpect(jsonPath("$.notifications.connectedClients").isNumber());
+        }
+
+        @Test
+        @Order(17)
+        @DisplayName("🏷️ Should answer 304 for tools/list when the ETag still matches")
+        void shouldAnswerNotModifiedForMatchingEtag() throws Exception {
+                // Given
+                Map<String, Object> mcpRequest = Map.of("jsonrpc", "2.0", "id", 17, "method", "tools/list");
+                MvcResult first = mockMvc.perform(post("/mcp")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(mcpRequest)))
+                                .andExpect(status().isOk())
+                                .andExpect(header().exists("ETag"))
+                                .andExpect(jsonPath("$.result.tools").isArray())
+                                .andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+
+                // When & Then
+                mockMvc.perform(post("/mcp")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("If-None-Match", etag)
+                                .content(objectMapper.writeValueAsString(mcpRequest)))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", etag));
+        }
+
+        @Test
+        @Order(18)
+        @DisplayName("🛑 Should reject a cancellation that carries no session")
+        void shouldRejectSessionlessCancellation() throws Exception {
+                // Given
+                Map<String, Object> cancel = Map.of(
+                                "jsonrpc", "2.0",
+                                "method", "notifications/cancelled",
+                                "params", Map.of("requestId", 18, "reason", "User gave up"));
+
+                // When & Then
+                mockMvc.perform(post("/mcp")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(cancel)))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.error.code").value(-32600))
+                                .andExpect(jsonPath("$.error.message").value("Session required"));
+        }
+
+        @Test
+        @Order(19)
+        @DisplayName("🛑 Should accept a cancellation within a session")
+        void shouldAcceptCancellationWithinSession() throws Exception {
+                // Given - a session id issued by initialize
+                Map<String, Object> initialize = Map.of(
+                                "jsonrpc", "2.0",
+                                "id", 19,
+                                "method", "initialize",
+                                "params", Map.of("protocolVersion", "2024-11-05"));
+                String sessionId = mockMvc.perform(post("/mcp")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(initialize)))
+                                .andReturn().getResponse().getHeader("Mcp-Session-Id");
+                Map<String, Object> cancel = Map.of(
+                                "jsonrpc", "2.0",
+                                "method", "notifications/cancelled",
+                                "params", Map.of("requestId", 19));
+
+                // When & Then
+                mockMvc.perform(post("/mcp")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .header("Mcp-Session-Id", sessionId)
+                                .content(objectMapper.writeValueAsString(cancel)))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.result.cancelled").value(true))
+                                .andExpect(jsonPath("$.result.running").value(false));
+        }
+
         @AfterEach
         void logTestCompletion(TestInfo testInfo) {
                 System.out.println("✅ Completed: " + testInfo.getDisplayName());
@@ -281,4 +473,21 @@ class McpControllerIntegrationTest {
                         Assumptions.assumeTrue(false, message);
                 }
         }
+
+        /**
+         * tools/call and batches are answered asynchronously - wait for the
+         * DeferredResult and dispatch it to get the JSON-RPC response.
+         */
+        private ResultActions performToolCall(Map<String, Object> mcpRequest) throws Exception {
+                return performAsync(mcpRequest);
+        }
+
+        private ResultActions performAsync(Object body) throws Exception {
+                MvcResult pending = mockMvc.perform(post("/mcp")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(body)))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                return mockMvc.perform(asyncDispatch(pending));
+        }
 }
@@ -0,0 +1,167 @@
+package com.example.mcpserver.retrieval;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 🎸 Epic compact vector store tests - small bytes, same answers! 🎸
+ */
+@DisplayName("🎸 CompactVectorStore Tests")
+class CompactVectorStoreTest {
+
+    private static final int DIMENSION = 48;
+
+    private final List<Embedding> embeddings = new ArrayList<>();
+    private final InMemoryEmbeddingStore<TextSegment> exact = new InMemoryEmbeddingStore<>();
+    private final Random random = new Random(5);
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 1000; i++) {
+            Embedding embedding = Embedding.from(randomVector());
+            embeddings.add(embedding);
+            exact.addAll(List.of("id-" + i), List.of(embedding), List.of(TextSegment.from("chunk " + i)));
+        }
+    }
+
+    @Test
+    @DisplayName("Should return the exact top matches and scores with int8 codes and re-ranking")
+    void shouldMatchExactWithInt8() {
+        // Given
+        CompactVectorStore<TextSegment> store = filledStore(CompactVectorStore.Quantization.INT8, 4);
+
+        // Then
+        assertSameResults(store, 1.0);
+        assertEquals("int8", store.getMetrics().get("quantization"));
+        assertTrue((Long) store.getMetrics().get("offHeapBytes") >= 1000L * DIMENSION * 5);
+    }
+
+    @Test
+    @DisplayName("Should keep most of the top matches with binary codes and a wide re-rank")
+    void shouldMostlyMatchExactWithBinary() {
+        // Given
+        CompactVectorStore<TextSegment> store = filledStore(CompactVectorStore.Quantization.BINARY, 20);
+
+        // Then
+        assertSameResults(store, 0.7);
+    }
+
+    @Test
+    @DisplayName("Should not return removed vectors")
+    void shouldSkipRemovedVectors() {
+        // Given
+        CompactVectorStore<TextSegment> store = filledStore(CompactVectorStore.Quantization.INT8, 4);
+        EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                .queryEmbedding(embeddings.get(7))
+                .maxResults(1)
+                .build();
+
+        // When
+        String before = store.search(request).matches().get(0).embeddingId();
+        store.removeAll(List.of("id-7"));
+        String after = store.search(request).matches().get(0).embeddingId();
+
+        // Then
+        assertEquals("id-7", before);
+        assertNotEquals("id-7", after);
+        assertEquals(999, store.size());
+    }
+
+    @Test
+    @DisplayName("Should compact removed slots and still find every live vector")
+    void shouldCompactRemovedSlots() {
+        // Given
+        CompactVectorStore<TextSegment> store = filledStore(CompactVectorStore.Quantization.INT8, 4);
+        List<String> removed = new ArrayList<>();
+        for (int i = 0; i < 600; i += 2) {
+            removed.add("id-" + i);
+        }
+        store.removeAll(removed);
+        store.removeAll(List.of("id-1", "id-3", "id-5", "id-7", "id-9", "id-11"));
+
+        // When
+        String found = store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(embeddings.get(999))
+                .maxResults(1)
+                .build()).matches().get(0).embeddingId();
+
+        // Then
+        assertEquals("id-999", found);
+        assertEquals(694, store.size());
+        assertEquals(1L, store.getMetrics().get("compactions"));
+        assertEquals(6, store.getMetrics().get("tombstones"));
+    }
+
+    @Test
+    @DisplayName("Should score the same with the best available scorer as with plain loops")
+    void shouldAgreeWithScalarScorer() {
+        // Given
+        ByteBuffer vectors = ByteBuffer.allocateDirect(DIMENSION * 4).order(ByteOrder.nativeOrder());
+        ByteBuffer codes = ByteBuffer.allocateDirect(DIMENSION).order(ByteOrder.nativeOrder());
+        float[] query = randomVector();
+        float[] stored = randomVector();
+        for (int i = 0; i < DIMENSION; i++) {
+            vectors.putFloat(i * 4, stored[i]);
+            codes.put(i, (byte) (i - 24));
+        }
+        VectorScorer best = VectorScorer.best();
+        VectorScorer scalar = new ScalarVectorScorer();
+
+        // Then
+        assertEquals(scalar.dot(query, vectors, 0, DIMENSION), best.dot(query, vectors, 0, DIMENSION), 1e-3);
+        assertEquals(scalar.dotInt8(query, codes, 0, DIMENSION), best.dotInt8(query, codes, 0, DIMENSION), 1e-3);
+    }
+
+    private CompactVectorStore<TextSegment> filledStore(CompactVectorStore.Quantization quantization, int rerank) {
+        CompactVectorStore<TextSegment> store = new CompactVectorStore<>(quantization, rerank);
+        List<String> ids = new ArrayList<>();
+        List<TextSegment> segments = new ArrayList<>();
+        for (int i = 0; i < embeddings.size(); i++) {
+            ids.add("id-" + i);
+            segments.add(TextSegment.from("chunk " + i));
+        }
+        store.addAll(ids, embeddings, segments);
+        return store;
+    }
+
+    private void assertSameResults(CompactVectorStore<TextSegment> store, double minimumRecall) {
+        int found = 0;
+        for (int q = 0; q < 30; q++) {
+            EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                    .queryEmbedding(Embedding.from(randomVector()))
+                    .maxResults(5)
+                    .build();
+            List<EmbeddingMatch<TextSegment>> expected = exact.search(request).matches();
+            List<EmbeddingMatch<TextSegment>> actual = store.search(request).matches();
+            List<String> expectedIds = expected.stream().map(EmbeddingMatch::embeddingId).toList();
+            found += (int) actual.stream().filter(match -> expectedIds.contains(match.embeddingId())).count();
+            if (actual.get(0).embeddingId().equals(expected.get(0).embeddingId())) {
+                assertEquals(expected.get(0).score(), actual.get(0).score(), 1e-4);
+            }
+        }
+        double recall = found / 150.0;
+        assertTrue(recall >= minimumRecall, "recall@5 was " + recall);
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.mcpserver.retrieval;
+
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 🎸 Epic docs directory tests - edit a file, not the deployment! 🎸
+ */
+@DisplayName("🎸 DocsDirectoryWatcher Tests")
+class DocsDirectoryWatcherTest {
+
+    @TempDir
+    Path docsDir;
+
+    private final AtomicInteger embeddedChunks = new AtomicInteger();
+    private HybridRetriever retriever;
+    private DocsDirectoryWatcher watcher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        EmbeddingModel embeddingModel = segments -> {
+            embeddedChunks.addAndGet(segments.size());
+            return Response.from(segments.stream()
+                    .map(segment -> Embedding.from(new float[] { 1, segment.text().length() }))
+                    .toList());
+        };
+        retriever = new HybridRetriever(new InMemoryEmbeddingStore<>(), new LexicalIndex<>(TextSegment::text),
+                Runnable::run, ReciprocalRankFusion.DEFAULT_K, 4);
+        watcher = new DocsDirectoryWatcher(docsDir, Set.of("md"),
+                new DocsIngestionPipeline(embeddingModel, DocumentSplitters.recursive(1500, 200), 2, 8),
+                retriever, 50);
+
+        Files.writeString(docsDir.resolve("deploy.md"), "Run mlDeploy to deploy the application");
+        Files.createDirectories(docsDir.resolve("flux"));
+        Files.writeString(docsDir.resolve("flux/import.md"), "Use --collections when importing files");
+        Files.writeString(docsDir.resolve("notes.bin"), "not a docs file");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        watcher.close();
+    }
+
+    @Test
+    @DisplayName("Should re-embed only the files whose content changed")
+    void shouldReembedOnlyChangedFiles() throws Exception {
+        // Given
+        DocsDirectoryWatcher.SyncResult initial = watcher.sync();
+        embeddedChunks.set(0);
+
+        // When
+        Files.writeString(docsDir.resolve("deploy.md"), "Run mlUndeploy to remove the application");
+        Files.writeString(docsDir.resolve("flux/import.md"), "Use --collections when importing files");
+        DocsDirectoryWatcher.SyncResult result = watcher.sync();
+
+        // Then
+        assertEquals(2, initial.added());
+        assertEquals(1, result.changed());
+        assertEquals(1, result.unchanged());
+        assertEquals(1, embeddedChunks.get());
+        assertEquals(2, watcher.chunks());
+        assertTrue(search("mlDeploy").stream().noneMatch(match -> match.text().contains("mlDeploy")));
+        assertEquals("watch:deploy.md", search("mlUndeploy").get(0).segment().metadata().getString("fileName"));
+    }
+
+    @Test
+    @DisplayName("Should drop the chunks of removed files and skip unlisted extensions")
+    void shouldDropRemovedFiles() throws Exception {
+        // Given
+        watcher.sync();
+
+        // When
+        Files.delete(docsDir.resolve("flux/import.md"));
+        DocsDirectoryWatcher.SyncResult result = watcher.sync();
+
+        // Then
+        assertEquals(1, result.removed());
+        assertEquals(1, watcher.chunks());
+        assertTrue(search("--collections").isEmpty());
+        assertTrue(search("docs file").isEmpty());
+        assertFalse(watcher.sync().changedAnything());
+    }
+
+    @Test
+    @DisplayName("Should pick up a new file from the watch thread while searches continue")
+    void shouldFollowDirectoryChanges() throws Exception {
+        // Given
+        watcher.start();
+
+        // When
+        Files.writeString(docsDir.resolve("flux/export.md"), "Export rows with the exportRows command");
+
+        // Then
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (search("exportRows").isEmpty() && System.currentTimeMillis() < deadline) {
+            assertFalse(search("mlDeploy").isEmpty());
+            Thread.sleep(20);
+        }
+        assertEquals("watch:flux/export.md", search("exportRows").get(0).segment().metadata().getString("fileName"));
+        assertEquals(3, watcher.getMetrics().get("files"));
+    }
+
+    private List<DocsMatch> search(String query) {
+        return retriever.search(query, () -> Embedding.from(new float[] { 1, 0 }), 3,
+                new HybridRetriever.Weights(0, 1));
+    }
+}
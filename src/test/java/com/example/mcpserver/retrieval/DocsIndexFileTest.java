@@ -0,0 +1,113 @@
+package com.example.mcpserver.retrieval;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 🎸 Epic persisted docs index tests - embed once, map forever! 🎸
+ */
+@DisplayName("🎸 DocsIndexFile Tests")
+class DocsIndexFileTest {
+
+    private static final String FINGERPRINT = "a".repeat(64);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should map back the vectors, text and metadata that were written")
+    void shouldRoundTripChunks() throws Exception {
+        // Given
+        Path path = tempDir.resolve("docs-index.bin");
+        List<Embedding> embeddings = List.of(
+                Embedding.from(new float[] { 0.1f, 0.2f, 0.3f }),
+                Embedding.from(new float[] { -1f, 0f, 1f }));
+        List<TextSegment> segments = List.of(
+                TextSegment.from("Run mlDeploy to deploy", Metadata.from("fileName", "ml-gradle/tasks.md")
+                        .put("chunkIndex", "0")),
+                TextSegment.from("Flux importe des données", Metadata.from("fileName", "flux/import.md")));
+
+        // When
+        DocsIndexFile.write(path, FINGERPRINT, embeddings, segments);
+        DocsIndexFile index = DocsIndexFile.map(path);
+
+        // Then
+        assertEquals(FINGERPRINT, index.getFingerprint());
+        assertEquals(2, index.size());
+        assertEquals(3, index.dimension());
+        assertArrayEquals(new float[] { -1f, 0f, 1f }, index.vector(1));
+        assertEquals("Run mlDeploy to deploy", index.segment(0).text());
+        assertEquals("ml-gradle/tasks.md", index.segment(0).metadata().getString("fileName"));
+        assertEquals("0", index.segment(0).metadata().getString("chunkIndex"));
+        assertEquals("Flux importe des données", index.segment(1).text());
+        assertNull(index.graph());
+    }
+
+    @Test
+    @DisplayName("Should map back the HNSW graph written with the chunks")
+    void shouldRoundTripGraph() throws Exception {
+        // Given
+        Path path = tempDir.resolve("docs-index.bin");
+        HnswEmbeddingStore<TextSegment> store = new HnswEmbeddingStore<>(4, 20, 20, 7);
+        List<String> ids = List.of("a", "b", "c");
+        List<Embedding> embeddings = List.of(
+                Embedding.from(new float[] { 1f, 0f }),
+                Embedding.from(new float[] { 0f, 1f }),
+                Embedding.from(new float[] { 1f, 1f }));
+        List<TextSegment> segments = List.of(TextSegment.from("a"), TextSegment.from("b"), TextSegment.from("c"));
+        store.addAll(ids, embeddings, segments);
+        HnswEmbeddingStore.Graph graph = store.graph();
+
+        // When
+        DocsIndexFile.write(path, FINGERPRINT, embeddings, segments, graph);
+        HnswEmbeddingStore.Graph mapped = DocsIndexFile.map(path).graph();
+
+        // Then
+        assertEquals(graph.m(), mapped.m());
+        assertEquals(graph.efConstruction(), mapped.efConstruction());
+        assertEquals(graph.entryPoint(), mapped.entryPoint());
+        assertEquals(graph.maxLevel(), mapped.maxLevel());
+        assertArrayEquals(graph.links(), mapped.links());
+        assertEquals("c", DocsIndexFile.map(path).segment(2).text());
+    }
+
+    @Test
+    @DisplayName("Should read the fingerprint of an index stream without mapping it")
+    void shouldReadFingerprintFromStream() throws Exception {
+        // Given
+        Path path = tempDir.resolve("docs-index.bin");
+        DocsIndexFile.write(path, FINGERPRINT, List.of(), List.of());
+
+        // When
+        String fingerprint;
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            fingerprint = DocsIndexFile.readFingerprint(inputStream);
+        }
+
+        // Then
+        assertEquals(FINGERPRINT, fingerprint);
+        assertEquals(0, DocsIndexFile.map(path).size());
+    }
+
+    @Test
+    @DisplayName("Should reject a file that is not a docs index")
+    void shouldRejectForeignFile() throws Exception {
+        // Given
+        Path path = tempDir.resolve("not-an-index.bin");
+        Files.write(path, new byte[128]);
+
+        // Then
+        assertThrows(java.io.IOException.class, () -> DocsIndexFile.map(path));
+    }
+}
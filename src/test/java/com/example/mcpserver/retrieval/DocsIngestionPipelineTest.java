@@ -0,0 +1,182 @@
+package com.example.mcpserver.retrieval;
+
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.HuggingFaceTokenCountEstimator;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * 🎸 Epic docs ingestion tests - all cores, same index! 🎸
+ */
+@DisplayName("🎸 DocsIngestionPipeline Tests")
+class DocsIngestionPipelineTest {
+
+    private static final List<String> ZIPS = List.of("flux-docs.zip", "ml-gradle-docs.zip");
+
+    private final EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        // Vector derived from the text, so misaligned vectors and chunks would show
+        when(embeddingModel.embedAll(anyList())).thenAnswer(invocation -> {
+            List<TextSegment> segments = invocation.getArgument(0);
+            return Response.from(segments.stream()
+                    .map(segment -> Embedding.from(new float[] { segment.text().hashCode(), segment.text().length() }))
+                    .toList());
+        });
+    }
+
+    @Test
+    @DisplayName("Should produce the same chunks in the same order regardless of threads and batch size")
+    void shouldBeDeterministic() throws Exception {
+        // When
+        DocsIngestionPipeline.Result sequential = new DocsIngestionPipeline(embeddingModel,
+                DocumentSplitters.recursive(1500, 200), 1, 1).ingest(ZIPS);
+        DocsIngestionPipeline.Result parallel = new DocsIngestionPipeline(embeddingModel,
+                DocumentSplitters.recursive(1500, 200), 4, 7).ingest(ZIPS);
+
+        // Then
+        assertFalse(sequential.segments().isEmpty());
+        assertEquals(sequential.segments().size(), parallel.segments().size());
+        for (int i = 0; i < sequential.segments().size(); i++) {
+            assertEquals(sequential.segments().get(i).text(), parallel.segments().get(i).text());
+            assertEquals(sequential.segments().get(i).metadata().getString("fileName"),
+                    parallel.segments().get(i).metadata().getString("fileName"));
+            assertArrayEquals(sequential.embeddings().get(i).vector(), parallel.embeddings().get(i).vector());
+        }
+    }
+
+    @Test
+    @DisplayName("Should embed in micro-batches and report stage timings")
+    void shouldBatchAndReportTimings() throws Exception {
+        // When
+        DocsIngestionPipeline.Result result = new DocsIngestionPipeline(embeddingModel,
+                DocumentSplitters.recursive(1500, 200), 2, 16).ingest(ZIPS);
+
+        // Then
+        DocsIngestionPipeline.Timings timings = result.timings();
+        assertEquals(result.segments().size(), result.embeddings().size());
+        assertTrue(timings.entries() > 0);
+        assertTrue(timings.batches() >= result.segments().size() / 16);
+        assertTrue(timings.batches() < result.segments().size());
+        assertEquals(2, timings.threads());
+        verify(embeddingModel, times(timings.batches())).embedAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Should keep every chunk inside the MiniLM word-piece window when splitting by tokens")
+    void shouldFitModelWindowWhenSplittingByTokens() throws Exception {
+        // Given
+        TokenCountEstimator tokenizer = new HuggingFaceTokenCountEstimator();
+
+        // When
+        DocsIngestionPipeline.Result result = new DocsIngestionPipeline(embeddingModel,
+                DocumentSplitters.recursive(254, 32, tokenizer), 2, 16).ingest(ZIPS);
+
+        // Then
+        assertFalse(result.segments().isEmpty());
+        for (TextSegment segment : result.segments()) {
+            assertTrue(tokenizer.estimateTokenCountInText(segment.text()) <= 254,
+                    () -> "Chunk over the window: " + segment.text());
+        }
+    }
+
+    @Test
+    @DisplayName("Should chunk the Markdown by section and embed repeated chunks only once")
+    void shouldDeduplicateMarkdownChunks() throws Exception {
+        // When
+        DocsIngestionPipeline.Result result = new DocsIngestionPipeline(embeddingModel,
+                new MarkdownChunker(254, 48, null), 2, 16).ingest(ZIPS);
+
+        // Then
+        Set<String> hashes = new HashSet<>();
+        for (TextSegment segment : result.segments()) {
+            assertTrue(hashes.add(DocsIngestionPipeline.contentHash(segment.text())),
+                    () -> "Duplicate chunk embedded: " + segment.text());
+        }
+        assertTrue(result.timings().duplicates() > 0);
+        assertTrue(result.segments().stream()
+                .allMatch(segment -> segment.metadata().getString("fileName") != null));
+        assertTrue(result.segments().stream()
+                .anyMatch(segment -> segment.metadata().getString(MarkdownChunker.HEADING_PATH) != null));
+    }
+
+    @Test
+    @DisplayName("Should stream multi-byte characters across read boundaries without mangling them")
+    void shouldDecodeMultiByteCharactersAcrossBoundaries(@TempDir Path directory) throws Exception {
+        // Given - a section of accented and CJK text far bigger than any decode buffer
+        String line = "Les données ü 日本語のドキュメント 🎸 déploiement";
+        StringBuilder markdown = new StringBuilder("# Données\n\n");
+        for (int i = 0; i < 2000; i++) {
+            markdown.append(line).append(i % 5 == 4 ? "\n\n" : "\n");
+        }
+        Path zip = directory.resolve("unicode-docs.zip");
+        try (OutputStream out = Files.newOutputStream(zip); ZipOutputStream zipOut = new ZipOutputStream(out)) {
+            zipOut.putNextEntry(new ZipEntry("unicode.md"));
+            zipOut.write(markdown.toString().getBytes(StandardCharsets.UTF_8));
+            zipOut.closeEntry();
+        }
+
+        // When
+        DocsIngestionPipeline.Result streamed = new DocsIngestionPipeline(embeddingModel,
+                new MarkdownChunker(254, 0, null), 2, 16).ingest(List.of(zip.toString()));
+        DocsIngestionPipeline.Result buffered = new DocsIngestionPipeline(embeddingModel,
+                DocumentSplitters.recursive(1500, 0), 2, 16).ingest(List.of(zip.toString()));
+
+        // Then
+        for (DocsIngestionPipeline.Result result : List.of(streamed, buffered)) {
+            assertFalse(result.segments().isEmpty());
+            for (TextSegment segment : result.segments()) {
+                assertFalse(segment.text().contains("\uFFFD"), () -> "Mangled chunk: " + segment.text());
+                assertEquals("unicode.md", segment.metadata().getString("fileName"));
+            }
+        }
+        assertTrue(streamed.segments().stream().allMatch(segment -> segment.text().contains(line)));
+        assertEquals(1, streamed.timings().entries());
+    }
+
+    @Test
+    @DisplayName("Should decode an entry delivered one byte per read")
+    void shouldDecodeOneByteReads() throws Exception {
+        // Given
+        String text = "données ü 日本語 🎸 ".repeat(1500);
+        InputStream trickle = new FilterInputStream(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))) {
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(1, length));
+            }
+        };
+
+        // When
+        String decoded = DocsIngestionPipeline.readEntryContent(trickle);
+
+        // Then
+        assertEquals(text, decoded);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.mcpserver.retrieval;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 🎸 Epic docs post-processing tests - short answers, no reruns! 🎸
+ */
+@DisplayName("🎸 DocsPostProcessor Tests")
+class DocsPostProcessorTest {
+
+    @Test
+    @DisplayName("Should merge neighbouring chunks of a file and drop the overlap between them")
+    void shouldMergeAdjacentChunks() {
+        // Given - chunks 3 and 4 overlap by one sentence, chunk 7 is not a neighbour
+        List<DocsMatch> matches = List.of(
+                match("a", "tasks.md", 4, "mlDeploy deploys every resource. Then run mlReloadModules.", 0.9, 0.03),
+                match("b", "tasks.md", 3, "Configure gradle.properties first. mlDeploy deploys every resource.", 0.8, 0.02),
+                match("c", "tasks.md", 7, "mlUndeploy removes them again.", 0.7, 0.01));
+
+        // When
+        List<DocsPassage> passages = new DocsPostProcessor(0, 1, 0).process(matches, 5);
+
+        // Then
+        assertEquals(2, passages.size());
+        DocsPassage merged = passages.get(0);
+        assertEquals(List.of("b", "a"), merged.ids());
+        assertEquals(3, merged.firstChunk());
+        assertEquals(4, merged.lastChunk());
+        assertEquals("Configure gradle.properties first. mlDeploy deploys every resource. Then run mlReloadModules.",
+                merged.text());
+        assertEquals(0.03, merged.score());
+        assertEquals("tasks.md", merged.source());
+    }
+
+    @Test
+    @DisplayName("Should drop weak vector-only matches but keep keyword matches")
+    void shouldApplyMinScoreToVectorOnlyMatches() {
+        // Given
+        List<DocsMatch> matches = List.of(
+                match("strong", "a.md", 0, "Flux imports files.", 0.82, 0.03),
+                new DocsMatch("lexical", segment("b.md", 0, "mlDeploy task"), 0.02, 0, 6.1, null),
+                match("weak", "c.md", 0, "Something unrelated.", 0.51, 0.01));
+
+        // When
+        DocsPostProcessor processor = new DocsPostProcessor(0.6, 1, 0);
+        List<DocsPassage> passages = processor.process(matches, 5);
+
+        // Then
+        assertEquals(List.of("strong", "lexical"), passages.stream().map(passage -> passage.ids().get(0)).toList());
+        assertEquals(1L, processor.getMetrics().get("belowMinScore"));
+    }
+
+    @Test
+    @DisplayName("Should pick a different file over a near-copy of the best match")
+    void shouldDiversifyWithMmr() {
+        // Given - the runner-up is the same install snippet as the best match
+        List<DocsMatch> matches = List.of(
+                match("install", "flux/install.md", 0, "Download Flux and unzip it.", new float[] { 1, 0, 0 }, 0.033),
+                match("copy", "flux/getting-started.md", 5, "Download Flux and unzip it!", new float[] { 0.99f, 0.1f, 0 }, 0.032),
+                match("import", "flux/import.md", 2, "Import files with import-files.", new float[] { 0, 1, 0 }, 0.030));
+
+        // When
+        List<DocsPassage> relevanceOnly = new DocsPostProcessor(0, 1, 0).process(matches, 2);
+        List<DocsPassage> diversified = new DocsPostProcessor(0, 0.7, 0).process(matches, 2);
+
+        // Then
+        assertEquals(List.of("install", "copy"), relevanceOnly.stream().map(passage -> passage.ids().get(0)).toList());
+        assertEquals(List.of("install", "import"), diversified.stream().map(passage -> passage.ids().get(0)).toList());
+    }
+
+    @Test
+    @DisplayName("Should stay inside the character budget, cutting only an oversized first passage")
+    void shouldEnforceMaxChars() {
+        // Given
+        String longText = "word ".repeat(200).strip();
+        List<DocsMatch> matches = List.of(
+                match("long", "a.md", 0, longText, 0.9, 0.03),
+                match("short", "b.md", 0, "Short answer.", 0.8, 0.02));
+
+        // When
+        DocsPostProcessor processor = new DocsPostProcessor(0, 1, 100);
+        List<DocsPassage> passages = processor.process(matches, 5);
+
+        // Then
+        assertEquals(1, passages.size());
+        assertTrue(passages.get(0).text().length() <= 100);
+        assertTrue(passages.get(0).text().endsWith("…"));
+        assertEquals(2L, processor.getMetrics().get("overBudget"));
+    }
+
+    @Test
+    @DisplayName("Should only treat a real suffix/prefix repeat as overlap")
+    void shouldFindSplitterOverlap() {
+        // When / Then
+        assertEquals(16, DocsPostProcessor.overlap("first part. shared tail text", "shared tail text and more"));
+        assertEquals(0, DocsPostProcessor.overlap("ends with a", "a starts here"));
+    }
+
+    private static DocsMatch match(String id, String fileName, int chunkIndex, String text, double vectorScore,
+            double score) {
+        return new DocsMatch(id, segment(fileName, chunkIndex, text), score, vectorScore, 0,
+                Embedding.from(new float[] { 1, 1 }));
+    }
+
+    private static DocsMatch match(String id, String fileName, int chunkIndex, String text, float[] vector,
+            double score) {
+        return new DocsMatch(id, segment(fileName, chunkIndex, text), score, 0.8, 0, Embedding.from(vector));
+    }
+
+    private static TextSegment segment(String fileName, int chunkIndex, String text) {
+        return TextSegment.from(text, Metadata.from("fileName", fileName)
+                .put("chunkIndex", String.valueOf(chunkIndex)));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.mcpserver.retrieval;
+
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 🎸 Epic docs query cache tests - ask twice, embed once! 🎸
+ */
+@DisplayName("🎸 DocsQueryCache Tests")
+class DocsQueryCacheTest {
+
+    private static final HybridRetriever.Weights WEIGHTS = new HybridRetriever.Weights(1, 1);
+
+    private final AtomicInteger embedCalls = new AtomicInteger();
+    private final AtomicInteger searchCalls = new AtomicInteger();
+
+    @Test
+    @DisplayName("Should embed a query once regardless of case and whitespace")
+    void shouldReuseEmbeddings() {
+        // Given
+        DocsQueryCache cache = new DocsQueryCache(true, 10, 10);
+
+        // When
+        float[] first = cache.embedding("How do I run mlDeploy?", this::embed);
+        float[] second = cache.embedding("  how do i   run MLDEPLOY? ", this::embed);
+        first[0] = 42;
+
+        // Then
+        assertEquals(1, embedCalls.get());
+        assertEquals(1f, second[0]);
+        assertEquals(1L, cache.getMetrics().get("embeddingHits"));
+    }
+
+    @Test
+    @DisplayName("Should reuse matches until the index version changes")
+    void shouldInvalidateMatchesOnNewIndexVersion() {
+        // Given
+        DocsQueryCache cache = new DocsQueryCache(true, 10, 10);
+
+        // When
+        cache.matches("mlDeploy", 5, WEIGHTS, 1, this::search);
+        List<DocsMatch> cached = cache.matches(" mlDeploy ", 5, WEIGHTS, 1, this::search);
+        cache.matches("mlDeploy", 3, WEIGHTS, 1, this::search);
+        cache.matches("mlDeploy", 5, new HybridRetriever.Weights(0, 1), 1, this::search);
+        cache.matches("mldeploy", 5, WEIGHTS, 1, this::search);
+        cache.matches("mlDeploy", 5, WEIGHTS, 2, this::search);
+
+        // Then
+        assertEquals("chunk-1", cached.get(0).id());
+        assertEquals(5, searchCalls.get());
+        assertEquals(1L, cache.getMetrics().get("resultHits"));
+        assertEquals(1L, cache.getMetrics().get("invalidations"));
+        assertEquals(1, cache.getMetrics().get("results"));
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used entries and pass through when disabled")
+    void shouldEvictAndPassThrough() {
+        // Given
+        DocsQueryCache cache = new DocsQueryCache(true, 2, 2);
+        DocsQueryCache disabled = new DocsQueryCache(false, 2, 2);
+
+        // When
+        cache.embedding("a", this::embed);
+        cache.embedding("b", this::embed);
+        cache.embedding("a", this::embed);
+        cache.embedding("c", this::embed);
+        cache.embedding("a", this::embed);
+        disabled.embedding("a", this::embed);
+        disabled.embedding("a", this::embed);
+
+        // Then
+        assertEquals(5, embedCalls.get());
+        assertEquals(1L, cache.getMetrics().get("evictions"));
+        assertEquals(2, cache.getMetrics().get("embeddings"));
+    }
+
+    private float[] embed(String text) {
+        embedCalls.incrementAndGet();
+        return new float[] { 1, text.length() };
+    }
+
+    private List<DocsMatch> search() {
+        searchCalls.incrementAndGet();
+        return List.of(new DocsMatch("chunk-1", TextSegment.from("Run mlDeploy"), 0.03, 0.8, 4.2, null));
+    }
+}
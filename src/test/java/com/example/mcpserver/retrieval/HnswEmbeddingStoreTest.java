@@ -0,0 +1,175 @@
+package com.example.mcpserver.retrieval;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 🎸 Epic HNSW store tests - close enough is fast enough! 🎸
+ */
+@DisplayName("🎸 HnswEmbeddingStore Tests")
+class HnswEmbeddingStoreTest {
+
+    private static final int DIMENSION = 32;
+
+    private final Random random = new Random(11);
+    private HnswEmbeddingStore<TextSegment> store;
+    private InMemoryEmbeddingStore<TextSegment> exact;
+
+    @BeforeEach
+    void setUp() {
+        store = new HnswEmbeddingStore<>(16, 100, 100);
+        exact = new InMemoryEmbeddingStore<>();
+        for (int i = 0; i < 2000; i++) {
+            Embedding embedding = Embedding.from(randomVector());
+            TextSegment segment = TextSegment.from("chunk " + i, Metadata.from("fileName", "file" + (i % 10) + ".md"));
+            String id = "id-" + i;
+            store.addAll(List.of(id), List.of(embedding), List.of(segment));
+            exact.addAll(List.of(id), List.of(embedding), List.of(segment));
+        }
+    }
+
+    @Test
+    @DisplayName("Should find nearly the same top-k as an exact scan, with the same scores")
+    void shouldMatchExactSearch() {
+        // Given
+        int queries = 50;
+        int found = 0;
+
+        // When
+        for (int q = 0; q < queries; q++) {
+            EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                    .queryEmbedding(Embedding.from(randomVector()))
+                    .maxResults(10)
+                    .build();
+            List<String> expected = exact.search(request).matches().stream().map(EmbeddingMatch::embeddingId).toList();
+            List<EmbeddingMatch<TextSegment>> actual = store.search(request).matches();
+            found += (int) actual.stream().filter(match -> expected.contains(match.embeddingId())).count();
+
+            // Then
+            assertEquals(exact.search(request).matches().get(0).score(), actual.get(0).score(), 1e-4);
+        }
+        assertTrue(found / (double) (queries * 10) > 0.9, "recall@10 was " + found / (double) (queries * 10));
+    }
+
+    @Test
+    @DisplayName("Should return a chunk inserted after the graph was built and drop removed ones")
+    void shouldInsertAndRemoveIncrementally() {
+        // Given
+        float[] vector = randomVector();
+        store.addAll(List.of("late"), List.of(Embedding.from(vector)), List.of(TextSegment.from("late chunk")));
+        EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(vector))
+                .maxResults(1)
+                .build();
+
+        // When
+        EmbeddingMatch<TextSegment> before = store.search(request).matches().get(0);
+        store.removeAll(List.of("late"));
+        EmbeddingMatch<TextSegment> after = store.search(request).matches().get(0);
+
+        // Then
+        assertEquals("late", before.embeddingId());
+        assertEquals(1.0, before.score(), 1e-4);
+        assertNotEquals("late", after.embeddingId());
+        assertEquals(2000, store.size());
+    }
+
+    @Test
+    @DisplayName("Should rebuild the graph once a quarter of it is tombstones")
+    void shouldCompactTombstones() {
+        // Given
+        List<String> removed = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            removed.add("id-" + i);
+        }
+        exact.removeAll(removed);
+
+        // When
+        store.removeAll(removed);
+
+        // Then
+        assertEquals(1400, store.size());
+        assertEquals(0, store.getMetrics().get("tombstones"));
+        assertEquals(1L, store.getMetrics().get("compactions"));
+        assertNotNull(store.graph());
+        for (int q = 0; q < 20; q++) {
+            EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                    .queryEmbedding(Embedding.from(randomVector()))
+                    .maxResults(1)
+                    .build();
+            assertEquals(exact.search(request).matches().get(0).score(),
+                    store.search(request).matches().get(0).score(), 1e-4);
+        }
+    }
+
+    @Test
+    @DisplayName("Should restore a saved graph without inserting again and search it the same way")
+    void shouldRestoreSavedGraph() {
+        // Given
+        HnswEmbeddingStore.Graph graph = store.graph();
+        List<String> ids = new ArrayList<>();
+        List<Embedding> embeddings = new ArrayList<>();
+        List<TextSegment> segments = new ArrayList<>();
+        exact.search(EmbeddingSearchRequest.builder()
+                        .queryEmbedding(Embedding.from(randomVector())).maxResults(2000).build())
+                .matches().stream()
+                .sorted(java.util.Comparator.comparingInt(match -> Integer.parseInt(match.embeddingId().substring(3))))
+                .forEach(match -> {
+                    ids.add(match.embeddingId());
+                    embeddings.add(match.embedding());
+                    segments.add(match.embedded());
+                });
+        HnswEmbeddingStore<TextSegment> restored = new HnswEmbeddingStore<>(16, 100, 100);
+
+        // When
+        boolean used = restored.restore(ids, embeddings, segments, graph);
+
+        // Then
+        assertTrue(used);
+        assertEquals(2000, restored.size());
+        for (int q = 0; q < 20; q++) {
+            EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                    .queryEmbedding(Embedding.from(randomVector()))
+                    .maxResults(5)
+                    .build();
+            assertEquals(store.search(request).matches().stream().map(EmbeddingMatch::embeddingId).toList(),
+                    restored.search(request).matches().stream().map(EmbeddingMatch::embeddingId).toList());
+        }
+        assertFalse(new HnswEmbeddingStore<TextSegment>(8, 100, 100).restore(ids, embeddings, segments, graph));
+    }
+
+    @Test
+    @DisplayName("Should report recall and latency for each efSearch against the exact scan")
+    void shouldReportRecallVsLatency() {
+        // When
+        List<Map<String, Object>> report = store.recallReport(20, 5, 8, 64);
+
+        // Then
+        assertEquals(3, report.size());
+        assertEquals("exact", report.get(0).get("method"));
+        assertEquals(64, report.get(2).get("efSearch"));
+        assertTrue((Double) report.get(2).get("recall") >= (Double) report.get(1).get("recall"));
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
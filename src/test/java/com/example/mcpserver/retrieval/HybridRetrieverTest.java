@@ -0,0 +1,115 @@
+package com.example.mcpserver.retrieval;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 🎸 Epic hybrid retrieval tests - two rankings, one setlist! 🎸
+ */
+@DisplayName("🎸 HybridRetriever Tests")
+class HybridRetrieverTest {
+
+    private final AtomicInteger embedCalls = new AtomicInteger();
+    private HybridRetriever retriever;
+
+    @BeforeEach
+    void setUp() {
+        retriever = new HybridRetriever(new InMemoryEmbeddingStore<>(), new LexicalIndex<>(TextSegment::text),
+                Runnable::run, ReciprocalRankFusion.DEFAULT_K, 4);
+        retriever.add(List.of("semantic", "flag", "other"),
+                List.of(Embedding.from(new float[] { 1, 0, 0 }), Embedding.from(new float[] { 0.6f, 0.8f, 0 }),
+                        Embedding.from(new float[] { 0, 0, 1 })),
+                List.of(TextSegment.from("How to deploy an application to a cluster"),
+                        TextSegment.from("The --collections option sets collections on imported documents"),
+                        TextSegment.from("Unrelated notes about backups")));
+    }
+
+    @Test
+    @DisplayName("Should fuse rankings so a chunk found by both retrievers ranks first")
+    void shouldFuseBothRankings() {
+        // When
+        List<DocsMatch> matches = retriever.search("imported collections", query(1, 0, 0), 3,
+                new HybridRetriever.Weights(1, 1));
+
+        // Then
+        assertEquals(3, matches.size());
+        assertEquals("flag", matches.get(0).id());
+        assertTrue(matches.get(0).vectorScore() > 0);
+        assertTrue(matches.get(0).lexicalScore() > 0);
+        assertEquals(1, embedCalls.get());
+    }
+
+    @Test
+    @DisplayName("Should answer a pasted identifier from the lexical index without embedding")
+    void shouldShortcutIdentifiers() {
+        // When
+        List<DocsMatch> matches = retriever.search("--collections", query(1, 0, 0), 3,
+                new HybridRetriever.Weights(1, 1));
+
+        // Then
+        assertEquals("flag", matches.get(0).id());
+        assertNull(matches.get(0).embedding());
+        assertEquals(0, embedCalls.get());
+        assertEquals(1L, retriever.getMetrics().get("identifierShortcuts"));
+    }
+
+    @Test
+    @DisplayName("Should honour a zero weight by switching that retriever off")
+    void shouldHonourZeroWeights() {
+        // When
+        List<DocsMatch> vectorOnly = retriever.search("collections", query(1, 0, 0), 1,
+                new HybridRetriever.Weights(1, 0));
+        List<DocsMatch> lexicalOnly = retriever.search("deploy", query(0, 0, 1), 1,
+                new HybridRetriever.Weights(0, 1));
+
+        // Then
+        assertEquals("semantic", vectorOnly.get(0).id());
+        assertEquals("semantic", lexicalOnly.get(0).id());
+        assertEquals(1, embedCalls.get());
+    }
+
+    @Test
+    @DisplayName("Should drop removed chunks from both retrievers")
+    void shouldRemoveFromBoth() {
+        // When
+        retriever.remove(List.of("flag"));
+        List<DocsMatch> matches = retriever.search("collections", query(0.6f, 0.8f, 0), 3,
+                new HybridRetriever.Weights(1, 1));
+
+        // Then
+        assertTrue(matches.stream().noneMatch(match -> match.id().equals("flag")));
+    }
+
+    @Test
+    @DisplayName("Should weight reciprocal ranks and keep first-seen order on ties")
+    void shouldWeightReciprocalRanks() {
+        // When
+        List<ReciprocalRankFusion.Fused> fused = ReciprocalRankFusion.fuse(
+                List.of(List.of("a", "b"), List.of("b", "a")), new double[] { 1, 1 }, 60);
+        List<ReciprocalRankFusion.Fused> weighted = ReciprocalRankFusion.fuse(
+                List.of(List.of("a", "b"), List.of("b", "a")), new double[] { 1, 3 }, 60);
+
+        // Then
+        assertEquals("a", fused.get(0).id());
+        assertEquals(fused.get(0).score(), fused.get(1).score(), 1e-12);
+        assertEquals("b", weighted.get(0).id());
+        assertEquals(1.0 / 62 + 3.0 / 61, weighted.get(0).score(), 1e-12);
+    }
+
+    private Supplier<Embedding> query(float... vector) {
+        return () -> {
+            embedCalls.incrementAndGet();
+            return Embedding.from(vector);
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.mcpserver.retrieval;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 🎸 Epic lexical index tests - exact words, exact hits! 🎸
+ */
+@DisplayName("🎸 LexicalIndex Tests")
+class LexicalIndexTest {
+
+    private LexicalIndex<String> index;
+
+    @BeforeEach
+    void setUp() {
+        index = new LexicalIndex<>(text -> text);
+        index.add("deploy", "Run ./gradlew mlDeploy to deploy every resource in the project");
+        index.add("collections", "The --collections option assigns documents to one or more collections");
+        index.add("port", "Set mlRestPort in gradle.properties to change the REST server port");
+        index.add("intro", "Deploying an application to MarkLogic with Gradle is easy");
+    }
+
+    @Test
+    @DisplayName("Should rank the chunk defining a pasted camelCase identifier first")
+    void shouldRankIdentifierFirst() {
+        // When
+        List<LexicalIndex.Hit<String>> hits = index.search("mlDeploy", 3);
+
+        // Then
+        assertFalse(hits.isEmpty());
+        assertEquals("deploy", hits.get(0).id());
+        assertTrue(hits.get(0).score() > 0);
+    }
+
+    @Test
+    @DisplayName("Should match command line flags and dotted properties as exact terms")
+    void shouldMatchFlagsAndProperties() {
+        // Then
+        assertEquals("collections", index.search("--collections", 1).get(0).id());
+        assertEquals("port", index.search("gradle.properties", 1).get(0).id());
+        assertTrue(LexicalIndex.isIdentifier("--collections"));
+        assertTrue(LexicalIndex.isIdentifier("mlRestPort"));
+        assertFalse(LexicalIndex.isIdentifier("how do I deploy"));
+    }
+
+    @Test
+    @DisplayName("Should only return documents sharing a query term")
+    void shouldOnlyReturnMatchingDocuments() {
+        // Then
+        assertTrue(index.search("kubernetes helm", 5).isEmpty());
+        assertEquals(1, index.search("REST server", 5).size());
+    }
+
+    @Test
+    @DisplayName("Should replace and remove documents by id")
+    void shouldReplaceAndRemove() {
+        // When
+        index.add("port", "Use mlAppServicesPort for the app services server");
+        index.remove("collections");
+
+        // Then
+        assertEquals(3, index.size());
+        assertTrue(index.search("REST", 5).isEmpty());
+        assertTrue(index.search("--collections", 5).isEmpty());
+        assertEquals("port", index.search("mlAppServicesPort", 1).get(0).id());
+    }
+}
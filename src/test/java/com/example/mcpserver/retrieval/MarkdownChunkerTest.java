@@ -0,0 +1,160 @@
+package com.example.mcpserver.retrieval;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 🎸 Epic Markdown chunker tests - cut at the chorus, never mid-riff! 🎸
+ */
+@DisplayName("🎸 MarkdownChunker Tests")
+class MarkdownChunkerTest {
+
+    private static final String DOC = """
+            ---
+            layout: default
+            title: Flux API
+            nav_order: 7
+            ---
+
+            Flux can be embedded into your own application.
+
+            ## Table of contents
+            {: .no_toc .text-delta }
+
+            ## Adding Flux as a dependency
+
+            Add the following to your `pom.xml` file:
+
+            ```
+            <dependency>
+
+              <artifactId>flux-api</artifactId>
+            </dependency>
+            ```
+
+            ### Gradle
+
+            Or add it to `build.gradle`.
+
+            ## Javadocs
+
+            See the Javadocs.
+            """;
+
+    @Test
+    @DisplayName("Should cut at headings and record the heading path under the front matter title")
+    void shouldCutAtHeadings() {
+        // When
+        List<TextSegment> chunks = split(DOC, 1000);
+
+        // Then
+        assertEquals(4, chunks.size());
+        assertEquals("Flux API", headingPath(chunks.get(0)));
+        assertEquals("Flux API > Adding Flux as a dependency", headingPath(chunks.get(1)));
+        assertEquals("Flux API > Adding Flux as a dependency > Gradle", headingPath(chunks.get(2)));
+        assertEquals("Flux API > Javadocs", headingPath(chunks.get(3)));
+        assertTrue(chunks.get(3).text().startsWith("## Javadocs"));
+        assertEquals("docs/api.md", chunks.get(1).metadata().getString("fileName"));
+        assertTrue(chunks.stream().noneMatch(chunk -> chunk.text().contains("layout:")));
+        assertTrue(chunks.stream().noneMatch(chunk -> chunk.text().contains("{:")));
+    }
+
+    @Test
+    @DisplayName("Should carry a heading without a body into the next chunk")
+    void shouldCarryEmptyHeadings() {
+        // When
+        List<TextSegment> chunks = split(DOC, 1000);
+
+        // Then
+        assertTrue(chunks.get(1).text().startsWith("## Table of contents\n\n## Adding Flux as a dependency"));
+    }
+
+    @Test
+    @DisplayName("Should merge small sections under their common heading path and drop the TOC placeholder")
+    void shouldMergeSmallSections() {
+        // Given
+        String markdown = """
+                # Tasks
+
+                - TOC
+                {:toc}
+
+                ## Admin
+
+                - mlInit
+
+                ## Data
+
+                - mlLoadData
+
+                ## Databases
+
+                %s
+                """.formatted("mlDeployDatabases deploys every database in the project. ".repeat(12));
+
+        // When
+        List<TextSegment> chunks = split(markdown, 1000, 40);
+
+        // Then
+        assertEquals(1, chunks.size());
+        assertEquals("Tasks", headingPath(chunks.get(0)));
+        assertTrue(chunks.get(0).text().contains("- mlInit\n\n## Data\n\n- mlLoadData"));
+        assertFalse(chunks.get(0).text().contains("TOC"));
+        assertEquals(3, split(markdown, 1000, 0).size());
+    }
+
+    @Test
+    @DisplayName("Should never cut inside a fenced code block, even when it is over budget")
+    void shouldKeepFencesWhole() {
+        // When
+        List<TextSegment> chunks = split(DOC, 8);
+
+        // Then
+        TextSegment fence = chunks.stream().filter(chunk -> chunk.text().contains("<dependency>")).findFirst()
+                .orElseThrow();
+        assertTrue(fence.text().contains("flux-api"));
+        assertTrue(fence.text().contains("</dependency>\n```"));
+        assertEquals("Flux API > Adding Flux as a dependency", headingPath(fence));
+        assertTrue(chunks.size() > 4);
+    }
+
+    @Test
+    @DisplayName("Should split an over-budget section between paragraphs")
+    void shouldSplitLongSections() {
+        // Given
+        String markdown = "# Tasks\n\n" + "mlDeploy deploys everything.\n\n".repeat(20);
+
+        // When
+        List<TextSegment> chunks = split(markdown, 40);
+
+        // Then
+        assertTrue(chunks.size() > 1);
+        chunks.forEach(chunk -> {
+            assertEquals("Tasks", headingPath(chunk));
+            for (String paragraph : chunk.text().split("\n\n")) {
+                assertTrue(paragraph.equals("# Tasks") || paragraph.equals("mlDeploy deploys everything."));
+            }
+        });
+        assertEquals(20, chunks.stream().mapToInt(chunk -> chunk.text().split("mlDeploy", -1).length - 1).sum());
+    }
+
+    private static List<TextSegment> split(String markdown, int maxTokens) {
+        return split(markdown, maxTokens, 0);
+    }
+
+    private static List<TextSegment> split(String markdown, int maxTokens, int minTokens) {
+        return new MarkdownChunker(maxTokens, minTokens, null)
+                .split(Document.from(markdown, Metadata.from("fileName", "docs/api.md")));
+    }
+
+    private static String headingPath(TextSegment segment) {
+        return segment.metadata().getString(MarkdownChunker.HEADING_PATH);
+    }
+}
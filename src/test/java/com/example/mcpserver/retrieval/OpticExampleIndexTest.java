@@ -0,0 +1,77 @@
+package com.example.mcpserver.retrieval;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 🎸 Epic optic example selection tests - only the riffs the song needs! 🎸
+ */
+@DisplayName("🎸 OpticExampleIndex Tests")
+class OpticExampleIndexTest {
+
+    private OpticExampleIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new OpticExampleIndex();
+        index.initialize();
+    }
+
+    @Test
+    @DisplayName("Should split the examples file into documented snippets")
+    void shouldParseSnippets() {
+        // Then
+        assertTrue(index.isLoaded());
+        assertTrue((Integer) index.getMetrics().get("snippets") > 30);
+    }
+
+    @Test
+    @DisplayName("Should select the join examples for a join prompt within the token budget")
+    void shouldSelectRelevantSnippets() {
+        // When
+        String selected = index.select("Inner join orders with customers on the customer id");
+
+        // Then
+        assertTrue(selected.startsWith("const op = require('/MarkLogic/optic');"));
+        assertTrue(selected.contains("joinInner"));
+        assertTrue(TokenEstimator.estimate(selected) <= 1000);
+
+        Map<String, Object> metrics = index.getMetrics();
+        assertEquals(1L, metrics.get("requests"));
+        assertTrue((Long) metrics.get("tokensSaved") > 0);
+    }
+
+    @Test
+    @DisplayName("Should fall back to the basic operations when nothing matches")
+    void shouldFallBackToBasics() {
+        // When
+        String selected = index.select("zzz qqq");
+
+        // Then
+        assertTrue(selected.contains("op.fromView"));
+    }
+
+    @Test
+    @DisplayName("Should rank camelCase identifiers for a plain-language query")
+    void shouldRankCamelCaseIdentifiers() {
+        // Given
+        LexicalIndex<String> bm25 = LexicalIndex.of(
+                List.of("op.fromView('HR', 'employees').orderBy('name')",
+                        "op.fromView('HR', 'employees').joinInner(departments)",
+                        "op.fromView('HR', 'employees').groupBy('dept', op.count('total'))"),
+                text -> text);
+
+        // When
+        List<LexicalIndex.Hit<String>> hits = bm25.search("inner join with departments", 2);
+
+        // Then
+        assertFalse(hits.isEmpty());
+        assertTrue(hits.get(0).item().contains("joinInner"));
+    }
+}
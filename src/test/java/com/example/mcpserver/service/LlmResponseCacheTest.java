@@ -0,0 +1,93 @@
+package com.example.mcpserver.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 🎸 Epic LLM cache tests - Different Strings, same answer! 🎸
+ */
+@DisplayName("🎸 LlmResponseCache Tests")
+class LlmResponseCacheTest {
+
+    private LlmResponseCache newCache(int maxEntries, long ttlSeconds, String disabledTools, String snapshotFile) {
+        LlmResponseCache cache = new LlmResponseCache();
+        ReflectionTestUtils.setField(cache, "maxEntries", maxEntries);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", ttlSeconds);
+        ReflectionTestUtils.setField(cache, "disabledTools", disabledTools);
+        ReflectionTestUtils.setField(cache, "snapshotFile", snapshotFile);
+        cache.init();
+        return cache;
+    }
+
+    @Test
+    @DisplayName("Should hit for the same prompt regardless of whitespace")
+    void shouldHitForNormalizedPrompt() {
+        // Given
+        LlmResponseCache cache = newCache(10, 3600, "", "");
+        cache.put("search_marklogic", "find documents  in the\nred collection", "{\"query\":{}}");
+
+        // When
+        String cached = cache.get("search_marklogic", "  find documents in the red collection ");
+
+        // Then
+        assertEquals("{\"query\":{}}", cached);
+        assertNull(cache.get("optic_code_generator", "find documents in the red collection"));
+        assertEquals(1L, cache.getMetrics().get("hits"));
+        assertEquals(1L, cache.getMetrics().get("misses"));
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used entry when full")
+    void shouldEvictLeastRecentlyUsed() {
+        // Given
+        LlmResponseCache cache = newCache(2, 3600, "", "");
+        cache.put("generate_text", "a", "A");
+        cache.put("generate_text", "b", "B");
+        cache.get("generate_text", "a");
+
+        // When
+        cache.put("generate_text", "c", "C");
+
+        // Then
+        assertEquals("A", cache.get("generate_text", "a"));
+        assertNull(cache.get("generate_text", "b"));
+        assertEquals(1L, cache.getMetrics().get("evictions"));
+    }
+
+    @Test
+    @DisplayName("Should never cache tools that opted out")
+    void shouldSkipDisabledTools() {
+        // Given
+        LlmResponseCache cache = newCache(10, 3600, "generate_text, search_marklogic", "");
+
+        // When
+        cache.put("generate_text", "prompt", "answer");
+
+        // Then
+        assertFalse(cache.isCacheable("generate_text"));
+        assertNull(cache.get("generate_text", "prompt"));
+        assertTrue(cache.isCacheable("optic_code_generator"));
+    }
+
+    @Test
+    @DisplayName("Should survive a restart through the snapshot file")
+    void shouldRestoreFromSnapshot(@TempDir Path tempDir) {
+        // Given
+        String snapshot = tempDir.resolve("llm-cache.json").toString();
+        LlmResponseCache before = newCache(10, 3600, "", snapshot);
+        before.put("optic_code_generator", "join orders with customers", "op.fromView('sales', 'orders')");
+
+        // When
+        before.saveSnapshot();
+        LlmResponseCache after = newCache(10, 3600, "", snapshot);
+
+        // Then
+        assertEquals("op.fromView('sales', 'orders')", after.get("optic_code_generator", "join orders with customers"));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 🎸 Epic catalog tests - encoded once, served forever like Moving Pictures! 🎸
+ */
+@DisplayName("🎸 McpCatalogService Tests")
+class McpCatalogServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final McpCatalogService catalogService = new McpCatalogService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(catalogService, "mcpService", new McpService());
+    }
+
+    @Test
+    @DisplayName("Should serve the same pre-encoded tools/list result on every call")
+    void shouldServeSamePreEncodedResult() throws Exception {
+        // When
+        McpCatalogService.CatalogEntry first = catalogService.get("tools/list");
+        McpCatalogService.CatalogEntry second = catalogService.get("tools/list");
+
+        // Then
+        assertSame(first, second);
+        JsonNode result = objectMapper.readTree(objectMapper.writeValueAsString(Map.of("result", first.getResult())));
+        assertTrue(result.get("result").get("tools").isArray());
+        assertEquals(1L, catalogService.getMetrics().get("builds"));
+    }
+
+    @Test
+    @DisplayName("Should return null for methods outside the catalog")
+    void shouldReturnNullForOtherMethods() {
+        assertFalse(catalogService.isCatalogMethod("tools/call"));
+        assertNull(catalogService.get("tools/call"));
+    }
+
+    @Test
+    @DisplayName("Should match quoted, weak and wildcard If-None-Match values")
+    void shouldMatchIfNoneMatch() {
+        // Given
+        McpCatalogService.CatalogEntry entry = catalogService.get("prompts/list");
+
+        // When & Then
+        assertTrue(catalogService.matches(entry.getEtag(), entry));
+        assertTrue(catalogService.matches("\"stale\", W/" + entry.getEtag(), entry));
+        assertTrue(catalogService.matches("*", entry));
+        assertFalse(catalogService.matches("\"stale\"", entry));
+        assertFalse(catalogService.matches(null, entry));
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.mcpserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 🎸 Epic notification hub tests - the Spirit of Radio! 🎸
+ */
+@DisplayName("🎸 McpNotificationService Tests")
+class McpNotificationServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final McpNotificationService notificationService = new McpNotificationService();
+
+    @AfterEach
+    void tearDown() {
+        notificationService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should deliver progress notifications to the client's channel")
+    void shouldDeliverProgressNotifications() throws Exception {
+        // Given
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        notificationService.register("session-1", json -> {
+            delivered.add(json);
+            latch.countDown();
+        });
+
+        // When
+        boolean queued = notificationService.sendProgress("session-1", "token-42", 0.5, 1.0, "Halfway there");
+
+        // Then
+        assertTrue(queued);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        JsonNode notification = objectMapper.readTree(delivered.get(0));
+        assertEquals("notifications/progress", notification.get("method").asText());
+        assertEquals("token-42", notification.get("params").get("progressToken").asText());
+        assertEquals(0.5, notification.get("params").get("progress").asDouble());
+    }
+
+    @Test
+    @DisplayName("Should report undeliverable notifications when the client has no stream")
+    void shouldReportUndeliverableWithoutChannel() {
+        assertFalse(notificationService.send("nobody", Map.of("jsonrpc", "2.0")));
+        assertEquals(1L, notificationService.getMetrics().get("undeliverable"));
+    }
+
+    @Test
+    @DisplayName("Should drop the oldest notifications when a client falls behind")
+    void shouldDropOldestWhenQueueIsFull() throws Exception {
+        // Given - a writer that blocks until released, and a tiny queue
+        ReflectionTestUtils.setField(notificationService, "queueCapacity", 2);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        notificationService.register("slow-client", json -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.add(json);
+        });
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            notificationService.sendProgress("slow-client", "token", i, 10.0, null);
+        }
+        release.countDown();
+
+        // Then
+        long dropped = (Long) notificationService.getMetrics().get("dropped");
+        assertTrue(dropped >= 7, "Expected most notifications to be dropped but was " + dropped);
+    }
+
+    @Test
+    @DisplayName("Should filter log notifications below the client's level")
+    void shouldFilterLogNotificationsBelowLevel() {
+        // Given
+        notificationService.register("session-2", json -> {
+        });
+        notificationService.setLogLevel("session-2", "warning");
+
+        // When & Then
+        assertFalse(notificationService.sendLog("session-2", "info", "test", "quiet"));
+        assertTrue(notificationService.sendLog("session-2", "error", "test", "loud"));
+    }
+
+    @Test
+    @DisplayName("Should close the replaced stream and keep the new one when the old one unregisters")
+    void shouldKeepNewChannelWhenStaleChannelUnregisters() throws Exception {
+        // Given - a client reconnects with the same session id
+        CountDownLatch replaced = new CountDownLatch(1);
+        McpNotificationService.Registration stale = notificationService.register("session-4", json -> {
+        }, replaced::countDown);
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        notificationService.register("session-4", json -> {
+            delivered.add(json);
+            latch.countDown();
+        }, null);
+
+        // When - the old stream's completion callback fires late
+        stale.unregister();
+
+        // Then
+        assertTrue(replaced.await(5, TimeUnit.SECONDS));
+        assertTrue(notificationService.isConnected("session-4"));
+        assertTrue(notificationService.sendProgress("session-4", "token", 1, null, null));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, delivered.size());
+    }
+
+    @Test
+    @DisplayName("Should only know the session ids it issued")
+    void shouldOnlyAcceptIssuedSessions() {
+        // Given
+        String sessionId = notificationService.openSession();
+
+        // When & Then
+        assertTrue(notificationService.isSession(sessionId));
+        assertFalse(notificationService.isSession("guessed-session"));
+        notificationService.closeSession(sessionId);
+        assertFalse(notificationService.isSession(sessionId));
+    }
+
+    @Test
+    @DisplayName("Should reject unknown log levels")
+    void shouldRejectUnknownLogLevels() {
+        assertThrows(IllegalArgumentException.class, () -> notificationService.setLogLevel("session-3", "loud"));
+    }
+}
@@ -4,7 +4,9 @@ import com.example.mcpserver.model.Tool;
 import com.example.mcpserver.model.Resource;
 import com.example.mcpserver.model.ResourceTemplate;
 import com.example.mcpserver.model.Prompt;
+import com.example.mcpserver.model.ResourceNotification;
 import com.example.mcpserver.model.ResourceSubscription;
+import com.example.mcpserver.retrieval.DocsPassage;
 import com.marklogic.client.DatabaseClient;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,15 +18,24 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.ai.chat.ChatClient;
 import org.springframework.ai.chat.ChatResponse;
 import org.springframework.ai.chat.Generation;
+import org.springframework.ai.chat.StreamingChatClient;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.context.ApplicationContext;
 import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -307,6 +318,144 @@ class McpServiceTest {
             assertTrue(contentText.contains("🔥 AI response was incomplete"));
         }
 
+        @Test
+        @DisplayName("Should stream partial text as progress and return the full completion")
+        void shouldStreamPartialTextAsProgress() {
+            // Given
+            StreamingChatClient streamingChatClient = mock(StreamingChatClient.class);
+            when(streamingChatClient.stream(any(org.springframework.ai.chat.prompt.Prompt.class))).thenReturn(Flux.just(
+                    new ChatResponse(List.of(new Generation("Closer "))),
+                    new ChatResponse(List.of(new Generation("to the "))),
+                    new ChatResponse(List.of(new Generation("heart")))));
+            McpNotificationService notificationService = mock(McpNotificationService.class);
+            ReflectionTestUtils.setField(mcpService, "streamingChatClient", streamingChatClient);
+            ReflectionTestUtils.setField(mcpService, "notificationService", notificationService);
+            ReflectionTestUtils.setField(mcpService, "streamingFlushIntervalMs", 0L);
+            ToolCallContext context = new ToolCallContext(7, "session-2112", "token-7");
+
+            // When
+            Map<String, Object> result = mcpService.callTool("generate_text", Map.of("prompt", "Sing"), context);
+
+            // Then
+            assertFalse((Boolean) result.get("isError"));
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> contentList = (List<Map<String, Object>>) result.get("content");
+            assertEquals("Closer to the heart", contentList.get(0).get("text"));
+            verify(notificationService).sendProgress(eq("session-2112"), eq("token-7"), eq(0.5), eq(1.0), eq("Closer "));
+            verify(notificationService).sendProgress(eq("session-2112"), eq("token-7"), anyDouble(), eq(1.0), eq("heart"));
+            verify(chatClient, never()).call(any(org.springframework.ai.chat.prompt.Prompt.class));
+        }
+
+        @Test
+        @DisplayName("Should use the blocking client when the caller sent no progress token")
+        void shouldUseBlockingClientWithoutProgressToken() {
+            // Given
+            StreamingChatClient streamingChatClient = mock(StreamingChatClient.class);
+            ReflectionTestUtils.setField(mcpService, "streamingChatClient", streamingChatClient);
+            ReflectionTestUtils.setField(mcpService, "notificationService", mock(McpNotificationService.class));
+            when(chatClient.call(any(org.springframework.ai.chat.prompt.Prompt.class)))
+                    .thenReturn(new ChatResponse(List.of(new Generation("Limelight"))));
+
+            // When
+            Map<String, Object> result = mcpService.callTool("generate_text", Map.of("prompt", "Sing"));
+
+            // Then
+            assertFalse((Boolean) result.get("isError"));
+            verify(streamingChatClient, never()).stream(any(org.springframework.ai.chat.prompt.Prompt.class));
+        }
+
+        @Test
+        @DisplayName("Should answer a repeated prompt from the LLM cache")
+        void shouldAnswerRepeatedPromptFromCache() {
+            // Given
+            LlmResponseCache llmResponseCache = new LlmResponseCache();
+            llmResponseCache.init();
+            ReflectionTestUtils.setField(mcpService, "llmResponseCache", llmResponseCache);
+            when(chatClient.call(any(org.springframework.ai.chat.prompt.Prompt.class)))
+                    .thenReturn(new ChatResponse(List.of(new Generation("Subdivisions"))));
+
+            // When
+            mcpService.callTool("generate_text", Map.of("prompt", "Name a Rush song"));
+            Map<String, Object> result = mcpService.callTool("generate_text", Map.of("prompt", "Name a Rush song"));
+
+            // Then
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> contentList = (List<Map<String, Object>>) result.get("content");
+            assertEquals("Subdivisions", contentList.get(0).get("text"));
+            verify(chatClient, times(1)).call(any(org.springframework.ai.chat.prompt.Prompt.class));
+            assertEquals(1L, llmResponseCache.getMetrics().get("hits"));
+        }
+
+        @Test
+        @DisplayName("Should not cache a structured query MarkLogic failed to run")
+        void shouldNotCacheFailedStructuredQuery() {
+            // Given - a database client whose searches always fail
+            LlmResponseCache llmResponseCache = new LlmResponseCache();
+            llmResponseCache.init();
+            ReflectionTestUtils.setField(mcpService, "llmResponseCache", llmResponseCache);
+            when(chatClient.call(any(org.springframework.ai.chat.prompt.Prompt.class)))
+                    .thenReturn(new ChatResponse(List.of(new Generation("{\"query\": {\"bogus\": true}}"))));
+
+            // When
+            mcpService.callTool("search_marklogic", Map.of("prompt", "Find the 2112 liner notes"));
+            Map<String, Object> result = mcpService.callTool("search_marklogic",
+                    Map.of("prompt", "Find the 2112 liner notes"));
+
+            // Then - the rejected query was generated afresh instead of replayed
+            @SuppressWarnings("unchecked")
+            Map<String, Object> metadata = (Map<String, Object>) result.get("metadata");
+            assertEquals("query_only_fallback", metadata.get("executionMode"));
+            verify(chatClient, times(2)).call(any(org.springframework.ai.chat.prompt.Prompt.class));
+            assertEquals(0L, llmResponseCache.getMetrics().get("hits"));
+        }
+
+        @Test
+        @DisplayName("Should fall back to the optic template when the LLM misses the deadline")
+        void shouldFallBackToTemplateWhenDeadlineExpires() {
+            // Given - an LLM that takes far longer than the client's budget
+            when(chatClient.call(any(org.springframework.ai.chat.prompt.Prompt.class))).thenAnswer(invocation -> {
+                Thread.sleep(30_000);
+                return null;
+            });
+            ToolCallContext context = ToolCallContext.from(5, Map.of("_meta", Map.of("timeoutMs", 200)), "session-2112");
+
+            // When
+            long start = System.currentTimeMillis();
+            Map<String, Object> result = mcpService.callTool("optic_code_generator",
+                    Map.of("prompt", "Read the users view"), context);
+
+            // Then
+            assertTrue(System.currentTimeMillis() - start < 5000, "Tool call should not wait for the LLM");
+            assertFalse((Boolean) result.get("isError"));
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> contentList = (List<Map<String, Object>>) result.get("content");
+            assertTrue(((String) contentList.get(0).get("text")).contains("fallback optic code"));
+            assertEquals(1L, mcpService.getOperationMetrics().get("deadlinesExceeded"));
+        }
+
+        @Test
+        @DisplayName("Should return the partial streamed text when the deadline expires")
+        void shouldReturnPartialStreamedTextAtDeadline() {
+            // Given - a stream that sends one chunk and then stalls
+            StreamingChatClient streamingChatClient = mock(StreamingChatClient.class);
+            when(streamingChatClient.stream(any(org.springframework.ai.chat.prompt.Prompt.class))).thenReturn(
+                    Flux.concat(Flux.just(new ChatResponse(List.of(new Generation("Tom Sawyer ")))), Flux.never()));
+            ReflectionTestUtils.setField(mcpService, "streamingChatClient", streamingChatClient);
+            ReflectionTestUtils.setField(mcpService, "notificationService", mock(McpNotificationService.class));
+            ToolCallContext context = new ToolCallContext(6, "session-2112", "token-6", 300);
+
+            // When
+            Map<String, Object> result = mcpService.callTool("generate_text", Map.of("prompt", "Sing"), context);
+
+            // Then
+            assertFalse((Boolean) result.get("isError"));
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> contentList = (List<Map<String, Object>>) result.get("content");
+            String text = (String) contentList.get(0).get("text");
+            assertTrue(text.startsWith("Tom Sawyer "));
+            assertTrue(text.contains("Partial result"));
+        }
+
         @Test
         @DisplayName("Should generate optic code with prompt")
         void shouldGenerateOpticCodeWithPrompt() {
@@ -485,6 +634,65 @@ class McpServiceTest {
             String contentText = (String) contentList.get(0).get("text");
             assertTrue(contentText.contains("MarkLogic") || contentText.contains("search"));
         }
+
+        @Test
+        @DisplayName("⏳ Should answer marklogic_docs with a warming result while the docs index loads")
+        void shouldReturnWarmingResultWhileDocsIndexLoads() {
+            // Given
+            when(markLogicDocsService.retrieve(anyString(), any(), any(), any()))
+                    .thenThrow(new MarkLogicDocsService.IndexWarmingException(
+                            "The MarkLogic docs index is still warming up (1200 ms so far)"));
+
+            // When
+            Map<String, Object> result = mcpService.callTool("marklogic_docs", Map.of("prompt", "How do I run mlDeploy?"));
+
+            // Then
+            assertTrue((Boolean) result.get("isError"));
+            assertEquals(true, result.get("warming"));
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> contentList = (List<Map<String, Object>>) result.get("content");
+            assertTrue(((String) contentList.get(0).get("text")).contains("warming up"));
+        }
+
+        @Test
+        @DisplayName("🔍 Should pass marklogic_docs retrieval weights through to the docs search")
+        void shouldPassRetrievalWeightsToDocsSearch() {
+            // Given
+            when(markLogicDocsService.retrieve(anyString(), any(), any(), any()))
+                    .thenReturn(List.of(new DocsPassage("tasks.md", "Deploying", 2, 2, List.of("chunk-1"),
+                            "Run ./gradlew mlDeploy", 0.03)));
+
+            // When
+            Map<String, Object> result = mcpService.callTool("marklogic_docs",
+                    Map.of("prompt", "mlDeploy", "vectorWeight", 0, "lexicalWeight", "2.5"));
+
+            // Then
+            assertFalse((Boolean) result.get("isError"));
+            verify(markLogicDocsService).retrieve("mlDeploy", null, 0.0, 2.5);
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> contentList = (List<Map<String, Object>>) result.get("content");
+            String text = (String) contentList.get(0).get("text");
+            assertTrue(text.contains("./gradlew mlDeploy"));
+            assertTrue(text.contains("[tasks.md > Deploying]"));
+        }
+
+        @Test
+        @DisplayName("📏 Should pass the client's maxResults through and say so when nothing matched")
+        void shouldPassMaxResultsToDocsRetrieval() {
+            // Given
+            when(markLogicDocsService.retrieve(anyString(), any(), any(), any())).thenReturn(List.of());
+
+            // When
+            Map<String, Object> result = mcpService.callTool("marklogic_docs",
+                    Map.of("prompt", "quantum entanglement", "maxResults", 2));
+
+            // Then
+            assertFalse((Boolean) result.get("isError"));
+            verify(markLogicDocsService).retrieve("quantum entanglement", 2, null, null);
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> contentList = (List<Map<String, Object>>) result.get("content");
+            assertTrue(((String) contentList.get(0).get("text")).contains("No MarkLogic documentation matched"));
+        }
     }
 
     @Nested
@@ -612,6 +820,38 @@ class McpServiceTest {
             assertTrue(((String) result.get("message")).contains("🔥 Epic resource update simulated"));
             assertNotNull(result.get("timestamp"));
         }
+
+        @Test
+        @DisplayName("Should push resource updates to the subscriber's notification channel")
+        void shouldPushResourceUpdatesToSubscriber() {
+            // Given
+            McpNotificationService notificationService = mock(McpNotificationService.class);
+            ReflectionTestUtils.setField(mcpService, "notificationService", notificationService);
+            String uri = "file://red-barchetta.md";
+            mcpService.subscribeToResource(uri, "session-2112");
+
+            // When
+            mcpService.simulateResourceUpdate(uri);
+
+            // Then
+            verify(notificationService).send(eq("session-2112"), any(ResourceNotification.class));
+        }
+
+        @Test
+        @DisplayName("Should send progress notifications for tool calls with a progress token")
+        void shouldSendProgressForToolCallsWithProgressToken() {
+            // Given
+            McpNotificationService notificationService = mock(McpNotificationService.class);
+            ReflectionTestUtils.setField(mcpService, "notificationService", notificationService);
+            ToolCallContext context = new ToolCallContext(42, "session-2112", "token-1");
+
+            // When
+            mcpService.callTool("verify_optic_code", Map.of("optic_code", "op.fromView('a', 'b')"), context);
+
+            // Then
+            verify(notificationService).sendProgress(eq("session-2112"), eq("token-1"), eq(0.0), eq(1.0), anyString());
+            verify(notificationService).sendProgress(eq("session-2112"), eq("token-1"), eq(1.0), eq(1.0), anyString());
+        }
     }
 
     @Nested
@@ -932,5 +1172,58 @@ class McpServiceTest {
             assertFalse((Boolean) result.get("cancelled"));
             assertEquals("No progress token provided", result.get("error"));
         }
+
+        @Test
+        @DisplayName("Should interrupt the running LLM call and free the tool call when cancelled")
+        void shouldInterruptRunningCallWhenCancelled() throws Exception {
+            // Given - an LLM call that only ends when interrupted
+            CountDownLatch llmCallStarted = new CountDownLatch(1);
+            AtomicBoolean interrupted = new AtomicBoolean();
+            when(chatClient.call(any(org.springframework.ai.chat.prompt.Prompt.class))).thenAnswer(invocation -> {
+                llmCallStarted.countDown();
+                try {
+                    Thread.sleep(30_000);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                    throw e;
+                }
+                return null;
+            });
+            ToolCallContext context = new ToolCallContext(2112, "session-2112", null);
+            CompletableFuture<Map<String, Object>> call = CompletableFuture.supplyAsync(
+                    () -> mcpService.callTool("generate_text", Map.of("prompt", "A farewell to kings"), context));
+            assertTrue(llmCallStarted.await(5, TimeUnit.SECONDS));
+
+            // When
+            Map<String, Object> cancellation = mcpService.cancelOperation("session-2112", 2112, null);
+
+            // Then
+            assertTrue((Boolean) cancellation.get("running"));
+            Map<String, Object> result = call.get(2, TimeUnit.SECONDS);
+            assertTrue((Boolean) result.get("isError"));
+            assertEquals(true, result.get("cancelled"));
+            assertEquals(0, mcpService.getOperationMetrics().get("running"));
+            long deadline = System.currentTimeMillis() + 2000;
+            while (!interrupted.get() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(interrupted.get(), "The LLM call should have been interrupted");
+        }
+
+        @Test
+        @DisplayName("Should not cancel a request with the same id from another client")
+        void shouldScopeRequestIdsToTheClient() {
+            // Given
+            ToolCallContext context = new ToolCallContext(1, "session-a", null);
+            mcpService.trackOperation(context);
+
+            // When
+            Map<String, Object> result = mcpService.cancelOperation("session-b", 1, null);
+
+            // Then
+            assertFalse((Boolean) result.get("running"));
+            assertFalse(context.isCancelled());
+            mcpService.untrackOperation(context);
+        }
     }
 }
@@ -0,0 +1,66 @@
+package com.example.mcpserver.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 🎸 Epic remote call scope tests - cancel the socket, not just the wait! 🎸
+ */
+@DisplayName("🎸 RemoteCallScope Tests")
+class RemoteCallScopeTest {
+
+    @Test
+    @DisplayName("Should abort the HTTP calls registered while the scope runs")
+    void shouldAbortRegisteredCalls() throws Exception {
+        // Given - a remote call blocked after starting its HTTP call
+        RemoteCallScope scope = new RemoteCallScope();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch socketCancelled = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> remote = executor.submit(() -> scope.call(() -> {
+                RemoteCallScope.register(socketCancelled::countDown);
+                started.countDown();
+                return socketCancelled.await(10, TimeUnit.SECONDS);
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // When
+            scope.abort();
+
+            // Then
+            assertTrue(remote.get(5, TimeUnit.SECONDS));
+            assertTrue(scope.isAborted());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should abort a call registered after the scope was aborted, and ignore calls outside a scope")
+    void shouldAbortLateRegistrations() throws Exception {
+        // Given
+        AtomicInteger aborted = new AtomicInteger();
+        RemoteCallScope scope = new RemoteCallScope();
+        scope.abort();
+
+        // When
+        scope.call(() -> {
+            RemoteCallScope.register(aborted::incrementAndGet);
+            return null;
+        });
+        RemoteCallScope.register(aborted::incrementAndGet);
+
+        // Then
+        assertEquals(1, aborted.get());
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.mcpserver.service;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 🎸 Epic semantic cache tests - Different Strings, same query! 🎸
+ */
+@DisplayName("🎸 SemanticQueryCache Tests")
+class SemanticQueryCacheTest {
+
+    private final MarkLogicDocsService markLogicDocsService = mock(MarkLogicDocsService.class);
+    private final SemanticQueryCache cache = new SemanticQueryCache();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "markLogicDocsService", markLogicDocsService);
+        ReflectionTestUtils.setField(cache, "verifySampleRate", 0.0);
+        when(markLogicDocsService.embed("docs in the blue collection")).thenReturn(new float[] { 1f, 0f, 0f });
+        when(markLogicDocsService.embed("show blue collection documents")).thenReturn(new float[] { 0.98f, 0.1f, 0f });
+        when(markLogicDocsService.embed("orders over 100 dollars")).thenReturn(new float[] { 0f, 0f, 1f });
+        when(markLogicDocsService.embed("orders over 500 dollars")).thenReturn(new float[] { 0f, 0.05f, 1f });
+    }
+
+    @Test
+    @DisplayName("Should reuse the query of a paraphrased prompt")
+    void shouldReuseQueryForParaphrase() {
+        // Given
+        SemanticQueryCache.Lookup first = cache.lookup("docs in the blue collection");
+        cache.store(first, "{\"query\":{\"collection-query\":{\"uri\":[\"blue\"]}}}");
+
+        // When
+        SemanticQueryCache.Lookup paraphrase = cache.lookup("show blue collection documents");
+
+        // Then
+        assertFalse(first.isHit());
+        assertTrue(paraphrase.isHit());
+        assertEquals("{\"query\":{\"collection-query\":{\"uri\":[\"blue\"]}}}", paraphrase.getQuery());
+        assertEquals(1L, cache.getMetrics().get("hits"));
+    }
+
+    @Test
+    @DisplayName("Should miss for an unrelated prompt")
+    void shouldMissForUnrelatedPrompt() {
+        // Given
+        cache.store(cache.lookup("docs in the blue collection"), "{\"query\":{}}");
+
+        // When
+        SemanticQueryCache.Lookup unrelated = cache.lookup("orders over 100 dollars");
+
+        // Then
+        assertFalse(unrelated.isHit());
+        assertNull(unrelated.getQuery());
+        assertEquals(2L, cache.getMetrics().get("misses"));
+    }
+
+    @Test
+    @DisplayName("Should count a false hit when the sampled LLM query differs")
+    void shouldCountFalseHitForSampledMismatch() {
+        // Given - every hit is sampled for verification
+        cache.store(cache.lookup("docs in the blue collection"), "{\"query\":{\"collection-query\":{\"uri\":[\"blue\"]}}}");
+        ReflectionTestUtils.setField(cache, "verifySampleRate", 1.0);
+
+        // When
+        SemanticQueryCache.Lookup sample = cache.lookup("show blue collection documents");
+        boolean agreed = cache.verify(sample, "{\"query\":{\"term-query\":{\"text\":[\"blue\"]}}}");
+
+        // Then
+        assertTrue(sample.isVerificationSample());
+        assertFalse(sample.isHit());
+        assertFalse(agreed);
+        assertEquals(1L, cache.getMetrics().get("falseHits"));
+        assertEquals(1.0, cache.getMetrics().get("estimatedFalseHitRate"));
+    }
+
+    @Test
+    @DisplayName("Should evict the cached query of a false hit and store the fresh one in its place")
+    void shouldReplaceQueryAfterFalseHit() {
+        // Given
+        cache.store(cache.lookup("docs in the blue collection"), "{\"query\":{\"collection-query\":{\"uri\":[\"blue\"]}}}");
+        ReflectionTestUtils.setField(cache, "verifySampleRate", 1.0);
+        SemanticQueryCache.Lookup sample = cache.lookup("show blue collection documents");
+
+        // When
+        cache.verify(sample, "{\"query\":{\"term-query\":{\"text\":[\"blue\"]}}}");
+        cache.store(sample, "{\"query\":{\"term-query\":{\"text\":[\"blue\"]}}}");
+
+        // Then
+        ReflectionTestUtils.setField(cache, "verifySampleRate", 0.0);
+        SemanticQueryCache.Lookup next = cache.lookup("show blue collection documents");
+        assertTrue(next.isHit());
+        assertEquals("show blue collection documents", next.getMatchedPrompt());
+        assertEquals(1, cache.getMetrics().get("size"));
+        assertEquals(1L, cache.getMetrics().get("evicted"));
+    }
+
+    @Test
+    @DisplayName("Should not reuse a query for a prompt with different values")
+    void shouldMissWhenLiteralsDiffer() {
+        // Given - two prompts the embedding puts almost on top of each other
+        cache.store(cache.lookup("orders over 100 dollars"), "{\"query\":{\"range-query\":{\"value\":[100]}}}");
+
+        // When
+        SemanticQueryCache.Lookup other = cache.lookup("orders over 500 dollars");
+
+        // Then
+        assertFalse(other.isHit());
+        assertTrue(other.getSimilarity() > 0.99);
+        assertEquals(1L, cache.getMetrics().get("literalMismatches"));
+    }
+
+    @Test
+    @DisplayName("Should not reuse a query for a prompt naming a different lower-case collection")
+    void shouldMissWhenCollectionNamesDiffer() {
+        // Given
+        when(markLogicDocsService.embed("documents in the red collection")).thenReturn(new float[] { 0f, 1f, 0f });
+        when(markLogicDocsService.embed("documents in the blue collection")).thenReturn(new float[] { 0f, 1f, 0.01f });
+        cache.store(cache.lookup("documents in the red collection"), "{\"query\":{\"collection-query\":[\"red\"]}}");
+
+        // When
+        SemanticQueryCache.Lookup other = cache.lookup("documents in the blue collection");
+
+        // Then
+        assertEquals(Set.of("red"), SemanticQueryCache.literals("documents in the red collection"));
+        assertFalse(other.isHit());
+        assertEquals(1L, cache.getMetrics().get("literalMismatches"));
+    }
+
+    @Test
+    @DisplayName("Should pick out quoted strings, numbers and capitalised names as literals")
+    void shouldExtractLiterals() {
+        assertEquals(Set.of("\"Moving Pictures\"", "Rush", "1981"),
+                SemanticQueryCache.literals("Find albums titled \"Moving Pictures\" by Rush from 1981"));
+        assertEquals(Set.of("XML", "blue"), SemanticQueryCache.literals("XML docs in the blue collection"));
+        assertEquals(Set.of("orders", "/2024/"),
+                SemanticQueryCache.literals("files under /2024/ in the collection named orders"));
+        assertEquals(Set.of(), SemanticQueryCache.literals("don't show the author's drafts"));
+    }
+
+    @Test
+    @DisplayName("Should hit real paraphrases and miss real prompts with different values")
+    void shouldTellParaphrasesFromLiteralChangesWithRealEmbeddings() {
+        // Given - the MiniLM model the docs index uses
+        EmbeddingModel model = new AllMiniLmL6V2EmbeddingModel();
+        when(markLogicDocsService.embed(anyString()))
+                .thenAnswer(invocation -> model.embed((String) invocation.getArgument(0)).content().vector());
+        ReflectionTestUtils.setField(cache, "threshold", 0.8);
+        cache.store(cache.lookup("find documents in the blue collection"), "{\"query\":{\"collection-query\":{}}}");
+        cache.store(cache.lookup("show orders over 100 dollars"), "{\"query\":{\"range-query\":{}}}");
+        cache.store(cache.lookup("list invoices for customer Acme"), "{\"query\":{\"value-query\":{}}}");
+
+        // When
+        SemanticQueryCache.Lookup paraphrase = cache.lookup("find the documents in the blue collection");
+        SemanticQueryCache.Lookup otherAmount = cache.lookup("show orders over 500 dollars");
+        SemanticQueryCache.Lookup otherCustomer = cache.lookup("list invoices for customer Globex");
+
+        // Then
+        assertTrue(paraphrase.isHit());
+        assertEquals("find documents in the blue collection", paraphrase.getMatchedPrompt());
+        assertFalse(otherAmount.isHit());
+        assertFalse(otherCustomer.isHit());
+        assertTrue((Long) cache.getMetrics().get("literalMismatches") >= 1);
+    }
+}
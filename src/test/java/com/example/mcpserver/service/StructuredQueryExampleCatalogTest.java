@@ -0,0 +1,52 @@
+package com.example.mcpserver.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 🎸 Epic structured query catalog tests - pick the patterns that fit the song! 🎸
+ */
+@DisplayName("🎸 StructuredQueryExampleCatalog Tests")
+class StructuredQueryExampleCatalogTest {
+
+    private StructuredQueryExampleCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new StructuredQueryExampleCatalog();
+        catalog.initialize();
+    }
+
+    @Test
+    @DisplayName("Should parse every example into type, prompt and JSON")
+    void shouldParseExamples() {
+        // Then
+        assertEquals(12, catalog.getExamples().size());
+        StructuredQueryExampleCatalog.Example collection = catalog.getExamples().get(1);
+        assertEquals("COLLECTION FILTERING", collection.type());
+        assertEquals("show me red documents", collection.prompt());
+        assertTrue(collection.json().startsWith("{"));
+        assertTrue(collection.json().contains("collection-query"));
+    }
+
+    @Test
+    @DisplayName("Should select the range pattern for a range request and keep the rules")
+    void shouldSelectRelevantExamples() {
+        // When
+        String selected = catalog.select("songs with year in range 1985 to 1995");
+
+        // Then
+        assertTrue(selected.contains("range-query"));
+        assertTrue(selected.contains("CRITICAL STRUCTURED QUERY RULES"));
+        assertTrue(selected.split("User: ").length - 1 <= 3);
+
+        Map<String, Object> metrics = catalog.getMetrics();
+        assertEquals(1L, metrics.get("requests"));
+        assertTrue((Long) metrics.get("tokensSaved") > 0);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.mcpserver.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 🎸 Epic async tool execution tests - Working Man, working threads! 🎸
+ */
+@DisplayName("🎸 ToolExecutionService Tests")
+class ToolExecutionServiceTest {
+
+    private final McpService mcpService = mock(McpService.class);
+    private final ThreadPoolTaskExecutor toolExecutor = new ThreadPoolTaskExecutor();
+    private final ToolExecutionService toolExecutionService = new ToolExecutionService();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        toolExecutor.setCorePoolSize(1);
+        toolExecutor.setMaxPoolSize(1);
+        toolExecutor.setQueueCapacity(1);
+        toolExecutor.initialize();
+        ReflectionTestUtils.setField(toolExecutionService, "mcpService", mcpService);
+        ReflectionTestUtils.setField(toolExecutionService, "toolExecutor", toolExecutor);
+
+        when(mcpService.callTool(anyString(), any(), any(ToolCallContext.class))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Map.of("content", "done", "isError", false);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        toolExecutor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should report queued and running calls separately")
+    void shouldReportQueuedAndRunningCalls() throws Exception {
+        // When
+        CompletableFuture<Map<String, Object>> first = toolExecutionService.submit("generate_text", Map.of(),
+                ToolCallContext.none());
+        CompletableFuture<Map<String, Object>> second = toolExecutionService.submit("generate_text", Map.of(),
+                ToolCallContext.none());
+        waitForRunning(1);
+
+        // Then
+        Map<String, Object> metrics = toolExecutionService.getMetrics();
+        assertEquals(1, metrics.get("running"));
+        assertEquals(1, metrics.get("queued"));
+
+        release.countDown();
+        assertEquals("done", first.get(5, TimeUnit.SECONDS).get("content"));
+        assertEquals("done", second.get(5, TimeUnit.SECONDS).get("content"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((Long) toolExecutionService.getMetrics().get("completed") < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2L, toolExecutionService.getMetrics().get("completed"));
+    }
+
+    @Test
+    @DisplayName("Should reject calls when the executor is saturated")
+    void shouldRejectWhenSaturated() throws Exception {
+        // Given - one running, one queued
+        toolExecutionService.submit("generate_text", Map.of(), ToolCallContext.none());
+        toolExecutionService.submit("generate_text", Map.of(), ToolCallContext.none());
+        waitForRunning(1);
+
+        // When
+        CompletableFuture<Map<String, Object>> rejected = toolExecutionService.submit("generate_text", Map.of(),
+                ToolCallContext.none());
+
+        // Then
+        ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(TaskRejectedException.class, e.getCause());
+        assertEquals(1L, toolExecutionService.getMetrics().get("rejected"));
+    }
+
+    private void waitForRunning(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((Integer) toolExecutionService.getMetrics().get("running") < expected
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
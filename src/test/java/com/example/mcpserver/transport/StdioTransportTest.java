@@ -0,0 +1,196 @@
+package com.example.mcpserver.transport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 🎸 Epic stdio transport tests - pipelined like a Rush triple-neck! 🎸
+ */
+@DisplayName("🎸 Stdio Transport Tests")
+class StdioTransportTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Should not block fast requests behind a slow tools/call")
+    void shouldNotBlockFastRequestsBehindSlowToolCall() throws Exception {
+        // Given
+        String input = """
+                {"jsonrpc":"2.0","id":1,"method":"tools/call","params":{"name":"slow"}}
+                {"jsonrpc":"2.0","id":2,"method":"ping"}
+                """;
+        StdioTransport transport = new StdioTransport(objectMapper, request -> {
+            if ("tools/call".equals(request.getMethod())) {
+                sleep(500);
+                return Map.of("content", "slow");
+            }
+            return Map.of("result", "pong");
+        }, 4);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        transport.run(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+                new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        // Then
+        String[] lines = output.toString(StandardCharsets.UTF_8).trim().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(2, objectMapper.readTree(lines[0]).get("id").asInt(), "ping should complete first");
+        assertEquals(1, objectMapper.readTree(lines[1]).get("id").asInt());
+    }
+
+    @Test
+    @DisplayName("Should never run more than max in-flight requests at once")
+    void shouldRespectMaxInFlight() throws Exception {
+        // Given
+        StringBuilder input = new StringBuilder();
+        for (int i = 1; i <= 6; i++) {
+            input.append("{\"jsonrpc\":\"2.0\",\"id\":").append(i).append(",\"method\":\"ping\"}\n");
+        }
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        StdioTransport transport = new StdioTransport(objectMapper, request -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(50);
+            running.decrementAndGet();
+            return Map.of("result", "pong");
+        }, 2);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        transport.run(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8)),
+                new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        // Then
+        assertTrue(peak.get() <= 2, "Peak concurrency was " + peak.get());
+        assertEquals(6, output.toString(StandardCharsets.UTF_8).trim().split("\n").length);
+    }
+
+    @Test
+    @DisplayName("Should answer malformed input with a parse error and keep going")
+    void shouldReturnParseErrorForMalformedInput() throws Exception {
+        // Given
+        String input = "not json\n{\"jsonrpc\":\"2.0\",\"id\":7,\"method\":\"ping\"}\n";
+        StdioTransport transport = new StdioTransport(objectMapper, request -> Map.of("result", "pong"), 4);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        transport.run(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+                new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        // Then
+        String[] lines = output.toString(StandardCharsets.UTF_8).trim().split("\n");
+        assertEquals(2, lines.length);
+        JsonNode parseError = objectMapper.readTree(lines[0]);
+        assertEquals(-32700, parseError.get("error").get("code").asInt());
+        assertEquals(7, objectMapper.readTree(lines[1]).get("id").asInt());
+    }
+
+    @Test
+    @DisplayName("Should answer a batch as one array in request order without notification entries")
+    void shouldAnswerBatchInRequestOrder() throws Exception {
+        // Given
+        String input = "[{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"tools/call\"},"
+                + "{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"},"
+                + "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"ping\"}]\n";
+        StdioTransport transport = new StdioTransport(objectMapper, request -> {
+            if ("tools/call".equals(request.getMethod())) {
+                sleep(200);
+            }
+            return Map.of("method", String.valueOf(request.getMethod()));
+        }, 4);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        transport.run(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+                new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        // Then
+        String[] lines = output.toString(StandardCharsets.UTF_8).trim().split("\n");
+        assertEquals(1, lines.length);
+        JsonNode batch = objectMapper.readTree(lines[0]);
+        assertTrue(batch.isArray());
+        assertEquals(2, batch.size());
+        assertEquals(1, batch.get(0).get("id").asInt());
+        assertEquals(2, batch.get(1).get("id").asInt());
+    }
+
+    @Test
+    @DisplayName("Should hold every batch member to max in-flight")
+    void shouldRespectMaxInFlightInsideBatch() throws Exception {
+        // Given
+        StringBuilder input = new StringBuilder("[");
+        for (int i = 1; i <= 6; i++) {
+            input.append(i > 1 ? "," : "").append("{\"jsonrpc\":\"2.0\",\"id\":").append(i)
+                    .append(",\"method\":\"ping\"}");
+        }
+        input.append("]\n");
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        StdioTransport transport = new StdioTransport(objectMapper, request -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(30);
+            running.decrementAndGet();
+            return Map.of("result", "pong");
+        }, 1);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        transport.run(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8)),
+                new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        // Then
+        assertEquals(1, peak.get(), "max in-flight 1 must run batch members one at a time");
+        JsonNode batch = objectMapper.readTree(output.toString(StandardCharsets.UTF_8).trim());
+        assertEquals(6, batch.size());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i + 1, batch.get(i).get("id").asInt());
+        }
+    }
+
+    @Test
+    @DisplayName("Should send no response for a cancelled request")
+    void shouldNotRespondToCancelledRequest() throws Exception {
+        // Given
+        String input = """
+                {"jsonrpc":"2.0","id":1,"method":"tools/call","params":{"name":"slow"}}
+                {"jsonrpc":"2.0","id":2,"method":"ping"}
+                """;
+        StdioTransport transport = new StdioTransport(objectMapper, request -> {
+            if ("tools/call".equals(request.getMethod())) {
+                throw new CancellationException("Request 1 cancelled");
+            }
+            return Map.of("result", "pong");
+        }, 4);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        transport.run(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+                new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        // Then
+        String[] lines = output.toString(StandardCharsets.UTF_8).trim().split("\n");
+        assertEquals(1, lines.length);
+        assertEquals(2, objectMapper.readTree(lines[0]).get("id").asInt());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}